@@ -0,0 +1,45 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.benchmark;
+
+import org.seasar.doma.it.AppConfig;
+import org.seasar.doma.it.Container;
+import org.seasar.doma.it.dao.ScriptDao;
+import org.seasar.doma.it.dataset.DatasetGenerator;
+
+/**
+ * Creates the same {@link AppConfig} as the tests, driven by the
+ * {@code url}, {@code user} and {@code password} system properties, and
+ * creates the schema for a benchmark trial.
+ * <p>
+ * When the {@code dataset.rows} system property is set, the seed data is
+ * replaced with a {@link DatasetGenerator} dataset of that size.
+ */
+public class BenchmarkContainer extends Container {
+
+    public AppConfig start() {
+        AppConfig config = createConfig();
+        config.getTransactionManager().required(() -> {
+            ScriptDao dao = ScriptDao.get(config);
+            dao.create();
+        });
+        if (System.getProperty(DatasetGenerator.ROWS) != null) {
+            DatasetGenerator.fromSystemProperties(config).generate();
+        }
+        return config;
+    }
+
+}
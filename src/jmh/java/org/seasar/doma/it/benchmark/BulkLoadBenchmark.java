@@ -0,0 +1,120 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.benchmark;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.seasar.doma.it.AppConfig;
+import org.seasar.doma.it.dao.BatchWriteResult;
+import org.seasar.doma.it.dataset.EmployeeBulkLoader;
+import org.seasar.doma.it.domain.Identity;
+import org.seasar.doma.it.domain.Salary;
+import org.seasar.doma.it.entity.Employee;
+import org.seasar.doma.jdbc.builder.DeleteBuilder;
+import org.seasar.doma.jdbc.tx.TransactionManager;
+
+/**
+ * Loads employees with {@link EmployeeBulkLoader}, natively and with its
+ * chunked {@code @BatchInsert} fallback. Run it against H2 and HSQLDB with
+ * {@code -Purl}. Every invocation runs in a transaction that is rolled back;
+ * rows committed by the HSQLDB load are deleted after the invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BulkLoadBenchmark {
+
+    private static final int INSERT_OFFSET = 100000;
+
+    @Param({ "1000", "10000" })
+    public int rows;
+
+    @Param({ "true", "false" })
+    public boolean nativeLoad;
+
+    private AppConfig config;
+
+    private TransactionManager tm;
+
+    private EmployeeBulkLoader loader;
+
+    private BatchWriteResult result;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        config = new BenchmarkContainer().start();
+        tm = config.getTransactionManager();
+        loader = new EmployeeBulkLoader(config) {
+            @Override
+            public boolean isNative() {
+                return nativeLoad && super.isNative();
+            }
+        };
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteCommitted() {
+        if (result != null && result.getCommits() > 0) {
+            tm.requiresNew(() -> {
+                DeleteBuilder builder = DeleteBuilder.newInstance(config);
+                builder.sql("delete from EMPLOYEE where EMPLOYEE_ID >= ")
+                        .param(int.class, INSERT_OFFSET);
+                builder.execute();
+            });
+        }
+        result = null;
+    }
+
+    @Benchmark
+    public BatchWriteResult load() {
+        return tm.required(() -> {
+            result = loader.load(IntStream.range(0, rows).mapToObj(
+                    this::createEmployee));
+            tm.setRollbackOnly();
+            return result;
+        });
+    }
+
+    private Employee createEmployee(int i) {
+        Employee employee = new Employee();
+        employee.setEmployeeId(INSERT_OFFSET + i);
+        employee.setEmployeeNo(i % 10000);
+        employee.setEmployeeName("EMP" + i);
+        employee.setHiredate(Date.valueOf("2014-01-02"));
+        employee.setSalary(new Salary(BigDecimal.valueOf(250000 + i, 2)));
+        employee.setDepartmentId(new Identity<>(1 + i % 4));
+        return employee;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.seasar.doma.it.AppConfig;
+import org.seasar.doma.it.dao.EmployeeDao;
+import org.seasar.doma.it.entity.Employee;
+import org.seasar.doma.it.jdbc.WindowCountImplementors;
+import org.seasar.doma.jdbc.SelectOptions;
+import org.seasar.doma.jdbc.tx.TransactionManager;
+
+/**
+ * Measures a counted page of {@link EmployeeDao#selectAll} with the separate
+ * count query and with {@code COUNT(*) OVER ()}. On a database without
+ * window functions both settings run the count query, so the benchmark
+ * measures nothing on the embedded H2 1.3 and HSQLDB 2.3 of the build; run
+ * it against a database with window functions and a generated dataset, for
+ * example {@code -PjdbcUrl=jdbc:postgresql:... -Pdataset.rows=1000000}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CountBenchmark {
+
+    @Param({ "false", "true" })
+    public boolean windowCount;
+
+    @Param({ "0", "10000" })
+    public int offset;
+
+    @Param({ "50" })
+    public int pageSize;
+
+    private TransactionManager tm;
+
+    private EmployeeDao dao;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        AppConfig config = new BenchmarkContainer().start();
+        WindowCountImplementors implementors = config
+                .getWindowCountImplementors();
+        implementors.setEnabled(windowCount);
+        if (windowCount && !implementors.isAvailable()) {
+            System.err.println(config.getDbms()
+                    + " does not support COUNT(*) OVER ()");
+        }
+        tm = config.getTransactionManager();
+        dao = EmployeeDao.get(config);
+    }
+
+    @Benchmark
+    public long countedPage() {
+        return tm.required(() -> {
+            SelectOptions options = SelectOptions.get().offset(offset)
+                    .limit(pageSize).count();
+            List<Employee> employees = dao.selectAll(options);
+            return options.getCount() + employees.size();
+        });
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.seasar.doma.it.AppConfig;
+import org.seasar.doma.it.dao.DepartmentDao;
+import org.seasar.doma.it.domain.Identity;
+import org.seasar.doma.it.entity.Department;
+import org.seasar.doma.jdbc.tx.TransactionManager;
+
+/**
+ * Every invocation runs in a transaction that is rolled back, so the table
+ * contents stay the same across iterations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DepartmentDaoBenchmark {
+
+    private static final int INSERT_OFFSET = 100000;
+
+    private static final int UPDATE_OFFSET = 200000;
+
+    @Param({ "10", "100", "1000" })
+    public int batchSize;
+
+    private TransactionManager tm;
+
+    private DepartmentDao dao;
+
+    private List<Department> newDepartments;
+
+    private List<Department> existingDepartments;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        AppConfig config = new BenchmarkContainer().start();
+        tm = config.getTransactionManager();
+        dao = DepartmentDao.get(config);
+        newDepartments = createDepartments(INSERT_OFFSET);
+        existingDepartments = createDepartments(UPDATE_OFFSET);
+        tm.required(() -> {
+            dao.insert(existingDepartments);
+        });
+    }
+
+    @Setup(Level.Invocation)
+    public void resetVersions() {
+        existingDepartments.forEach(d -> d.setVersion(1));
+    }
+
+    @Benchmark
+    public int[] batchInsert() {
+        return tm.required(() -> {
+            int[] result = dao.insert(newDepartments);
+            tm.setRollbackOnly();
+            return result;
+        });
+    }
+
+    @Benchmark
+    public int[] batchUpdate() {
+        return tm.required(() -> {
+            int[] result = dao.update(existingDepartments);
+            tm.setRollbackOnly();
+            return result;
+        });
+    }
+
+    private List<Department> createDepartments(int offset) {
+        List<Department> departments = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            Department department = new Department();
+            department.setDepartmentId(new Identity<>(offset + i));
+            department.setDepartmentNo(offset + i);
+            department.setDepartmentName("DEPT" + i);
+            departments.add(department);
+        }
+        return departments;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.benchmark;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.seasar.doma.it.AppConfig;
+import org.seasar.doma.it.dao.ColumnarResult;
+import org.seasar.doma.it.dao.EmployeeDao;
+import org.seasar.doma.it.domain.Salary;
+import org.seasar.doma.it.domain.SalaryCents;
+import org.seasar.doma.it.entity.Employee;
+import org.seasar.doma.jdbc.tx.TransactionManager;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmployeeDaoBenchmark {
+
+    private static final int PARTITIONS = 4;
+
+    private static final List<ColumnarResult.Column> SALARY_COLUMNS = Collections
+            .singletonList(ColumnarResult.scaledLongColumn("SALARY_CENTS", 2));
+
+    private static final List<ColumnarResult.Column> DEPARTMENT_ID_COLUMNS = Collections
+            .singletonList(ColumnarResult.intColumn("DEPARTMENT_ID"));
+
+    private TransactionManager tm;
+
+    private EmployeeDao dao;
+
+    private ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        AppConfig config = new BenchmarkContainer().start();
+        tm = config.getTransactionManager();
+        dao = EmployeeDao.get(config);
+        executor = Executors.newFixedThreadPool(PARTITIONS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public Employee selectById() {
+        return tm.required(() -> dao.selectById(1));
+    }
+
+    @Benchmark
+    public List<Employee> selectAll() {
+        return tm.required(() -> dao.selectAll());
+    }
+
+    @Benchmark
+    public long streamAll() {
+        return tm.required(() -> dao.streamAll(stream -> stream.count()));
+    }
+
+    @Benchmark
+    public List<Employee> collectAll() {
+        return tm.required(() -> dao.collectAll(Collectors.toList()));
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> selectAllAsMapList() {
+        return tm.required(() -> dao.selectAllAsMapList());
+    }
+
+    @Benchmark
+    public BigDecimal sumSalaryStreamed() {
+        return tm.required(() -> dao.streamAllSalary(stream -> stream.filter(
+                Objects::nonNull).reduce(BigDecimal.ZERO, BigDecimal::add)));
+    }
+
+    @Benchmark
+    public BigDecimal sumSalaryDomain() {
+        return tm.required(() -> dao.streamAllSalaryDomain(stream -> stream
+                .map(Salary::getValue).filter(Objects::nonNull)
+                .reduce(BigDecimal.ZERO, BigDecimal::add)));
+    }
+
+    @Benchmark
+    public long sumSalaryCents() {
+        return tm.required(() -> dao.streamAllSalaryCents(stream -> stream
+                .mapToLong(SalaryCents::getValue).sum()));
+    }
+
+    @Benchmark
+    public BigDecimal sumSalaryColumnar() {
+        return tm.required(() -> dao.selectAllColumnar(SALARY_COLUMNS)
+                .getScaledLongColumn("SALARY_CENTS").sum());
+    }
+
+    @Benchmark
+    public long sumDepartmentIdColumnar() {
+        return tm.required(() -> dao.selectAllColumnar(DEPARTMENT_ID_COLUMNS)
+                .getIntColumn("DEPARTMENT_ID").sum());
+    }
+
+    @Benchmark
+    public long streamAllPartitioned() {
+        return dao.streamAllPartitioned(PARTITIONS, 1000, executor,
+                stream -> stream.count());
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.seasar.doma.it.AppConfig;
+import org.seasar.doma.it.dao.EmployeeDao;
+import org.seasar.doma.it.dao.ExportOptions;
+import org.seasar.doma.jdbc.tx.TransactionManager;
+
+/**
+ * Writes all employees as CSV to a channel that discards its input, once by
+ * selecting map rows and writing them through a {@link Writer}, and once with
+ * {@link EmployeeDao#exportAll(WritableByteChannel, ExportOptions)}. Add
+ * {@code -prof gc} to compare the allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExportBenchmark {
+
+    private final NullChannel channel = new NullChannel();
+
+    private TransactionManager tm;
+
+    private EmployeeDao dao;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        AppConfig config = new BenchmarkContainer().start();
+        tm = config.getTransactionManager();
+        dao = EmployeeDao.get(config);
+    }
+
+    @Benchmark
+    public long writeMapRows() {
+        return tm.required(() -> {
+            NullOutputStream out = new NullOutputStream();
+            try (Writer writer = new OutputStreamWriter(out,
+                    StandardCharsets.UTF_8)) {
+                for (Map<String, Object> row : dao.selectAllAsMapList()) {
+                    boolean first = true;
+                    for (Object value : row.values()) {
+                        if (!first) {
+                            writer.write(',');
+                        }
+                        first = false;
+                        if (value != null) {
+                            writer.write(value.toString());
+                        }
+                    }
+                    writer.write("\r\n");
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return out.count;
+        });
+    }
+
+    @Benchmark
+    public long exportAll() {
+        return tm.required(() -> dao.exportAll(channel, ExportOptions.csv())
+                .getBytes());
+    }
+
+    private static class NullOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    private static class NullChannel implements WritableByteChannel {
+
+        @Override
+        public int write(ByteBuffer src) {
+            int remaining = src.remaining();
+            src.position(src.limit());
+            return remaining;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
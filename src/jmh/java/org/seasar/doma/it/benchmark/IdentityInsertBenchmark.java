@@ -0,0 +1,104 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.seasar.doma.it.AppConfig;
+import org.seasar.doma.it.Dbms;
+import org.seasar.doma.it.IdentityReservingH2Dialect;
+import org.seasar.doma.it.dao.IdentityStrategyDao;
+import org.seasar.doma.it.entity.IdentityStrategy;
+import org.seasar.doma.it.jdbc.DelegatingConfig;
+import org.seasar.doma.jdbc.dialect.Dialect;
+import org.seasar.doma.jdbc.tx.TransactionManager;
+
+/**
+ * Inserts identity entities with {@code @BatchInsert}, with the generated
+ * keys read row by row ({@code batchGeneratedKeys=false}) and for whole JDBC
+ * batches, for which H2 uses {@link IdentityReservingH2Dialect}. The score
+ * is in rows per second. Run it against H2 and HSQLDB with
+ * {@code -PjdbcUrl}. Every invocation runs in a transaction that is rolled
+ * back.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdentityInsertBenchmark {
+
+    private static final int ROWS = 1000;
+
+    @Param({ "false", "true" })
+    public boolean batchGeneratedKeys;
+
+    private TransactionManager tm;
+
+    private IdentityStrategyDao dao;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        AppConfig config = new BenchmarkContainer().start();
+        config.setBatchGeneratedKeys(batchGeneratedKeys);
+        tm = config.getTransactionManager();
+        if (batchGeneratedKeys && config.getDbms() == Dbms.H2
+                && !(config.getDialect() instanceof IdentityReservingH2Dialect)) {
+            Dialect dialect = new IdentityReservingH2Dialect();
+            dao = IdentityStrategyDao.get(new DelegatingConfig(config) {
+
+                @Override
+                public Dialect getDialect() {
+                    return dialect;
+                }
+            });
+        } else {
+            dao = IdentityStrategyDao.get(config);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int[] batchInsert() {
+        List<IdentityStrategy> entities = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            IdentityStrategy entity = new IdentityStrategy();
+            entity.setValue(i);
+            entities.add(entity);
+        }
+        return tm.required(() -> {
+            int[] result = dao.insert(entities);
+            tm.setRollbackOnly();
+            return result;
+        });
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.seasar.doma.it.AppConfig;
+import org.seasar.doma.it.dao.EmployeeDao;
+import org.seasar.doma.jdbc.tx.TransactionManager;
+
+/**
+ * Reads {@link EmployeeDao#selectAllAsMapList()} with Doma's
+ * {@code LinkedHashMap} rows and with compact rows. Add {@code -prof gc} to
+ * the JMH arguments to compare the allocation per operation, and run it
+ * against a generated dataset, for example {@code -Pdataset.rows=1000000}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapResultBenchmark {
+
+    @Param({ "false", "true" })
+    public boolean compactMaps;
+
+    private TransactionManager tm;
+
+    private EmployeeDao dao;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        AppConfig config = new BenchmarkContainer().start();
+        config.getCommandImplementors().setEnabled(compactMaps);
+        tm = config.getTransactionManager();
+        dao = EmployeeDao.get(config);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> selectAllAsMapList() {
+        return tm.required(() -> dao.selectAllAsMapList());
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.seasar.doma.it.AppConfig;
+import org.seasar.doma.it.dao.EmployeeDao;
+import org.seasar.doma.it.dao.KeysetPage;
+import org.seasar.doma.it.dao.KeysetToken;
+import org.seasar.doma.it.entity.Employee;
+import org.seasar.doma.jdbc.SelectOptions;
+import org.seasar.doma.jdbc.tx.TransactionManager;
+
+/**
+ * Compares reading the page that starts at {@code depth} with
+ * {@code SelectOptions.offset} against {@link EmployeeDao#selectPage}. Depths
+ * beyond the table size read empty pages, so run it against a generated
+ * dataset, for example {@code -Pdataset.rows=2000000}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PagingBenchmark {
+
+    @Param({ "0", "10000", "1000000" })
+    public int depth;
+
+    @Param({ "50" })
+    public int pageSize;
+
+    private TransactionManager tm;
+
+    private EmployeeDao dao;
+
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        AppConfig config = new BenchmarkContainer().start();
+        tm = config.getTransactionManager();
+        dao = EmployeeDao.get(config);
+        if (depth > 0) {
+            token = tm.required(() -> {
+                List<Employee> previous = dao.selectAll(SelectOptions.get()
+                        .offset(depth - 1).limit(1));
+                if (previous.isEmpty()) {
+                    return KeysetToken.encode("EMPLOYEE_ID", Integer.MAX_VALUE);
+                }
+                return KeysetToken.encode("EMPLOYEE_ID", previous.get(0)
+                        .getEmployeeId());
+            });
+        }
+    }
+
+    @Benchmark
+    public List<Employee> offsetPage() {
+        return tm.required(() -> dao.selectAll(SelectOptions.get()
+                .offset(depth).limit(pageSize)));
+    }
+
+    @Benchmark
+    public KeysetPage<Employee> seekPage() {
+        return tm.required(() -> dao.selectPage(token, pageSize));
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.seasar.doma.it.AppConfig;
+import org.seasar.doma.it.dao.DepartmentDao;
+import org.seasar.doma.it.dao.ParallelBatchResult;
+import org.seasar.doma.it.dao.ParallelBatchWriter;
+import org.seasar.doma.it.domain.Identity;
+import org.seasar.doma.it.entity.Department;
+import org.seasar.doma.jdbc.builder.DeleteBuilder;
+
+/**
+ * Inserts departments with {@link ParallelBatchWriter} on 1, 2 and 4
+ * connections. Run it against H2 and HSQLDB with {@code -Purl}. The
+ * partitions commit, so the rows are deleted after each invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelInsertBenchmark {
+
+    private static final int INSERT_OFFSET = 100000;
+
+    @Param({ "10000" })
+    public int rows;
+
+    @Param({ "1", "2", "4" })
+    public int partitions;
+
+    private AppConfig config;
+
+    private ParallelBatchWriter<Department> writer;
+
+    private ExecutorService executor;
+
+    private List<Department> departments;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        config = new BenchmarkContainer().start();
+        writer = DepartmentDao.get(config).parallelInserter();
+        writer.setPartitions(partitions);
+        executor = Executors.newFixedThreadPool(partitions);
+        departments = IntStream.range(0, rows).mapToObj(i -> {
+            Department department = new Department();
+            department.setDepartmentId(new Identity<>(INSERT_OFFSET + i));
+            department.setDepartmentNo(INSERT_OFFSET + i);
+            department.setDepartmentName("DEPT" + i);
+            return department;
+        }).collect(Collectors.toList());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteInserted() {
+        config.getTransactionManager().required(() -> {
+            DeleteBuilder builder = DeleteBuilder.newInstance(config);
+            builder.sql("delete from DEPARTMENT where DEPARTMENT_ID >= ")
+                    .param(int.class, INSERT_OFFSET);
+            builder.execute();
+        });
+    }
+
+    @Benchmark
+    public ParallelBatchResult<Department> insert() {
+        ParallelBatchResult<Department> result = writer.write(departments,
+                executor);
+        if (!result.isSucceeded()) {
+            throw result.getFailures().get(0).getFailure();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.seasar.doma.it.AppConfig;
+import org.seasar.doma.it.dao.SequenceStrategyDao;
+import org.seasar.doma.it.entity.ConcurrentSequenceIdGenerator;
+import org.seasar.doma.it.entity.SequenceStrategy;
+import org.seasar.doma.it.entity._SequenceStrategy;
+import org.seasar.doma.jdbc.id.BuiltinSequenceIdGenerator;
+import org.seasar.doma.jdbc.id.IdGenerationConfig;
+import org.seasar.doma.jdbc.id.SequenceIdGenerator;
+import org.seasar.doma.jdbc.tx.TransactionManager;
+
+/**
+ * Generates ids of {@link SequenceStrategy} from 8 threads with Doma's
+ * {@link BuiltinSequenceIdGenerator}, which takes a lock for every id, and
+ * with {@link ConcurrentSequenceIdGenerator}. The score is in ids or rows
+ * per second. {@code insert} assigns the ids of the generator under test
+ * before the insert, so the generator of the entity is not used. The block
+ * counters of
+ * the concurrent generator are printed at the end of a trial. Every
+ * invocation runs in a transaction that is rolled back.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class SequenceIdBenchmark {
+
+    private static final int IDS = 100;
+
+    private static final int ROWS = 10;
+
+    @Param({ "builtin", "concurrent" })
+    public String generator;
+
+    private TransactionManager tm;
+
+    private SequenceStrategyDao dao;
+
+    private IdGenerationConfig idGenerationConfig;
+
+    private SequenceIdGenerator idGenerator;
+
+    private boolean builtin;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        AppConfig config = new BenchmarkContainer().start();
+        tm = config.getTransactionManager();
+        dao = SequenceStrategyDao.get(config);
+        idGenerationConfig = new IdGenerationConfig(config,
+                _SequenceStrategy.getSingletonInternal());
+        builtin = generator.equals("builtin");
+        idGenerator = builtin ? new BuiltinSequenceIdGenerator()
+                : new ConcurrentSequenceIdGenerator();
+        idGenerator.setQualifiedSequenceName("SEQUENCE_STRATEGY_ID");
+        idGenerator.setInitialValue(1);
+        idGenerator.setAllocationSize(50);
+        idGenerator.initialize();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (!builtin) {
+            System.out.println(((ConcurrentSequenceIdGenerator) idGenerator)
+                    .getStatistics());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(IDS)
+    public long generateIds() {
+        return tm.required(() -> {
+            long sum = 0;
+            for (int i = 0; i < IDS; i++) {
+                sum += idGenerator.generatePreInsert(idGenerationConfig);
+            }
+            return sum;
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int insert() {
+        return tm.required(() -> {
+            int count = 0;
+            for (int i = 0; i < ROWS; i++) {
+                SequenceStrategy entity = new SequenceStrategy();
+                entity.setId(idGenerator.generatePreInsert(idGenerationConfig)
+                        .intValue());
+                count += dao.insert(entity);
+            }
+            tm.setRollbackOnly();
+            return count;
+        });
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.benchmark;
+
+import java.sql.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.seasar.doma.it.AppConfig;
+import org.seasar.doma.it.dao.BatchUpdateResult;
+import org.seasar.doma.it.dao.EmployeeDao;
+import org.seasar.doma.it.dao.SetBasedDeleter;
+import org.seasar.doma.it.entity.Employee;
+import org.seasar.doma.jdbc.tx.TransactionManager;
+
+/**
+ * Deletes employees with the row-by-row {@code @BatchDelete} and with
+ * {@link SetBasedDeleter}. Run it against H2 and HSQLDB with {@code -PjdbcUrl}.
+ * Every invocation runs in a transaction that is rolled back.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SetBasedDeleteBenchmark {
+
+    private static final int INSERT_OFFSET = 100000;
+
+    @Param({ "10000" })
+    public int rows;
+
+    @Param({ "100", "250" })
+    public int chunkSize;
+
+    private TransactionManager tm;
+
+    private EmployeeDao dao;
+
+    private SetBasedDeleter<Employee> deleter;
+
+    private List<Employee> employees;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        AppConfig config = new BenchmarkContainer().start();
+        tm = config.getTransactionManager();
+        dao = EmployeeDao.get(config);
+        deleter = dao.setBasedDeleter();
+        deleter.setChunkSize(chunkSize);
+        employees = IntStream.range(0, rows).mapToObj(i -> {
+            Employee employee = new Employee();
+            employee.setEmployeeId(INSERT_OFFSET + i);
+            employee.setEmployeeNo(i % 10000);
+            employee.setEmployeeName("EMP" + i);
+            employee.setHiredate(Date.valueOf("2014-01-02"));
+            return employee;
+        }).collect(Collectors.toList());
+        tm.required(() -> {
+            dao.insert(employees);
+        });
+    }
+
+    @Benchmark
+    public int[] batchDelete() {
+        return tm.required(() -> {
+            int[] result = dao.delete(employees);
+            tm.setRollbackOnly();
+            return result;
+        });
+    }
+
+    @Benchmark
+    public BatchUpdateResult<Employee> setBasedDelete() {
+        return tm.required(() -> {
+            BatchUpdateResult<Employee> result = deleter.delete(employees);
+            tm.setRollbackOnly();
+            return result;
+        });
+    }
+}
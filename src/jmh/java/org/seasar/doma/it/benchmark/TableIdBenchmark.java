@@ -0,0 +1,109 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.seasar.doma.it.AppConfig;
+import org.seasar.doma.it.dao.TableStrategyDao;
+import org.seasar.doma.it.entity.StripedTableIdGenerator;
+import org.seasar.doma.it.entity.StripedTableStrategy;
+import org.seasar.doma.it.entity._StripedTableStrategy;
+import org.seasar.doma.jdbc.id.IdGenerationConfig;
+import org.seasar.doma.jdbc.tx.TransactionManager;
+
+/**
+ * Generates ids of {@link StripedTableStrategy} from 8 threads with one row
+ * of {@link StripedTableIdGenerator}, which all threads update as with
+ * Doma's builtin generator, and with four rows. The score is in ids or rows
+ * per second.
+ * Every invocation runs in a transaction that is rolled back; the generator
+ * rows are updated in their own transactions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class TableIdBenchmark {
+
+    private static final int IDS = 100;
+
+    private static final int ROWS = 10;
+
+    @Param({ "1", "4" })
+    public int stripes;
+
+    private TransactionManager tm;
+
+    private TableStrategyDao dao;
+
+    private IdGenerationConfig idGenerationConfig;
+
+    private StripedTableIdGenerator idGenerator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        AppConfig config = new BenchmarkContainer().start();
+        tm = config.getTransactionManager();
+        dao = TableStrategyDao.get(config);
+        idGenerationConfig = new IdGenerationConfig(config,
+                _StripedTableStrategy.getSingletonInternal());
+        idGenerator = StripedTableIdGenerator.of("TABLE_STRATEGY_ID");
+        idGenerator.setStripes(stripes);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(IDS)
+    public long generateIds() {
+        return tm.required(() -> {
+            long sum = 0;
+            for (int i = 0; i < IDS; i++) {
+                sum += idGenerator.generatePreInsert(idGenerationConfig);
+            }
+            return sum;
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int insert() {
+        return tm.required(() -> {
+            int count = 0;
+            for (int i = 0; i < ROWS; i++) {
+                count += dao.insert(new StripedTableStrategy());
+            }
+            tm.setRollbackOnly();
+            return count;
+        });
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.seasar.doma.it.AppConfig;
+import org.seasar.doma.it.TuningProfile;
+import org.seasar.doma.it.dao.DepartmentDao;
+import org.seasar.doma.it.dao.EmployeeDao;
+import org.seasar.doma.it.domain.Identity;
+import org.seasar.doma.it.entity.Department;
+import org.seasar.doma.jdbc.tx.TransactionManager;
+
+/**
+ * Sweeps the {@link TuningProfile} fetch size and batch size. The fetch size
+ * matters for {@link #streamAll()} and the batch size for
+ * {@link #batchInsert()}, so narrow the sweep with {@code -p} when only one
+ * of them is of interest. Run it against a large EMPLOYEE table generated
+ * with {@code dataset.rows}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TuningProfileBenchmark {
+
+    private static final int INSERT_OFFSET = 300000;
+
+    private static final int INSERT_ROWS = 1000;
+
+    @Param({ "0", "100", "1000" })
+    public int fetchSize;
+
+    @Param({ "10", "100", "1000" })
+    public int batchSize;
+
+    private TransactionManager tm;
+
+    private EmployeeDao employeeDao;
+
+    private DepartmentDao departmentDao;
+
+    private List<Department> departments;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        AppConfig config = new BenchmarkContainer().start();
+        config.setTuningProfile(config.getTuningProfile()
+                .withFetchSize(fetchSize).withBatchSize(batchSize));
+        tm = config.getTransactionManager();
+        employeeDao = EmployeeDao.get(config);
+        departmentDao = DepartmentDao.get(config);
+        departments = new ArrayList<>(INSERT_ROWS);
+        for (int i = 0; i < INSERT_ROWS; i++) {
+            Department department = new Department();
+            department.setDepartmentId(new Identity<>(INSERT_OFFSET + i));
+            department.setDepartmentNo(INSERT_OFFSET + i);
+            department.setDepartmentName("DEPT" + i);
+            departments.add(department);
+        }
+    }
+
+    @Benchmark
+    public long streamAll() {
+        return tm.required(() -> {
+            return employeeDao.streamAll(Stream::count);
+        });
+    }
+
+    @Benchmark
+    public int[] batchInsert() {
+        return tm.required(() -> {
+            int[] result = departmentDao.insert(departments);
+            tm.setRollbackOnly();
+            return result;
+        });
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.seasar.doma.it.AppConfig;
+import org.seasar.doma.it.dao.DepartmentDao;
+import org.seasar.doma.it.domain.Identity;
+import org.seasar.doma.it.entity.Department;
+import org.seasar.doma.jdbc.tx.TransactionManager;
+
+/**
+ * Writes departments of which every other one exists, by selecting each one
+ * and then batch inserting or updating, and by one batch upsert. Run it
+ * against H2 and HSQLDB with {@code -Purl}. Every invocation runs in a
+ * transaction that is rolled back.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UpsertBenchmark {
+
+    private static final int INSERT_OFFSET = 100000;
+
+    @Param({ "1000" })
+    public int batchSize;
+
+    private TransactionManager tm;
+
+    private DepartmentDao dao;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        AppConfig config = new BenchmarkContainer().start();
+        tm = config.getTransactionManager();
+        dao = DepartmentDao.get(config);
+        List<Department> existing = new ArrayList<>();
+        for (int i = 0; i < batchSize; i += 2) {
+            existing.add(createDepartment(i));
+        }
+        tm.required(() -> {
+            dao.insert(existing);
+        });
+    }
+
+    @Benchmark
+    public int selectThenInsertOrUpdate() {
+        return tm.required(() -> {
+            List<Department> inserts = new ArrayList<>();
+            List<Department> updates = new ArrayList<>();
+            for (int i = 0; i < batchSize; i++) {
+                Department department = createDepartment(i);
+                Department current = dao.selectById(INSERT_OFFSET + i);
+                if (current == null) {
+                    inserts.add(department);
+                } else {
+                    department.setVersion(current.getVersion());
+                    updates.add(department);
+                }
+            }
+            int count = dao.insert(inserts).length
+                    + dao.update(updates).length;
+            tm.setRollbackOnly();
+            return count;
+        });
+    }
+
+    @Benchmark
+    public int upsert() {
+        return tm.required(() -> {
+            List<Department> departments = new ArrayList<>(batchSize);
+            for (int i = 0; i < batchSize; i++) {
+                Department department = createDepartment(i);
+                if (i % 2 == 0) {
+                    department.setVersion(1);
+                }
+                departments.add(department);
+            }
+            int count = dao.upsert(departments).length;
+            tm.setRollbackOnly();
+            return count;
+        });
+    }
+
+    private Department createDepartment(int i) {
+        Department department = new Department();
+        department.setDepartmentId(new Identity<>(INSERT_OFFSET + i));
+        department.setDepartmentNo(INSERT_OFFSET + i);
+        department.setDepartmentName("DEPT" + i);
+        return department;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.dao;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * The result of a batch update or delete that suppresses optimistic lock
+ * exceptions, with a bitmap of the rows that lost the version check.
+ * <p>
+ * A row conflicts when its update count is {@code 0}. A count of
+ * {@link Statement#SUCCESS_NO_INFO} cannot tell, and is taken as a success.
+ * The bitmap takes one bit per row, so a retry can find the conflicting
+ * entities without scanning the update counts again.
+ * <p>
+ * The conflicting entities carry the version that failed the check, so they
+ * must be read again before they are retried; retrying them as they are
+ * fails again rather than overwriting the other update.
+ *
+ * @param <ENTITY>
+ *            the entity type
+ */
+public class BatchUpdateResult<ENTITY> {
+
+    private final List<ENTITY> entities;
+
+    private final BitSet conflicts;
+
+    private final long updateCount;
+
+    protected BatchUpdateResult(List<ENTITY> entities, BitSet conflicts,
+            long updateCount) {
+        this.entities = entities;
+        this.conflicts = conflicts;
+        this.updateCount = updateCount;
+    }
+
+    /**
+     * @param entities
+     *            the entities passed to the batch method
+     * @param counts
+     *            the update counts returned by the batch method
+     * @return the result
+     */
+    public static <ENTITY> BatchUpdateResult<ENTITY> of(
+            List<ENTITY> entities, int[] counts) {
+        Objects.requireNonNull(entities);
+        Objects.requireNonNull(counts);
+        if (entities.size() != counts.length) {
+            throw new IllegalArgumentException("entities: "
+                    + entities.size() + ", counts: " + counts.length);
+        }
+        BitSet conflicts = new BitSet(counts.length);
+        long updateCount = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                conflicts.set(i);
+            } else if (counts[i] > 0) {
+                updateCount += counts[i];
+            }
+        }
+        return new BatchUpdateResult<>(Collections.unmodifiableList(entities),
+                conflicts, updateCount);
+    }
+
+    public int getRows() {
+        return entities.size();
+    }
+
+    /**
+     * @return the sum of the positive update counts
+     */
+    public long getUpdateCount() {
+        return updateCount;
+    }
+
+    public boolean hasConflicts() {
+        return !conflicts.isEmpty();
+    }
+
+    public int getConflictCount() {
+        return conflicts.cardinality();
+    }
+
+    public boolean isConflict(int row) {
+        if (row < 0 || row >= entities.size()) {
+            throw new IndexOutOfBoundsException("row: " + row);
+        }
+        return conflicts.get(row);
+    }
+
+    /**
+     * @return a copy of the bitmap of conflicting rows
+     */
+    public BitSet getConflicts() {
+        return (BitSet) conflicts.clone();
+    }
+
+    /**
+     * @return the indexes of the conflicting rows in ascending order
+     */
+    public IntStream conflictIndexes() {
+        return conflicts.stream();
+    }
+
+    /**
+     * @return the conflicting entities in batch order, to be read again
+     *         before a retry
+     */
+    public List<ENTITY> getConflictingEntities() {
+        List<ENTITY> result = new ArrayList<>(conflicts.cardinality());
+        for (int i = conflicts.nextSetBit(0); i >= 0; i = conflicts
+                .nextSetBit(i + 1)) {
+            result.add(entities.get(i));
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchUpdateResult [rows=" + entities.size()
+                + ", updateCount=" + updateCount + ", conflicts="
+                + conflicts.cardinality() + "]";
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.dao;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The progress or the result of a {@link BatchWriter}.
+ */
+public class BatchWriteResult {
+
+    private final long rows;
+
+    private final long updateCount;
+
+    private final int chunks;
+
+    private final int commits;
+
+    private final long elapsedNanos;
+
+    public BatchWriteResult(long rows, long updateCount, int chunks,
+            int commits, long elapsedNanos) {
+        this.rows = rows;
+        this.updateCount = updateCount;
+        this.chunks = chunks;
+        this.commits = commits;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return the number of entities written
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the sum of the positive update counts of the batches
+     */
+    public long getUpdateCount() {
+        return updateCount;
+    }
+
+    /**
+     * @return the number of batches executed
+     */
+    public int getChunks() {
+        return chunks;
+    }
+
+    /**
+     * @return the number of transactions committed by the writer, which is
+     *         {@code 0} when the chunks run in the caller's transaction
+     */
+    public int getCommits() {
+        return commits;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getRowsPerSecond() {
+        if (elapsedNanos <= 0) {
+            return 0;
+        }
+        return rows * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchWriteResult [rows=" + rows + ", updateCount="
+                + updateCount + ", chunks=" + chunks + ", commits=" + commits
+                + ", elapsed="
+                + TimeUnit.NANOSECONDS.toMillis(elapsedNanos)
+                + "ms, rowsPerSecond=" + Math.round(getRowsPerSecond())
+                + "]";
+    }
+}
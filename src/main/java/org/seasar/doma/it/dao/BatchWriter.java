@@ -0,0 +1,184 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.dao;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.seasar.doma.jdbc.Config;
+import org.seasar.doma.jdbc.tx.TransactionManager;
+
+/**
+ * Writes an unbounded sequence of entities with a batch DAO method, such as
+ * a {@code @BatchInsert} or {@code @BatchUpdate} method, one chunk of
+ * {@code chunkSize} entities at a time, so that neither the entities nor a
+ * JDBC batch of all of them have to be held at once.
+ * <p>
+ * With a {@code commitInterval} of {@code 0}, the default, all chunks run
+ * in one {@link TransactionManager#required(Runnable)} call and so in the
+ * caller's transaction if there is one. Otherwise each {@code commitInterval}
+ * chunks run in their own {@link TransactionManager#requiresNew(Runnable)}
+ * call and are committed independently of the caller. When a chunk fails,
+ * the chunks committed before it stay committed.
+ * <p>
+ * The chunk list is reused, so the batch method must not keep it.
+ *
+ * @param <ENTITY>
+ *            the entity type
+ */
+public class BatchWriter<ENTITY> {
+
+    private final Config config;
+
+    private final Function<List<ENTITY>, int[]> batch;
+
+    private int chunkSize = 1000;
+
+    private int commitInterval;
+
+    private Consumer<BatchWriteResult> progressListener = result -> {
+    };
+
+    private List<ENTITY> chunk;
+
+    private long rows;
+
+    private long updateCount;
+
+    private int chunks;
+
+    private int commits;
+
+    private long start;
+
+    /**
+     * @param config
+     *            the config whose transaction manager is used
+     * @param batch
+     *            the batch DAO method, for example {@code dao::insert}
+     */
+    public BatchWriter(Config config, Function<List<ENTITY>, int[]> batch) {
+        this.config = Objects.requireNonNull(config);
+        this.batch = Objects.requireNonNull(batch);
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @return the number of chunks per committed transaction, or {@code 0}
+     */
+    public int getCommitInterval() {
+        return commitInterval;
+    }
+
+    public void setCommitInterval(int commitInterval) {
+        if (commitInterval < 0) {
+            throw new IllegalArgumentException("commitInterval: "
+                    + commitInterval);
+        }
+        this.commitInterval = commitInterval;
+    }
+
+    /**
+     * @param progressListener
+     *            the listener called after each chunk with the totals so far
+     */
+    public void setProgressListener(
+            Consumer<BatchWriteResult> progressListener) {
+        this.progressListener = Objects.requireNonNull(progressListener);
+    }
+
+    /**
+     * @param entities
+     *            the entities, closed when they are written or when writing
+     *            fails
+     * @return the totals
+     */
+    public BatchWriteResult write(Stream<ENTITY> entities) {
+        try (Stream<ENTITY> stream = entities) {
+            return write(stream.iterator());
+        }
+    }
+
+    public BatchWriteResult write(Iterator<ENTITY> entities) {
+        Objects.requireNonNull(entities);
+        chunk = new ArrayList<>(chunkSize);
+        rows = 0;
+        updateCount = 0;
+        chunks = 0;
+        commits = 0;
+        start = System.nanoTime();
+        TransactionManager tm = config.getTransactionManager();
+        if (commitInterval == 0) {
+            tm.required(() -> {
+                while (fill(entities)) {
+                    flush();
+                }
+            });
+        } else {
+            while (entities.hasNext()) {
+                tm.requiresNew(() -> {
+                    for (int i = 0; i < commitInterval && fill(entities); i++) {
+                        flush();
+                    }
+                });
+                commits++;
+            }
+        }
+        chunk = null;
+        return snapshot();
+    }
+
+    protected boolean fill(Iterator<ENTITY> entities) {
+        chunk.clear();
+        while (chunk.size() < chunkSize && entities.hasNext()) {
+            chunk.add(entities.next());
+        }
+        return !chunk.isEmpty();
+    }
+
+    protected void flush() {
+        int[] counts = batch.apply(chunk);
+        for (int count : counts) {
+            // SUCCESS_NO_INFO is negative and says nothing about the rows
+            if (count > 0) {
+                updateCount += count;
+            }
+        }
+        rows += chunk.size();
+        chunks++;
+        progressListener.accept(snapshot());
+    }
+
+    protected BatchWriteResult snapshot() {
+        return new BatchWriteResult(rows, updateCount, chunks, commits,
+                System.nanoTime() - start);
+    }
+}
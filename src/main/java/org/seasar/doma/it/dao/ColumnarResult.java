@@ -0,0 +1,308 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.dao;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * The selected columns of a query, each read into a growable primitive array
+ * with a bitmap of {@code NULL} rows.
+ * <p>
+ * Reading a row appends to the arrays without creating an entity, a map or
+ * a boxed value, so scans that aggregate a few numeric columns allocate
+ * only when an array grows. A decimal column with a scale is selected
+ * already scaled to an integer, as {@code SALARY * 100}, and read with
+ * {@code getLong} like any other integer column.
+ *
+ * @see ColumnarSelect
+ */
+public class ColumnarResult {
+
+    private final Map<String, Column> columns;
+
+    private final int rowCount;
+
+    public ColumnarResult(List<Column> columns, int rowCount) {
+        Map<String, Column> map = new LinkedHashMap<>();
+        for (Column column : columns) {
+            if (map.put(column.getName(), column) != null) {
+                throw new IllegalArgumentException("duplicate column: "
+                        + column.getName());
+            }
+        }
+        this.columns = Collections.unmodifiableMap(map);
+        this.rowCount = rowCount;
+    }
+
+    public static IntColumn intColumn(String name) {
+        return new IntColumn(name);
+    }
+
+    /**
+     * @param name
+     *            the column label
+     * @param scale
+     *            the number of fraction digits kept in the unscaled value
+     * @return the column
+     */
+    public static ScaledLongColumn scaledLongColumn(String name, int scale) {
+        return new ScaledLongColumn(name, scale);
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public IntColumn getIntColumn(String name) {
+        return (IntColumn) getColumn(name);
+    }
+
+    public ScaledLongColumn getScaledLongColumn(String name) {
+        return (ScaledLongColumn) getColumn(name);
+    }
+
+    protected Column getColumn(String name) {
+        Column column = columns.get(name);
+        if (column == null) {
+            throw new IllegalArgumentException("name: " + name);
+        }
+        return column;
+    }
+
+    /**
+     * A column of a {@link ColumnarResult}. A column passed to
+     * {@link ColumnarSelect} only names the column to read; every select
+     * reads into a new, empty column of the same kind, so the same columns
+     * can be passed again without touching an earlier result.
+     */
+    public abstract static class Column {
+
+        protected final String name;
+
+        protected final BitSet nulls = new BitSet();
+
+        protected int size;
+
+        protected Column(String name) {
+            if (name == null || name.isEmpty()) {
+                throw new IllegalArgumentException("name: " + name);
+            }
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean isNull(int row) {
+            checkRow(row);
+            return nulls.get(row);
+        }
+
+        public int getNullCount() {
+            return nulls.cardinality();
+        }
+
+        /**
+         * Appends the value of the current row.
+         *
+         * @param resultSet
+         *            the result set positioned on a row
+         * @param columnIndex
+         *            the index of this column in the result set
+         * @throws SQLException
+         *             if the value cannot be read
+         */
+        protected abstract void read(ResultSet resultSet, int columnIndex)
+                throws SQLException;
+
+        /**
+         * @return an empty column with the same name and kind
+         */
+        protected abstract Column newColumn();
+
+        protected void checkRow(int row) {
+            if (row < 0 || row >= size) {
+                throw new IndexOutOfBoundsException("row: " + row);
+            }
+        }
+
+        protected int newCapacity(int capacity) {
+            return Math.max(16, capacity + (capacity >> 1));
+        }
+    }
+
+    /**
+     * A column of {@code int} values.
+     */
+    public static class IntColumn extends Column {
+
+        protected int[] values = new int[0];
+
+        protected IntColumn(String name) {
+            super(name);
+        }
+
+        @Override
+        protected IntColumn newColumn() {
+            return new IntColumn(name);
+        }
+
+        /**
+         * @param row
+         *            the row index
+         * @return the value, {@code 0} for {@code NULL}
+         */
+        public int getInt(int row) {
+            checkRow(row);
+            return values[row];
+        }
+
+        /**
+         * @return the values that are not {@code NULL}
+         */
+        public IntStream stream() {
+            return IntStream.range(0, size).filter(i -> !nulls.get(i))
+                    .map(i -> values[i]);
+        }
+
+        public long sum() {
+            long sum = 0;
+            for (int i = 0; i < size; i++) {
+                sum += values[i];
+            }
+            return sum;
+        }
+
+        public int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+
+        @Override
+        protected void read(ResultSet resultSet, int columnIndex)
+                throws SQLException {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, newCapacity(size));
+            }
+            values[size] = resultSet.getInt(columnIndex);
+            if (resultSet.wasNull()) {
+                nulls.set(size);
+            }
+            size++;
+        }
+    }
+
+    /**
+     * A column of decimal values stored as {@code long} values scaled by
+     * {@code 10^scale}, so that {@code 2975.00} with a scale of {@code 2} is
+     * stored as {@code 297500}.
+     * <p>
+     * The query has to select the value already scaled, for example
+     * {@code SALARY * 100 as SALARY_CENTS} for a scale of {@code 2}; the
+     * scale is only used to turn the stored values back into decimals.
+     */
+    public static class ScaledLongColumn extends Column {
+
+        protected final int scale;
+
+        protected long[] values = new long[0];
+
+        protected ScaledLongColumn(String name, int scale) {
+            super(name);
+            if (scale < 0) {
+                throw new IllegalArgumentException("scale: " + scale);
+            }
+            this.scale = scale;
+        }
+
+        public int getScale() {
+            return scale;
+        }
+
+        @Override
+        protected ScaledLongColumn newColumn() {
+            return new ScaledLongColumn(name, scale);
+        }
+
+        /**
+         * @param row
+         *            the row index
+         * @return the unscaled value, {@code 0} for {@code NULL}
+         */
+        public long getUnscaled(int row) {
+            checkRow(row);
+            return values[row];
+        }
+
+        /**
+         * @param row
+         *            the row index
+         * @return the value, or {@code null} for {@code NULL}
+         */
+        public BigDecimal getDecimal(int row) {
+            checkRow(row);
+            return nulls.get(row) ? null : BigDecimal.valueOf(values[row],
+                    scale);
+        }
+
+        /**
+         * @return the unscaled values that are not {@code NULL}
+         */
+        public LongStream stream() {
+            return IntStream.range(0, size).filter(i -> !nulls.get(i))
+                    .mapToLong(i -> values[i]);
+        }
+
+        public BigDecimal sum() {
+            long sum = 0;
+            for (int i = 0; i < size; i++) {
+                sum = Math.addExact(sum, values[i]);
+            }
+            return BigDecimal.valueOf(sum, scale);
+        }
+
+        public long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+
+        @Override
+        protected void read(ResultSet resultSet, int columnIndex)
+                throws SQLException {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, newCapacity(size));
+            }
+            values[size] = resultSet.getLong(columnIndex);
+            if (resultSet.wasNull()) {
+                nulls.set(size);
+            }
+            size++;
+        }
+    }
+}
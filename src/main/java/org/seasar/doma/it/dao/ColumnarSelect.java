@@ -0,0 +1,81 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.seasar.doma.it.dao.ColumnarResult.Column;
+import org.seasar.doma.jdbc.command.ResultSetHandler;
+import org.seasar.doma.jdbc.command.ResultSetRowIndexConsumer;
+import org.seasar.doma.jdbc.query.SelectQuery;
+
+/**
+ * Reads a result set into a {@link ColumnarResult}. Columns are looked up by
+ * label once per result set.
+ *
+ * @see SqlFileSelects
+ */
+public class ColumnarSelect implements ResultSetHandler<ColumnarResult> {
+
+    private final List<Column> columns;
+
+    public ColumnarSelect(Column... columns) {
+        this(Arrays.asList(columns));
+    }
+
+    /**
+     * @param columns
+     *            the columns to read, which are not modified
+     */
+    public ColumnarSelect(List<Column> columns) {
+        if (columns.isEmpty()) {
+            throw new IllegalArgumentException("columns is empty");
+        }
+        this.columns = new ArrayList<>(columns);
+    }
+
+    @Override
+    public Supplier<ColumnarResult> handle(ResultSet resultSet,
+            SelectQuery query, ResultSetRowIndexConsumer consumer)
+            throws SQLException {
+        List<Column> columns = new ArrayList<>(this.columns.size());
+        int[] indexes = new int[this.columns.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            Column column = this.columns.get(i).newColumn();
+            columns.add(column);
+            indexes[i] = resultSet.findColumn(column.getName());
+        }
+        int rowCount = 0;
+        boolean next = resultSet.next();
+        // only the first call is reported, which is the one that Doma checks,
+        // so that reading a row does not box its index
+        consumer.accept(-1L, next);
+        while (next) {
+            for (int i = 0; i < indexes.length; i++) {
+                columns.get(i).read(resultSet, indexes[i]);
+            }
+            rowCount++;
+            next = resultSet.next();
+        }
+        ColumnarResult result = new ColumnarResult(columns, rowCount);
+        return () -> result;
+    }
+}
@@ -15,6 +15,7 @@
  */
 package org.seasar.doma.it.dao;
 
+import java.util.Comparator;
 import java.util.List;
 
 import org.seasar.doma.AccessLevel;
@@ -25,6 +26,7 @@ import org.seasar.doma.Insert;
 import org.seasar.doma.Select;
 import org.seasar.doma.Update;
 import org.seasar.doma.it.entity.CompKeyDepartment;
+import org.seasar.doma.jdbc.BatchOptimisticLockException;
 import org.seasar.doma.jdbc.Config;
 
 @Dao(accessLevel = AccessLevel.PACKAGE)
@@ -48,4 +50,56 @@ public interface CompKeyDepartmentDao {
 
     @BatchUpdate
     int[] update(List<CompKeyDepartment> entities);
+
+    /**
+     * Inserts the departments that do not exist and updates the ones whose
+     * version matches, with one {@code MERGE} or equivalent statement per
+     * department. A {@code null} version is set to {@code 0} first, so a new
+     * department that already exists fails the version check.
+     * <p>
+     * The counts are checked by {@link VersionedUpserts} rather than by Doma.
+     * On a conflict the versions are left as they were, as with Doma's
+     * check.
+     *
+     * @param entities
+     *            the departments
+     * @return the update counts, {@code 1} for each department
+     * @throws BatchOptimisticLockException
+     *             if the version of a department does not match
+     */
+    default int[] upsert(List<CompKeyDepartment> entities) {
+        Integer[] versions = new Integer[entities.size()];
+        for (int i = 0; i < versions.length; i++) {
+            CompKeyDepartment entity = entities.get(i);
+            if (entity.getVersion() == null) {
+                entity.setVersion(0);
+            }
+            versions[i] = entity.getVersion();
+        }
+        int[] counts = upsertBySqlFile(entities);
+        try {
+            return VersionedUpserts.checkCounts(Config.get(this),
+                    SqlFileSelects.getMethod(CompKeyDepartmentDao.class,
+                            "upsertBySqlFile", List.class), counts);
+        } catch (BatchOptimisticLockException e) {
+            // Doma has incremented the versions of the whole batch
+            for (int i = 0; i < versions.length; i++) {
+                entities.get(i).setVersion(versions[i]);
+            }
+            throw e;
+        }
+    }
+
+    @BatchUpdate(sqlFile = true, suppressOptimisticLockException = true)
+    int[] upsertBySqlFile(List<CompKeyDepartment> entity);
+
+    /**
+     * @return a writer that inserts departments in parallel key ranges with
+     *         {@link #insert(List)}
+     */
+    default ParallelBatchWriter<CompKeyDepartment> parallelInserter() {
+        return new ParallelBatchWriter<>(Config.get(this), this::insert,
+                Comparator.comparing(CompKeyDepartment::getDepartmentId1)
+                        .thenComparing(CompKeyDepartment::getDepartmentId2));
+    }
 }
@@ -24,6 +24,7 @@ import org.seasar.doma.Delete;
 import org.seasar.doma.Select;
 import org.seasar.doma.it.entity.CompKeyEmployee;
 import org.seasar.doma.jdbc.Config;
+import org.seasar.doma.jdbc.SelectOptions;
 
 @Dao(accessLevel = AccessLevel.PACKAGE)
 public interface CompKeyEmployeeDao {
@@ -35,9 +36,50 @@ public interface CompKeyEmployeeDao {
     @Select
     CompKeyEmployee selectById(Integer employeeId1, Integer employeeId2);
 
+    @Select
+    List<CompKeyEmployee> selectAfterId(Integer employeeId1,
+            Integer employeeId2, SelectOptions options);
+
+    /**
+     * Selects a page ordered by EMPLOYEE_ID1 and EMPLOYEE_ID2.
+     *
+     * @param token
+     *            the token of the previous page, or {@code null} for the
+     *            first page
+     * @param size
+     *            the page size
+     * @return the page
+     */
+    default KeysetPage<CompKeyEmployee> selectPage(String token, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size: " + size);
+        }
+        int[] keys = KeysetToken.decode("EMPLOYEE_ID1,EMPLOYEE_ID2", 2, token);
+        List<CompKeyEmployee> rows = keys == null ? selectAfterId(null, null,
+                SelectOptions.get().limit(size + 1)) : selectAfterId(keys[0],
+                keys[1], SelectOptions.get().limit(size + 1));
+        return KeysetPage.of(rows, size, e -> KeysetToken.encode(
+                "EMPLOYEE_ID1,EMPLOYEE_ID2", e.getEmployeeId1(),
+                e.getEmployeeId2()));
+    }
+
     @Delete
     int delete(CompKeyEmployee entity);
 
     @BatchDelete
     int[] delete(List<CompKeyEmployee> entities);
+
+    @BatchDelete(suppressOptimisticLockException = true)
+    int[] delete_suppressOptimisticLockException(
+            List<CompKeyEmployee> entities);
+
+    /**
+     * @return a deleter that deletes employees with one statement per chunk
+     *         of keys
+     */
+    default SetBasedDeleter<CompKeyEmployee> setBasedDeleter() {
+        return new SetBasedDeleter<>(Config.get(this),
+                CompKeyEmployee.class,
+                this::delete_suppressOptimisticLockException);
+    }
 }
@@ -15,6 +15,7 @@
  */
 package org.seasar.doma.it.dao;
 
+import java.util.Comparator;
 import java.util.List;
 
 import org.seasar.doma.AccessLevel;
@@ -27,6 +28,7 @@ import org.seasar.doma.Update;
 import org.seasar.doma.it.domain.Identity;
 import org.seasar.doma.it.domain.Location;
 import org.seasar.doma.it.entity.Department;
+import org.seasar.doma.jdbc.BatchOptimisticLockException;
 import org.seasar.doma.jdbc.Config;
 
 @Dao(accessLevel = AccessLevel.PACKAGE)
@@ -39,6 +41,9 @@ public interface DepartmentDao {
     @Select
     Department selectById(Integer departmentId);
 
+    @Select
+    List<Department> selectByIds(List<Integer> departmentIds);
+
     @Insert
     int insert(Department entity);
 
@@ -95,4 +100,96 @@ public interface DepartmentDao {
 
     @BatchUpdate(suppressOptimisticLockException = true)
     int[] update_suppressOptimisticLockException(List<Department> entity);
+
+    /**
+     * Inserts the departments that do not exist and updates the ones whose
+     * version matches, with one {@code MERGE} or equivalent statement per
+     * department. A {@code null} version is set to {@code 0} first, so a new
+     * department that already exists fails the version check.
+     * <p>
+     * The counts are checked by {@link VersionedUpserts} rather than by Doma.
+     * On a conflict the versions are left as they were, as with Doma's
+     * check.
+     *
+     * @param entities
+     *            the departments
+     * @return the update counts, {@code 1} for each department
+     * @throws BatchOptimisticLockException
+     *             if the version of a department does not match
+     */
+    default int[] upsert(List<Department> entities) {
+        Integer[] versions = new Integer[entities.size()];
+        for (int i = 0; i < versions.length; i++) {
+            Department entity = entities.get(i);
+            if (entity.getVersion() == null) {
+                entity.setVersion(0);
+            }
+            versions[i] = entity.getVersion();
+        }
+        int[] counts = upsertBySqlFile(entities);
+        try {
+            return VersionedUpserts.checkCounts(Config.get(this),
+                    SqlFileSelects.getMethod(DepartmentDao.class,
+                            "upsertBySqlFile", List.class), counts);
+        } catch (BatchOptimisticLockException e) {
+            // Doma has incremented the versions of the whole batch
+            for (int i = 0; i < versions.length; i++) {
+                entities.get(i).setVersion(versions[i]);
+            }
+            throw e;
+        }
+    }
+
+    @BatchUpdate(sqlFile = true, suppressOptimisticLockException = true)
+    int[] upsertBySqlFile(List<Department> entity);
+
+    /**
+     * Updates the departments and reports the ones whose version did not
+     * match instead of throwing.
+     * <p>
+     * Doma increments the version of every entity of the batch, so the
+     * conflicting departments get their version before the update back.
+     * Retrying them as they are fails again until they are read anew.
+     *
+     * @param entities
+     *            the departments
+     * @return the result with the conflicting departments
+     */
+    default BatchUpdateResult<Department> updateReportingConflicts(
+            List<Department> entities) {
+        Integer[] versions = new Integer[entities.size()];
+        for (int i = 0; i < versions.length; i++) {
+            versions[i] = entities.get(i).getVersion();
+        }
+        BatchUpdateResult<Department> result = BatchUpdateResult.of(
+                entities, update_suppressOptimisticLockException(entities));
+        result.conflictIndexes().forEach(
+                i -> entities.get(i).setVersion(versions[i]));
+        return result;
+    }
+
+    /**
+     * @return a writer that inserts departments in chunks with
+     *         {@link #insert(List)}
+     */
+    default BatchWriter<Department> batchInserter() {
+        return new BatchWriter<>(Config.get(this), this::insert);
+    }
+
+    /**
+     * @return a writer that updates departments in chunks with
+     *         {@link #update(List)}
+     */
+    default BatchWriter<Department> batchUpdater() {
+        return new BatchWriter<>(Config.get(this), this::update);
+    }
+
+    /**
+     * @return a writer that inserts departments in parallel key ranges with
+     *         {@link #insert(List)}
+     */
+    default ParallelBatchWriter<Department> parallelInserter() {
+        return new ParallelBatchWriter<>(Config.get(this), this::insert,
+                Comparator.comparing(d -> d.getDepartmentId().getValue()));
+    }
 }
@@ -15,25 +15,35 @@
  */
 package org.seasar.doma.it.dao;
 
+import java.io.OutputStream;
+import java.lang.reflect.Method;
 import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.stream.Collector;
 import java.util.stream.Stream;
 
 import org.seasar.doma.AccessLevel;
 import org.seasar.doma.BatchDelete;
+import org.seasar.doma.BatchInsert;
 import org.seasar.doma.Dao;
 import org.seasar.doma.Delete;
 import org.seasar.doma.MapKeyNamingType;
 import org.seasar.doma.Select;
 import org.seasar.doma.SelectType;
 import org.seasar.doma.Suppress;
+import org.seasar.doma.it.dao.PartitionedSpliterator.PartitionReader;
+import org.seasar.doma.it.domain.Salary;
+import org.seasar.doma.it.domain.SalaryCents;
 import org.seasar.doma.it.entity.Employee;
 import org.seasar.doma.jdbc.Config;
 import org.seasar.doma.jdbc.SelectOptions;
 import org.seasar.doma.jdbc.builder.SelectBuilder;
+import org.seasar.doma.jdbc.tx.TransactionManager;
 import org.seasar.doma.message.Message;
 
 @Dao(accessLevel = AccessLevel.PACKAGE)
@@ -105,12 +115,129 @@ public interface EmployeeDao {
     <R> R streamAllSalary(Function<Stream<BigDecimal>, R> mapper,
             SelectOptions options);
 
+    @Select(strategy = SelectType.STREAM)
+    <R> R streamAllSalaryDomain(Function<Stream<Salary>, R> mapper);
+
+    /**
+     * Reads the salaries as cents, selected as {@code SALARY * 100}.
+     */
+    @Select(strategy = SelectType.STREAM)
+    <R> R streamAllSalaryCents(Function<Stream<SalaryCents>, R> mapper);
+
+    @Select
+    List<Employee> selectBySalaryCents(SalaryCents salary);
+
     @Select(strategy = SelectType.STREAM)
     <R> R streamBySalary(BigDecimal salary, Function<Stream<Employee>, R> mapper);
 
+    @Select(strategy = SelectType.STREAM)
+    <R> R streamByEmployeeIdRange(Long fromId, Long toId,
+            Function<Stream<Employee>, R> mapper);
+
+    @Select(mapKeyNaming = MapKeyNamingType.CAMEL_CASE)
+    Map<String, Object> selectEmployeeIdRange();
+
+    /**
+     * Streams all employees by splitting EMPLOYEE_ID into ranges that are
+     * read in parallel, each in its own transaction on its own connection.
+     * The ranges are read on {@code executor} and the returned stream is
+     * parallel. Because every range has its own transaction, rows written
+     * by the caller's transaction are not visible.
+     *
+     * @param partitions
+     *            the number of EMPLOYEE_ID ranges
+     * @param prefetch
+     *            the number of rows buffered per range
+     * @param executor
+     *            the executor that reads the ranges. Its readers block until
+     *            the stream consumes their rows, so it must not be
+     *            {@link java.util.concurrent.ForkJoinPool#commonPool()} or
+     *            the pool running the caller, which also run the stream.
+     * @param mapper
+     *            the function applied to the stream
+     * @return the result of the mapper
+     * @throws IllegalArgumentException
+     *             if {@code executor} is one of those pools
+     */
+    default <R> R streamAllPartitioned(int partitions, int prefetch,
+            Executor executor, Function<Stream<Employee>, R> mapper) {
+        TransactionManager tm = Config.get(this).getTransactionManager();
+        Map<String, Object> range = tm.required(this::selectEmployeeIdRange);
+        Number min = (Number) range.get("minId");
+        Number max = (Number) range.get("maxId");
+        if (min == null || max == null) {
+            return mapper.apply(Stream.empty());
+        }
+        PartitionReader<Employee> reader = (from, to, sink) -> {
+            tm.required(() -> {
+                streamByEmployeeIdRange(from, to, stream -> {
+                    stream.forEach(sink);
+                    return null;
+                });
+            });
+        };
+        try (Stream<Employee> stream = PartitionedSpliterator.stream(
+                min.longValue(), max.longValue() + 1, partitions, prefetch,
+                executor, reader, true)) {
+            return mapper.apply(stream);
+        }
+    }
+
     @Select(strategy = SelectType.COLLECT)
     <R> R collectAll(Collector<Employee, ?, R> collector);
 
+    /**
+     * Reads the numeric columns of all employees into primitive arrays, for
+     * example {@code selectAllColumnar(Arrays.asList(
+     * ColumnarResult.intColumn("EMPLOYEE_ID"),
+     * ColumnarResult.scaledLongColumn("SALARY_CENTS", 2)))}.
+     *
+     * @param columns
+     *            the columns to read, any of EMPLOYEE_ID, EMPLOYEE_NO,
+     *            MANAGER_ID, DEPARTMENT_ID, ADDRESS_ID, VERSION and
+     *            SALARY_CENTS, the salary selected as {@code SALARY * 100}
+     * @return the columns in EMPLOYEE_ID order
+     */
+    default ColumnarResult selectAllColumnar(
+            List<ColumnarResult.Column> columns) {
+        Method method = SqlFileSelects.getMethod(EmployeeDao.class,
+                "selectAllColumnar", List.class);
+        return SqlFileSelects.execute(Config.get(this), method,
+                new ColumnarSelect(columns), columns);
+    }
+
+    /**
+     * Writes all employees in EMPLOYEE_ID order to a channel, without
+     * creating entities.
+     *
+     * @param channel
+     *            the channel, which is not closed
+     * @param options
+     *            the format, charset and flush size
+     * @return the number of rows and bytes written
+     */
+    default ExportResult exportAll(WritableByteChannel channel,
+            ExportOptions options) {
+        Method method = SqlFileSelects.getMethod(EmployeeDao.class,
+                "exportAll", WritableByteChannel.class, ExportOptions.class);
+        return SqlFileSelects.execute(Config.get(this), method,
+                new ResultSetExporter(channel, options), channel, options);
+    }
+
+    /**
+     * Writes all employees to a stream.
+     *
+     * @param out
+     *            the stream, which is neither flushed nor closed
+     * @param options
+     *            the format, charset and flush size
+     * @return the number of rows and bytes written
+     * @see #exportAll(WritableByteChannel, ExportOptions)
+     */
+    default ExportResult exportAll(OutputStream out, ExportOptions options) {
+        return exportAll(Channels.newChannel(out), options);
+    }
+
     @Select
     @Suppress(messages = { Message.DOMA4274 })
     Stream<Employee> streamAll();
@@ -123,6 +250,31 @@ public interface EmployeeDao {
     @Suppress(messages = { Message.DOMA4274 })
     Stream<Employee> streamBySalary(BigDecimal salary);
 
+    @Select
+    List<Employee> selectAfterEmployeeId(Integer employeeId,
+            SelectOptions options);
+
+    /**
+     * Selects a page ordered by EMPLOYEE_ID.
+     *
+     * @param token
+     *            the token of the previous page, or {@code null} for the
+     *            first page
+     * @param size
+     *            the page size
+     * @return the page
+     */
+    default KeysetPage<Employee> selectPage(String token, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size: " + size);
+        }
+        int[] keys = KeysetToken.decode("EMPLOYEE_ID", 1, token);
+        List<Employee> rows = selectAfterEmployeeId(keys == null ? null
+                : keys[0], SelectOptions.get().limit(size + 1));
+        return KeysetPage.of(rows, size,
+                e -> KeysetToken.encode("EMPLOYEE_ID", e.getEmployeeId()));
+    }
+
     default List<Employee> selectWithBuilder() {
         Config config = Config.get(this);
         SelectBuilder builder = SelectBuilder.newInstance(config);
@@ -137,6 +289,9 @@ public interface EmployeeDao {
         return builder.streamEntity(Employee.class);
     }
 
+    @BatchInsert
+    int[] insert(List<Employee> entities);
+
     @Delete
     int delete(Employee entity);
 
@@ -160,4 +315,14 @@ public interface EmployeeDao {
 
     @BatchDelete(sqlFile = true)
     int[] deleteBySqlFile(List<Employee> entity);
+
+    /**
+     * @return a deleter that deletes employees with one statement per chunk
+     *         of keys
+     */
+    default SetBasedDeleter<Employee> setBasedDeleter() {
+        return new SetBasedDeleter<>(Config.get(this),
+                Employee.class,
+                this::delete_suppressOptimisticLockException);
+    }
 }
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.dao;
+
+/**
+ * The output formats of {@link ResultSetExporter}.
+ */
+public enum ExportFormat {
+
+    /**
+     * RFC 4180 comma-separated values with a header line and CRLF line
+     * endings. {@code NULL} is written as an empty field.
+     */
+    CSV,
+
+    /**
+     * One JSON object per line, separated by LF. Numbers and booleans are
+     * written unquoted and {@code NULL} as {@code null}.
+     */
+    NDJSON
+}
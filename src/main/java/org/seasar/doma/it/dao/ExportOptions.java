@@ -0,0 +1,107 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.dao;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+import org.seasar.doma.MapKeyNamingType;
+
+/**
+ * The options of {@link ResultSetExporter}.
+ */
+public class ExportOptions {
+
+    public static final int DEFAULT_FLUSH_SIZE = 64 * 1024;
+
+    private final ExportFormat format;
+
+    private final Charset charset;
+
+    private final int flushSize;
+
+    private final MapKeyNamingType keyNaming;
+
+    public ExportOptions(ExportFormat format, Charset charset, int flushSize,
+            MapKeyNamingType keyNaming) {
+        if (flushSize < 1) {
+            throw new IllegalArgumentException("flushSize: " + flushSize);
+        }
+        this.format = Objects.requireNonNull(format);
+        this.charset = Objects.requireNonNull(charset);
+        this.flushSize = flushSize;
+        this.keyNaming = Objects.requireNonNull(keyNaming);
+    }
+
+    /**
+     * @return UTF-8 CSV with the column labels as they are
+     */
+    public static ExportOptions csv() {
+        return new ExportOptions(ExportFormat.CSV, StandardCharsets.UTF_8,
+                DEFAULT_FLUSH_SIZE, MapKeyNamingType.NONE);
+    }
+
+    /**
+     * @return UTF-8 NDJSON with the column labels as they are
+     */
+    public static ExportOptions ndjson() {
+        return new ExportOptions(ExportFormat.NDJSON, StandardCharsets.UTF_8,
+                DEFAULT_FLUSH_SIZE, MapKeyNamingType.NONE);
+    }
+
+    public ExportFormat getFormat() {
+        return format;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * @return the number of encoded bytes buffered before they are written
+     */
+    public int getFlushSize() {
+        return flushSize;
+    }
+
+    /**
+     * @return the naming applied to the column labels of the header or the
+     *         JSON keys
+     */
+    public MapKeyNamingType getKeyNaming() {
+        return keyNaming;
+    }
+
+    public ExportOptions withCharset(Charset charset) {
+        return new ExportOptions(format, charset, flushSize, keyNaming);
+    }
+
+    public ExportOptions withFlushSize(int flushSize) {
+        return new ExportOptions(format, charset, flushSize, keyNaming);
+    }
+
+    public ExportOptions withKeyNaming(MapKeyNamingType keyNaming) {
+        return new ExportOptions(format, charset, flushSize, keyNaming);
+    }
+
+    @Override
+    public String toString() {
+        return "ExportOptions [format=" + format + ", charset=" + charset
+                + ", flushSize=" + flushSize + ", keyNaming=" + keyNaming
+                + "]";
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.dao;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The result of {@link ResultSetExporter}.
+ */
+public class ExportResult {
+
+    private final long rows;
+
+    private final long bytes;
+
+    private final long elapsedNanos;
+
+    public ExportResult(long rows, long bytes, long elapsedNanos) {
+        this.rows = rows;
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return the number of rows written, not counting a header
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the number of bytes written, including a header
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return the time from the first read to the last write
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getRowsPerSecond() {
+        if (elapsedNanos <= 0) {
+            return 0;
+        }
+        return rows * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "ExportResult [rows=" + rows + ", bytes=" + bytes
+                + ", elapsed=" + TimeUnit.NANOSECONDS.toMillis(elapsedNanos)
+                + "ms, rowsPerSecond=" + Math.round(getRowsPerSecond())
+                + "]";
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.dao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A page of a keyset (seek) pagination.
+ * <p>
+ * Unlike {@code SelectOptions.offset}, the next page is located by the key of
+ * the last row, so reading a deep page costs the same as reading the first
+ * one. Pass {@link #getNextToken()} to the DAO to read the next page.
+ *
+ * @param <ENTITY>
+ *            the entity type
+ */
+public class KeysetPage<ENTITY> {
+
+    private final List<ENTITY> items;
+
+    private final String nextToken;
+
+    public KeysetPage(List<ENTITY> items, String nextToken) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextToken = nextToken;
+    }
+
+    /**
+     * Creates a page from the rows selected with a limit of {@code size + 1}.
+     *
+     * @param rows
+     *            the selected rows
+     * @param size
+     *            the page size
+     * @param tokenMapper
+     *            the function that creates the token from the last row of
+     *            the page
+     * @return the page
+     */
+    public static <ENTITY> KeysetPage<ENTITY> of(List<ENTITY> rows, int size,
+            Function<ENTITY, String> tokenMapper) {
+        if (rows.size() <= size) {
+            return new KeysetPage<>(rows, null);
+        }
+        List<ENTITY> items = new ArrayList<>(rows.subList(0, size));
+        return new KeysetPage<>(items, tokenMapper.apply(items.get(size - 1)));
+    }
+
+    public List<ENTITY> getItems() {
+        return items;
+    }
+
+    /**
+     * @return the token of the next page, or {@code null} if this is the last
+     *         page
+     */
+    public String getNextToken() {
+        return nextToken;
+    }
+
+    public boolean hasNext() {
+        return nextToken != null;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.dao;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encodes the key of the last row of a {@link KeysetPage} into an opaque,
+ * URL-safe continuation token.
+ * <p>
+ * The token carries the name of the ordering it belongs to, so a token
+ * issued for one query is rejected by another.
+ */
+public final class KeysetToken {
+
+    private KeysetToken() {
+    }
+
+    public static String encode(String ordering, int... keys) {
+        StringBuilder buf = new StringBuilder(ordering);
+        for (int key : keys) {
+            buf.append(':').append(key);
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(buf.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token.
+     *
+     * @param ordering
+     *            the expected ordering name
+     * @param arity
+     *            the expected number of keys
+     * @param token
+     *            the token, may be {@code null}
+     * @return the keys, or {@code null} if the token is {@code null}
+     * @throws IllegalArgumentException
+     *             if the token is malformed or belongs to another ordering
+     */
+    public static int[] decode(String ordering, int arity, String token) {
+        if (token == null) {
+            return null;
+        }
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(token),
+                    StandardCharsets.UTF_8).split(":");
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("token: " + token, e);
+        }
+        if (parts.length != arity + 1 || !parts[0].equals(ordering)) {
+            throw new IllegalArgumentException("token: " + token);
+        }
+        int[] keys = new int[arity];
+        try {
+            for (int i = 0; i < arity; i++) {
+                keys[i] = Integer.parseInt(parts[i + 1]);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("token: " + token, e);
+        }
+        return keys;
+    }
+}
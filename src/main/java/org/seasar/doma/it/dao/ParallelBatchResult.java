@@ -0,0 +1,178 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.dao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The result of a {@link ParallelBatchWriter}, with one {@link Partition}
+ * per key range in key order.
+ *
+ * @param <ENTITY>
+ *            the entity type
+ */
+public class ParallelBatchResult<ENTITY> {
+
+    private final List<Partition<ENTITY>> partitions;
+
+    private final long elapsedNanos;
+
+    public ParallelBatchResult(List<Partition<ENTITY>> partitions,
+            long elapsedNanos) {
+        this.partitions = Collections.unmodifiableList(new ArrayList<>(
+                partitions));
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public List<Partition<ENTITY>> getPartitions() {
+        return partitions;
+    }
+
+    public List<Partition<ENTITY>> getFailures() {
+        List<Partition<ENTITY>> failures = new ArrayList<>();
+        for (Partition<ENTITY> partition : partitions) {
+            if (!partition.isSucceeded()) {
+                failures.add(partition);
+            }
+        }
+        return failures;
+    }
+
+    public boolean isSucceeded() {
+        return getFailures().isEmpty();
+    }
+
+    /**
+     * @return the entities of the failed partitions, to be written again
+     */
+    public List<ENTITY> getFailedEntities() {
+        List<ENTITY> entities = new ArrayList<>();
+        for (Partition<ENTITY> partition : getFailures()) {
+            entities.addAll(partition.getEntities());
+        }
+        return entities;
+    }
+
+    /**
+     * @return the number of entities written by the committed partitions
+     */
+    public long getRows() {
+        long rows = 0;
+        for (Partition<ENTITY> partition : partitions) {
+            if (partition.isSucceeded()) {
+                rows += partition.getResult().getRows();
+            }
+        }
+        return rows;
+    }
+
+    public long getUpdateCount() {
+        long updateCount = 0;
+        for (Partition<ENTITY> partition : partitions) {
+            if (partition.isSucceeded()) {
+                updateCount += partition.getResult().getUpdateCount();
+            }
+        }
+        return updateCount;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getRowsPerSecond() {
+        if (elapsedNanos <= 0) {
+            return 0;
+        }
+        return getRows() * (double) TimeUnit.SECONDS.toNanos(1)
+                / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "ParallelBatchResult [partitions=" + partitions.size()
+                + ", failures=" + getFailures().size() + ", rows="
+                + getRows() + ", elapsed="
+                + TimeUnit.NANOSECONDS.toMillis(elapsedNanos)
+                + "ms, rowsPerSecond=" + Math.round(getRowsPerSecond())
+                + "]";
+    }
+
+    /**
+     * One key range, written in its own transaction.
+     *
+     * @param <ENTITY>
+     *            the entity type
+     */
+    public static class Partition<ENTITY> {
+
+        private final int index;
+
+        private final List<ENTITY> entities;
+
+        private final BatchWriteResult result;
+
+        private final RuntimeException failure;
+
+        public Partition(int index, List<ENTITY> entities,
+                BatchWriteResult result, RuntimeException failure) {
+            this.index = index;
+            this.entities = Collections.unmodifiableList(entities);
+            this.result = result;
+            this.failure = failure;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * @return the entities of this key range in key order
+         */
+        public List<ENTITY> getEntities() {
+            return entities;
+        }
+
+        public boolean isSucceeded() {
+            return failure == null;
+        }
+
+        /**
+         * @return the result, or {@code null} if the partition failed
+         */
+        public BatchWriteResult getResult() {
+            return result;
+        }
+
+        /**
+         * @return the exception that rolled the partition back, or
+         *         {@code null}
+         */
+        public RuntimeException getFailure() {
+            return failure;
+        }
+
+        @Override
+        public String toString() {
+            return "Partition [index=" + index + ", entities="
+                    + entities.size() + ", result=" + result + ", failure="
+                    + failure + "]";
+        }
+    }
+}
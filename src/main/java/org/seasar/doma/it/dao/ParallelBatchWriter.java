@@ -0,0 +1,194 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.dao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.seasar.doma.it.dao.ParallelBatchResult.Partition;
+import org.seasar.doma.jdbc.Config;
+import org.seasar.doma.jdbc.tx.TransactionManager;
+
+/**
+ * Writes a list of entities with a batch DAO method on several connections
+ * at once.
+ * <p>
+ * The entities are sorted by their primary key and split into
+ * {@code partitions} contiguous key ranges of about the same size, so that
+ * the partitions touch disjoint index pages. Each partition is written by a
+ * {@link BatchWriter} in its own
+ * {@link TransactionManager#requiresNew(Runnable)} call, and so on its own
+ * pooled connection, on a bounded executor. A partition that fails is
+ * rolled back and reported in the {@link ParallelBatchResult}; the other
+ * partitions are committed regardless.
+ * <p>
+ * The partitions are committed independently of each other and of the
+ * caller, so the caller should not hold locks on the table.
+ *
+ * @param <ENTITY>
+ *            the entity type
+ */
+public class ParallelBatchWriter<ENTITY> {
+
+    private final Config config;
+
+    private final Function<List<ENTITY>, int[]> batch;
+
+    private final Comparator<? super ENTITY> keyOrder;
+
+    private int partitions = 4;
+
+    private int chunkSize = 1000;
+
+    /**
+     * @param config
+     *            the config whose transaction manager is used
+     * @param batch
+     *            the batch DAO method, for example {@code dao::insert}
+     * @param keyOrder
+     *            the order of the primary keys
+     */
+    public ParallelBatchWriter(Config config,
+            Function<List<ENTITY>, int[]> batch,
+            Comparator<? super ENTITY> keyOrder) {
+        this.config = Objects.requireNonNull(config);
+        this.batch = Objects.requireNonNull(batch);
+        this.keyOrder = Objects.requireNonNull(keyOrder);
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    /**
+     * @param partitions
+     *            the number of key ranges, which is also the number of
+     *            threads of the executor created by {@link #write(List)}
+     */
+    public void setPartitions(int partitions) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("partitions: " + partitions);
+        }
+        this.partitions = partitions;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * @param chunkSize
+     *            the chunk size of each partition
+     * @see BatchWriter#setChunkSize(int)
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Writes the entities on a new executor of {@code partitions} threads,
+     * which is shut down afterwards.
+     *
+     * @param entities
+     *            the entities
+     * @return the result
+     */
+    public ParallelBatchResult<ENTITY> write(List<ENTITY> entities) {
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(partitions,
+                r -> {
+                    Thread thread = new Thread(r,
+                            "ParallelBatchWriter-"
+                                    + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        try {
+            return write(entities, executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Writes the entities on the given executor. The executor bounds the
+     * number of connections in use; it should not run tasks in the calling
+     * thread while that thread holds locks on the table.
+     *
+     * @param entities
+     *            the entities
+     * @param executor
+     *            the executor
+     * @return the result
+     */
+    public ParallelBatchResult<ENTITY> write(List<ENTITY> entities,
+            Executor executor) {
+        Objects.requireNonNull(entities);
+        Objects.requireNonNull(executor);
+        long start = System.nanoTime();
+        List<CompletableFuture<Partition<ENTITY>>> futures = new ArrayList<>();
+        int index = 0;
+        for (List<ENTITY> range : split(entities)) {
+            int partitionIndex = index++;
+            futures.add(CompletableFuture.supplyAsync(
+                    () -> writePartition(partitionIndex, range), executor));
+        }
+        List<Partition<ENTITY>> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<Partition<ENTITY>> future : futures) {
+            results.add(future.join());
+        }
+        return new ParallelBatchResult<>(results, System.nanoTime() - start);
+    }
+
+    protected List<List<ENTITY>> split(List<ENTITY> entities) {
+        if (entities.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<ENTITY> sorted = new ArrayList<>(entities);
+        sorted.sort(keyOrder);
+        int count = Math.min(partitions, sorted.size());
+        List<List<ENTITY>> ranges = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ranges.add(sorted.subList(sorted.size() * i / count,
+                    sorted.size() * (i + 1) / count));
+        }
+        return ranges;
+    }
+
+    protected Partition<ENTITY> writePartition(int index, List<ENTITY> range) {
+        BatchWriter<ENTITY> writer = new BatchWriter<>(config, batch);
+        writer.setChunkSize(chunkSize);
+        try {
+            BatchWriteResult result = config.getTransactionManager()
+                    .requiresNew(() -> writer.write(range.iterator()));
+            return new Partition<>(index, range, result, null);
+        } catch (RuntimeException e) {
+            return new Partition<>(index, range, null, e);
+        }
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A {@link Spliterator} over the union of key-range partitions, each read by
+ * its own task on an {@link Executor}.
+ * <p>
+ * A partition is read into a bounded queue of {@code prefetch} elements, so
+ * a slow consumer blocks the reader instead of buffering the partition. A
+ * reader starts when its partition is first consumed, and
+ * {@link #trySplit()} hands whole partitions to other threads, so a parallel
+ * stream drains as many partitions at once as it has workers. The elements
+ * of a partition keep the order of its query, and partitions follow each
+ * other in key order.
+ * <p>
+ * Close the stream to stop readers that are still running after a
+ * short-circuiting operation.
+ * <p>
+ * Readers block while their queue is full, and consumers block while it is
+ * empty. A parallel stream must therefore not read its partitions on the
+ * {@link ForkJoinPool} that runs the stream: readers queued behind blocked
+ * consumers would never start. Such executors are rejected.
+ *
+ * @param <T>
+ *            the element type
+ */
+public class PartitionedSpliterator<T> implements Spliterator<T> {
+
+    private static final Object END = new Object();
+
+    private final List<Partition<T>> partitions;
+
+    private int index;
+
+    protected PartitionedSpliterator(List<Partition<T>> partitions) {
+        this.partitions = partitions;
+    }
+
+    /**
+     * Creates a stream over the range {@code [from, to)} split into
+     * partitions of equal width.
+     *
+     * @param from
+     *            the lowest key, inclusive
+     * @param to
+     *            the highest key, exclusive
+     * @param partitionCount
+     *            the number of partitions
+     * @param prefetch
+     *            the number of elements buffered per partition
+     * @param executor
+     *            the executor that runs the readers, not the common pool or
+     *            the pool of the caller when {@code parallel} is true
+     * @param reader
+     *            the reader of a partition
+     * @param parallel
+     *            whether the stream is parallel
+     * @return the stream
+     * @throws IllegalArgumentException
+     *             if {@code parallel} is true and {@code executor} is a pool
+     *             that can run the stream
+     */
+    public static <T> Stream<T> stream(long from, long to, int partitionCount,
+            int prefetch, Executor executor, PartitionReader<T> reader,
+            boolean parallel) {
+        if (partitionCount < 1) {
+            throw new IllegalArgumentException("partitionCount: "
+                    + partitionCount);
+        }
+        if (prefetch < 1) {
+            throw new IllegalArgumentException("prefetch: " + prefetch);
+        }
+        Objects.requireNonNull(executor);
+        Objects.requireNonNull(reader);
+        if (parallel && (executor == ForkJoinPool.commonPool()
+                || executor == ForkJoinTask.getPool())) {
+            throw new IllegalArgumentException(
+                    "executor: the pool of a parallel stream can deadlock");
+        }
+        Cancellation cancellation = new Cancellation();
+        List<Partition<T>> partitions = new ArrayList<>(partitionCount);
+        long width = Math.max(1, (to - from + partitionCount - 1)
+                / partitionCount);
+        for (long start = from; start < to; start += width) {
+            partitions.add(new Partition<>(start, Math.min(to, start + width),
+                    prefetch, executor, reader, cancellation));
+        }
+        return StreamSupport.stream(new PartitionedSpliterator<>(partitions),
+                parallel).onClose(cancellation::cancel);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        while (index < partitions.size()) {
+            if (partitions.get(index).tryAdvance(action)) {
+                return true;
+            }
+            index++;
+        }
+        return false;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+        while (index < partitions.size()) {
+            while (partitions.get(index).tryAdvance(action)) {
+            }
+            index++;
+        }
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        int remaining = partitions.size() - index;
+        if (remaining < 2) {
+            return null;
+        }
+        int mid = index + remaining / 2;
+        Spliterator<T> prefix = new PartitionedSpliterator<>(
+                partitions.subList(index, mid));
+        index = mid;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL;
+    }
+
+    /**
+     * Reads the elements whose keys are in {@code [from, to)}.
+     *
+     * @param <T>
+     *            the element type
+     */
+    @FunctionalInterface
+    public interface PartitionReader<T> {
+
+        void read(long from, long to, Consumer<T> sink);
+    }
+
+    protected static class Cancellation {
+
+        private volatile boolean cancelled;
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    protected static class Partition<T> {
+
+        protected final long from;
+
+        protected final long to;
+
+        protected final BlockingQueue<Object> queue;
+
+        protected final Executor executor;
+
+        protected final PartitionReader<T> reader;
+
+        protected final Cancellation cancellation;
+
+        protected boolean started;
+
+        protected boolean finished;
+
+        protected Partition(long from, long to, int prefetch,
+                Executor executor, PartitionReader<T> reader,
+                Cancellation cancellation) {
+            this.from = from;
+            this.to = to;
+            this.queue = new ArrayBlockingQueue<>(prefetch);
+            this.executor = executor;
+            this.reader = reader;
+            this.cancellation = cancellation;
+        }
+
+        @SuppressWarnings("unchecked")
+        protected boolean tryAdvance(Consumer<? super T> action) {
+            if (finished) {
+                return false;
+            }
+            if (!started) {
+                started = true;
+                executor.execute(this::read);
+            }
+            Object element;
+            try {
+                element = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancellation.cancel();
+                throw new CancellationException("Interrupted.");
+            }
+            if (element == END) {
+                finished = true;
+                return false;
+            }
+            if (element instanceof Failure) {
+                finished = true;
+                throw ((Failure) element).exception;
+            }
+            action.accept((T) element);
+            return true;
+        }
+
+        protected void read() {
+            Object last = END;
+            try {
+                reader.read(from, to, this::put);
+            } catch (CancellationException e) {
+                return;
+            } catch (RuntimeException e) {
+                last = new Failure(e);
+            } catch (Error e) {
+                last = new Failure(new IllegalStateException(e));
+            }
+            try {
+                put(last);
+            } catch (CancellationException ignored) {
+            }
+        }
+
+        protected void put(Object element) {
+            try {
+                while (!queue.offer(element, 100, TimeUnit.MILLISECONDS)) {
+                    if (cancellation.isCancelled()) {
+                        throw new CancellationException();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted.");
+            }
+        }
+    }
+
+    protected static class Failure {
+
+        protected final RuntimeException exception;
+
+        protected Failure(RuntimeException exception) {
+            this.exception = exception;
+        }
+    }
+}
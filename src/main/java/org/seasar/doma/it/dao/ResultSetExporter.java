@@ -0,0 +1,317 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.dao;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import org.seasar.doma.jdbc.command.ResultSetHandler;
+import org.seasar.doma.jdbc.command.ResultSetRowIndexConsumer;
+import org.seasar.doma.jdbc.query.SelectQuery;
+
+/**
+ * Writes a result set to a channel as CSV or NDJSON.
+ * <p>
+ * Values are read with {@link ResultSet#getString(int)}, or
+ * {@link ResultSet#getBoolean(int)} for boolean columns, and formatted
+ * straight into one reused row buffer, so no entity, map or domain object is
+ * created. The rows are encoded into a byte buffer of
+ * {@link ExportOptions#getFlushSize()} bytes, which is written to the channel
+ * whenever it is full and once at the end. The channel is not closed.
+ *
+ * @see SqlFileSelects
+ */
+public class ResultSetExporter implements ResultSetHandler<ExportResult> {
+
+    protected final WritableByteChannel channel;
+
+    protected final ExportOptions options;
+
+    protected final StringBuilder row = new StringBuilder(256);
+
+    protected final ByteBuffer bytes;
+
+    protected final CharsetEncoder encoder;
+
+    protected CharBuffer chars = CharBuffer.allocate(256);
+
+    protected long written;
+
+    public ResultSetExporter(WritableByteChannel channel, ExportOptions options) {
+        this.channel = Objects.requireNonNull(channel);
+        this.options = Objects.requireNonNull(options);
+        this.bytes = ByteBuffer.allocate(options.getFlushSize());
+        this.encoder = options.getCharset().newEncoder();
+    }
+
+    @Override
+    public Supplier<ExportResult> handle(ResultSet resultSet,
+            SelectQuery query, ResultSetRowIndexConsumer consumer)
+            throws SQLException {
+        long start = System.nanoTime();
+        bytes.clear();
+        encoder.reset();
+        written = 0;
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        int count = metaData.getColumnCount();
+        String[] keys = new String[count];
+        int[] types = new int[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = options.getKeyNaming().apply(
+                    metaData.getColumnLabel(i + 1));
+            types[i] = metaData.getColumnType(i + 1);
+        }
+        boolean csv = options.getFormat() == ExportFormat.CSV;
+        if (csv) {
+            row.setLength(0);
+            for (int i = 0; i < count; i++) {
+                if (i > 0) {
+                    row.append(',');
+                }
+                appendCsv(keys[i]);
+            }
+            row.append("\r\n");
+            encode(false);
+        } else {
+            for (int i = 0; i < count; i++) {
+                row.setLength(0);
+                appendJsonString(keys[i]);
+                keys[i] = row.append(':').toString();
+            }
+        }
+        long rows = 0;
+        boolean next = resultSet.next();
+        // see ColumnarSelect
+        consumer.accept(-1L, next);
+        while (next) {
+            row.setLength(0);
+            if (csv) {
+                appendCsvRow(resultSet, types);
+            } else {
+                appendJsonRow(resultSet, keys, types);
+            }
+            encode(false);
+            rows++;
+            next = resultSet.next();
+        }
+        row.setLength(0);
+        encode(true);
+        flush();
+        ExportResult result = new ExportResult(rows, written,
+                System.nanoTime() - start);
+        return () -> result;
+    }
+
+    protected void appendCsvRow(ResultSet resultSet, int[] types)
+            throws SQLException {
+        for (int i = 0; i < types.length; i++) {
+            if (i > 0) {
+                row.append(',');
+            }
+            if (isBoolean(types[i])) {
+                boolean value = resultSet.getBoolean(i + 1);
+                if (!resultSet.wasNull()) {
+                    row.append(value);
+                }
+            } else {
+                String value = resultSet.getString(i + 1);
+                if (value != null) {
+                    appendCsv(value);
+                }
+            }
+        }
+        row.append("\r\n");
+    }
+
+    protected void appendJsonRow(ResultSet resultSet, String[] keys,
+            int[] types) throws SQLException {
+        row.append('{');
+        for (int i = 0; i < types.length; i++) {
+            if (i > 0) {
+                row.append(',');
+            }
+            row.append(keys[i]);
+            if (isBoolean(types[i])) {
+                boolean value = resultSet.getBoolean(i + 1);
+                row.append(resultSet.wasNull() ? "null" : String
+                        .valueOf(value));
+            } else {
+                String value = resultSet.getString(i + 1);
+                if (value == null) {
+                    row.append("null");
+                } else if (isNumber(types[i]) && isFinite(value)) {
+                    row.append(value);
+                } else {
+                    appendJsonString(value);
+                }
+            }
+        }
+        row.append("}\n");
+    }
+
+    /**
+     * Appends a CSV field, quoted as RFC 4180 requires.
+     */
+    protected void appendCsv(String value) {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quote) {
+            row.append(value);
+            return;
+        }
+        row.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                row.append('"');
+            }
+            row.append(c);
+        }
+        row.append('"');
+    }
+
+    protected void appendJsonString(String value) {
+        row.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '"':
+                row.append("\\\"");
+                break;
+            case '\\':
+                row.append("\\\\");
+                break;
+            case '\n':
+                row.append("\\n");
+                break;
+            case '\r':
+                row.append("\\r");
+                break;
+            case '\t':
+                row.append("\\t");
+                break;
+            default:
+                if (c < 0x20) {
+                    row.append("\\u00").append(Character.forDigit(c >> 4, 16))
+                            .append(Character.forDigit(c & 0xf, 16));
+                } else {
+                    row.append(c);
+                }
+            }
+        }
+        row.append('"');
+    }
+
+    protected boolean isBoolean(int type) {
+        return type == Types.BOOLEAN || type == Types.BIT;
+    }
+
+    protected boolean isNumber(int type) {
+        switch (type) {
+        case Types.TINYINT:
+        case Types.SMALLINT:
+        case Types.INTEGER:
+        case Types.BIGINT:
+        case Types.REAL:
+        case Types.FLOAT:
+        case Types.DOUBLE:
+        case Types.NUMERIC:
+        case Types.DECIMAL:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * @return {@code false} for {@code NaN} and the infinities, which JSON
+     *         cannot represent as numbers
+     */
+    protected boolean isFinite(String value) {
+        char last = value.charAt(value.length() - 1);
+        return last != 'N' && last != 'y';
+    }
+
+    /**
+     * Encodes the chars of the row buffer, writing the byte buffer to the
+     * channel whenever it fills up.
+     */
+    protected void encode(boolean endOfInput) {
+        int length = row.length();
+        if (chars.capacity() < length) {
+            chars = CharBuffer.allocate(Math.max(length, chars.capacity() * 2));
+        }
+        chars.clear();
+        row.getChars(0, length, chars.array(), 0);
+        chars.limit(length);
+        for (;;) {
+            CoderResult result = encoder.encode(chars, bytes, endOfInput);
+            if (result.isOverflow()) {
+                flush();
+            } else {
+                throwIfError(result);
+                break;
+            }
+        }
+        if (endOfInput) {
+            for (;;) {
+                CoderResult result = encoder.flush(bytes);
+                if (result.isOverflow()) {
+                    flush();
+                } else {
+                    throwIfError(result);
+                    break;
+                }
+            }
+        }
+    }
+
+    protected void throwIfError(CoderResult result) {
+        if (result.isError()) {
+            try {
+                result.throwException();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    protected void flush() {
+        bytes.flip();
+        try {
+            while (bytes.hasRemaining()) {
+                written += channel.write(bytes);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        bytes.clear();
+    }
+}
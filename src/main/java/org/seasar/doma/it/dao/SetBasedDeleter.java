@@ -0,0 +1,306 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.dao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+import org.seasar.doma.Entity;
+import org.seasar.doma.jdbc.Config;
+import org.seasar.doma.jdbc.builder.DeleteBuilder;
+import org.seasar.doma.jdbc.dialect.Dialect;
+import org.seasar.doma.jdbc.entity.EntityPropertyType;
+import org.seasar.doma.jdbc.entity.EntityType;
+import org.seasar.doma.jdbc.entity.EntityTypeFactory;
+import org.seasar.doma.jdbc.entity.NullEntityListener;
+import org.seasar.doma.jdbc.entity.VersionPropertyType;
+import org.seasar.doma.jdbc.tx.TransactionManager;
+
+/**
+ * Deletes entities with one statement per chunk of keys instead of one
+ * statement per entity, and reports the entities that failed the version
+ * check.
+ * <p>
+ * The rows of a chunk are grouped by version, and each group is deleted with
+ * {@code where VERSION = ? and ID in (...)}. Composite keys add a row value
+ * condition on all key columns, or {@code or}-ed conditions where the
+ * database has no row values. The plain {@code in} on the first key column
+ * lets H2 use the primary key index. The chunk size is capped by the number
+ * of bind parameters the database accepts.
+ * <p>
+ * When a chunk deletes fewer rows than it holds, it is rolled back to a
+ * savepoint and deleted again with the row-by-row batch method, which
+ * tells the conflicting rows apart. All chunks run in one
+ * {@link TransactionManager#required(Runnable)} call.
+ * <p>
+ * The set-based statements do not call entity listeners, so entity classes
+ * with a listener are refused rather than having it called for some chunks
+ * only.
+ *
+ * @param <ENTITY>
+ *            the entity type
+ */
+public class SetBasedDeleter<ENTITY> {
+
+    private final Config config;
+
+    private final EntityType<ENTITY> entityType;
+
+    private final Function<List<ENTITY>, int[]> rowByRow;
+
+    private final List<EntityPropertyType<ENTITY, ?>> idPropertyTypes;
+
+    private final VersionPropertyType<? super ENTITY, ENTITY, ?, ?> versionPropertyType;
+
+    private final String tableName;
+
+    private final List<String> idColumnNames;
+
+    private final String versionColumnName;
+
+    private int chunkSize = 250;
+
+    /**
+     * @param config
+     *            the config
+     * @param entityClass
+     *            the entity class, which must have an identifier and no
+     *            entity listener
+     * @param rowByRow
+     *            the batch delete method that suppresses optimistic lock
+     *            exceptions, for example
+     *            {@code dao::delete_suppressOptimisticLockException}
+     */
+    public SetBasedDeleter(Config config, Class<ENTITY> entityClass,
+            Function<List<ENTITY>, int[]> rowByRow) {
+        this.config = Objects.requireNonNull(config);
+        this.rowByRow = Objects.requireNonNull(rowByRow);
+        if (hasListener(Objects.requireNonNull(entityClass))) {
+            throw new IllegalArgumentException("listener: "
+                    + entityClass.getName());
+        }
+        entityType = EntityTypeFactory.getEntityType(entityClass,
+                config.getClassHelper());
+        if (entityType.getIdPropertyTypes().isEmpty()) {
+            throw new IllegalArgumentException("no id: "
+                    + entityType.getName());
+        }
+        idPropertyTypes = entityType.getIdPropertyTypes();
+        versionPropertyType = entityType.getVersionPropertyType();
+        Dialect dialect = config.getDialect();
+        tableName = entityType.getQualifiedTableName(config.getNaming()::apply,
+                dialect::applyQuote);
+        idColumnNames = new ArrayList<>(idPropertyTypes.size());
+        for (EntityPropertyType<ENTITY, ?> propertyType : idPropertyTypes) {
+            idColumnNames.add(propertyType.getColumnName(
+                    config.getNaming()::apply, dialect::applyQuote));
+        }
+        versionColumnName = versionPropertyType == null ? null
+                : versionPropertyType.getColumnName(config.getNaming()::apply,
+                        dialect::applyQuote);
+    }
+
+    /**
+     * Looks for a listener on the entity class and on the entity classes it
+     * inherits from, as Doma does.
+     */
+    private static boolean hasListener(Class<?> entityClass) {
+        for (Class<?> c = entityClass; c != null; c = c.getSuperclass()) {
+            Entity entity = c.getAnnotation(Entity.class);
+            if (entity != null
+                    && entity.listener() != NullEntityListener.class) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @return the chunk size capped by the bind parameter limit of the
+     *         dialect
+     */
+    public int getEffectiveChunkSize() {
+        // the first key column is bound twice for composite keys, and one
+        // version is bound per group
+        int parametersPerRow = idPropertyTypes.size() == 1 ? 2
+                : idPropertyTypes.size() + 2;
+        int maxRows;
+        switch (config.getDialect().getName()) {
+        case "sqlite":
+            maxRows = 999 / parametersPerRow;
+            break;
+        case "mssql":
+            maxRows = 2000 / parametersPerRow;
+            break;
+        case "oracle":
+            // at most 1000 expressions in an IN list
+            maxRows = 1000;
+            break;
+        default:
+            maxRows = 32767 / parametersPerRow;
+            break;
+        }
+        return Math.max(1, Math.min(chunkSize, maxRows));
+    }
+
+    public BatchUpdateResult<ENTITY> delete(List<ENTITY> entities) {
+        Objects.requireNonNull(entities);
+        int[] counts = new int[entities.size()];
+        int size = getEffectiveChunkSize();
+        config.getTransactionManager().required(() -> {
+            for (int from = 0; from < entities.size(); from += size) {
+                int to = Math.min(from + size, entities.size());
+                deleteChunk(entities.subList(from, to), counts, from);
+            }
+        });
+        return BatchUpdateResult.of(entities, counts);
+    }
+
+    protected void deleteChunk(List<ENTITY> chunk, int[] counts, int offset) {
+        TransactionManager tm = config.getTransactionManager();
+        String savepoint = "SET_BASED_DELETE_" + offset;
+        tm.setSavepoint(savepoint);
+        int count = deleteSet(chunk);
+        if (count == chunk.size()) {
+            tm.releaseSavepoint(savepoint);
+            Arrays.fill(counts, offset, offset + chunk.size(), 1);
+        } else {
+            // not released, as HSQLDB drops a savepoint that is rolled back to
+            tm.rollback(savepoint);
+            int[] chunkCounts = rowByRow.apply(chunk);
+            System.arraycopy(chunkCounts, 0, counts, offset,
+                    chunkCounts.length);
+        }
+    }
+
+    /**
+     * Deletes the rows whose keys and version match, with one statement per
+     * version value. Entities with a {@code null} key or version are left
+     * out, so that the chunk falls back to the row-by-row method.
+     */
+    protected int deleteSet(List<ENTITY> chunk) {
+        Map<Object, List<Object[]>> keysByVersion = new LinkedHashMap<>();
+        for (ENTITY entity : chunk) {
+            Object version = null;
+            if (versionPropertyType != null) {
+                version = getValue(versionPropertyType, entity);
+                if (version == null) {
+                    continue;
+                }
+            }
+            Object[] keys = new Object[idPropertyTypes.size()];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = getValue(idPropertyTypes.get(i), entity);
+                if (keys[i] == null) {
+                    keys = null;
+                    break;
+                }
+            }
+            if (keys != null) {
+                keysByVersion.computeIfAbsent(version, v -> new ArrayList<>())
+                        .add(keys);
+            }
+        }
+        int count = 0;
+        for (Map.Entry<Object, List<Object[]>> entry : keysByVersion
+                .entrySet()) {
+            count += deleteKeys(entry.getKey(), entry.getValue());
+        }
+        return count;
+    }
+
+    protected int deleteKeys(Object version, List<Object[]> keys) {
+        DeleteBuilder builder = DeleteBuilder.newInstance(config);
+        builder.sql("delete from ").sql(tableName).sql(" where ");
+        if (version != null) {
+            builder.sql(versionColumnName).sql(" = ");
+            param(builder, version);
+            builder.sql(" and ");
+        }
+        builder.sql(idColumnNames.get(0)).sql(" in (");
+        for (Object[] values : keys) {
+            param(builder, values[0]);
+            builder.sql(", ");
+        }
+        builder.removeLast().sql(")");
+        if (idColumnNames.size() > 1) {
+            builder.sql(" and ");
+            if (supportsRowValues()) {
+                builder.sql("(").sql(String.join(", ", idColumnNames))
+                        .sql(") in (");
+                for (Object[] values : keys) {
+                    builder.sql("(");
+                    for (Object value : values) {
+                        param(builder, value);
+                        builder.sql(", ");
+                    }
+                    builder.removeLast().sql(")").sql(", ");
+                }
+                builder.removeLast().sql(")");
+            } else {
+                builder.sql("(");
+                for (Object[] values : keys) {
+                    builder.sql("(");
+                    for (int i = 0; i < values.length; i++) {
+                        builder.sql(idColumnNames.get(i)).sql(" = ");
+                        param(builder, values[i]);
+                        builder.sql(" and ");
+                    }
+                    builder.removeLast().sql(")").sql(" or ");
+                }
+                builder.removeLast().sql(")");
+            }
+        }
+        return builder.execute();
+    }
+
+    private Object getValue(
+            EntityPropertyType<? super ENTITY, ?> propertyType, ENTITY entity) {
+        return propertyType.createProperty().load(entity).asInParameter()
+                .getWrapper().get();
+    }
+
+    protected boolean supportsRowValues() {
+        switch (config.getDialect().getName()) {
+        case "mssql":
+        case "db2":
+            return false;
+        default:
+            return true;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void param(DeleteBuilder builder, T value) {
+        builder.param((Class<T>) value.getClass(), value);
+    }
+}
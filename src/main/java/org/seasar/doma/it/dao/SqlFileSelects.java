@@ -0,0 +1,114 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.dao;
+
+import java.lang.reflect.Method;
+
+import org.seasar.doma.FetchType;
+import org.seasar.doma.jdbc.Config;
+import org.seasar.doma.jdbc.JdbcLogger;
+import org.seasar.doma.jdbc.SqlLogType;
+import org.seasar.doma.jdbc.command.ResultSetHandler;
+import org.seasar.doma.jdbc.command.SelectCommand;
+import org.seasar.doma.jdbc.query.SqlFileSelectQuery;
+
+/**
+ * Runs the SQL file of a DAO default method with a custom
+ * {@link ResultSetHandler}.
+ * <p>
+ * The query is prepared and executed through the configured query and
+ * command implementors like a generated {@code @Select} method, so it is
+ * logged and runs in the caller's transaction. The DAO method is logged as
+ * entered, exited or thrown by the {@link JdbcLogger}
+ * as generated methods are.
+ */
+public final class SqlFileSelects {
+
+    private SqlFileSelects() {
+    }
+
+    /**
+     * Finds a method of a DAO interface.
+     *
+     * @param daoClass
+     *            the DAO interface
+     * @param name
+     *            the method name, which is also the SQL file name
+     * @param parameterTypes
+     *            the parameter types
+     * @return the method
+     */
+    public static Method getMethod(Class<?> daoClass, String name,
+            Class<?>... parameterTypes) {
+        try {
+            return daoClass.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Executes the SQL file of a DAO method.
+     *
+     * @param config
+     *            the configuration
+     * @param method
+     *            the DAO method whose SQL file is executed; its parameters
+     *            are not bound, so the SQL file must not use any
+     * @param handler
+     *            the handler of the result set
+     * @param args
+     *            the arguments of the DAO method, which are only logged
+     * @return the result of the handler
+     */
+    public static <RESULT> RESULT execute(Config config, Method method,
+            ResultSetHandler<RESULT> handler, Object... args) {
+        String className = method.getDeclaringClass().getName();
+        JdbcLogger logger = config.getJdbcLogger();
+        logger.logDaoMethodEntering(className, method.getName(), args);
+        try {
+            RESULT result = executeQuery(config, method, className, handler);
+            logger.logDaoMethodExiting(className, method.getName(), result);
+            return result;
+        } catch (RuntimeException e) {
+            logger.logDaoMethodThrowing(className, method.getName(), e);
+            throw e;
+        }
+    }
+
+    private static <RESULT> RESULT executeQuery(Config config, Method method,
+            String className, ResultSetHandler<RESULT> handler) {
+        SqlFileSelectQuery query = config.getQueryImplementors()
+                .createSqlFileSelectQuery(method);
+        query.setMethod(method);
+        query.setConfig(config);
+        query.setSqlFilePath("META-INF/" + className.replace('.', '/') + "/"
+                + method.getName() + ".sql");
+        query.setCallerClassName(className);
+        query.setCallerMethodName(method.getName());
+        query.setFetchType(FetchType.LAZY);
+        query.setQueryTimeout(config.getQueryTimeout());
+        query.setMaxRows(config.getMaxRows());
+        query.setFetchSize(config.getFetchSize());
+        query.setSqlLogType(SqlLogType.FORMATTED);
+        query.prepare();
+        SelectCommand<RESULT> command = config.getCommandImplementors()
+                .createSelectCommand(method, query, handler);
+        RESULT result = command.execute();
+        query.complete();
+        return result;
+    }
+}
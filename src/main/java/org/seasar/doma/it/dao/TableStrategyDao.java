@@ -21,6 +21,7 @@ import org.seasar.doma.AccessLevel;
 import org.seasar.doma.BatchInsert;
 import org.seasar.doma.Dao;
 import org.seasar.doma.Insert;
+import org.seasar.doma.it.entity.StripedTableStrategy;
 import org.seasar.doma.it.entity.TableStrategy;
 import org.seasar.doma.jdbc.Config;
 
@@ -36,4 +37,7 @@ public interface TableStrategyDao {
 
     @BatchInsert
     int[] insert(List<TableStrategy> entities);
+
+    @Insert
+    int insert(StripedTableStrategy entity);
 }
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.dao;
+
+import java.lang.reflect.Method;
+
+import org.seasar.doma.jdbc.BatchOptimisticLockException;
+import org.seasar.doma.jdbc.Config;
+import org.seasar.doma.jdbc.SqlKind;
+
+/**
+ * Checks the update counts of a version-checked upsert whose
+ * {@code @BatchUpdate} suppresses Doma's optimistic lock check.
+ * <p>
+ * The SQL file of each dialect touches no row when the stored version does
+ * not match, so a count of {@code 0} is a conflict on every database. Any
+ * other count is a success: MySQL reports {@code 2} for a row updated by
+ * {@code ON DUPLICATE KEY UPDATE}, which Doma's check, expecting
+ * {@code 1}, would take as a conflict.
+ */
+public final class VersionedUpserts {
+
+    private VersionedUpserts() {
+    }
+
+    /**
+     * @param config
+     *            the configuration
+     * @param method
+     *            the {@code @BatchUpdate} method whose SQL file was executed
+     * @param counts
+     *            the update counts returned by the method
+     * @return the counts with every positive count as {@code 1}
+     * @throws BatchOptimisticLockException
+     *             if a count is {@code 0}
+     */
+    public static int[] checkCounts(Config config, Method method,
+            int[] counts) {
+        int[] result = new int[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                throw conflict(config, method);
+            }
+            result[i] = counts[i] > 0 ? 1 : counts[i];
+        }
+        return result;
+    }
+
+    protected static BatchOptimisticLockException conflict(Config config,
+            Method method) {
+        String className = method.getDeclaringClass().getName();
+        String path = "META-INF/" + className.replace('.', '/') + "/"
+                + method.getName() + ".sql";
+        String sql = config.getSqlFileRepository()
+                .getSqlFile(method, path, config.getDialect()).getSql();
+        return new BatchOptimisticLockException(
+                config.getExceptionSqlLogType(), SqlKind.BATCH_UPDATE, sql,
+                path);
+    }
+}
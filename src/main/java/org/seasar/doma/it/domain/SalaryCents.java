@@ -0,0 +1,79 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.domain;
+
+import java.math.BigDecimal;
+
+import org.seasar.doma.Domain;
+
+/**
+ * A salary held as a number of cents, the {@code long} alternative to
+ * {@link Salary}.
+ * <p>
+ * The value type is {@code long}, so the value is read with
+ * {@code getLong} and bound with {@code setLong}. A {@code NUMERIC(7,2)}
+ * column would lose its fraction, so SQL files select and compare it
+ * scaled by {@link #SCALE} digits, as in {@code SALARY * 100}.
+ */
+@Domain(valueType = long.class)
+public class SalaryCents {
+
+    /** the number of fraction digits of the cents */
+    public static final int SCALE = 2;
+
+    private final long value;
+
+    public SalaryCents(long value) {
+        this.value = value;
+    }
+
+    /**
+     * @param decimal
+     *            the salary
+     * @return the salary in cents
+     * @throws ArithmeticException
+     *             if the salary has more than two fraction digits
+     */
+    public static SalaryCents valueOf(BigDecimal decimal) {
+        return new SalaryCents(decimal.movePointRight(SCALE).longValueExact());
+    }
+
+    /**
+     * @return the number of cents
+     */
+    public long getValue() {
+        return value;
+    }
+
+    public BigDecimal toDecimal() {
+        return BigDecimal.valueOf(value, SCALE);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof SalaryCents && ((SalaryCents) obj).value == value;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(value);
+    }
+
+    @Override
+    public String toString() {
+        return toDecimal().toPlainString();
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.entity;
+
+import java.lang.reflect.Method;
+
+import org.seasar.doma.jdbc.Config;
+import org.seasar.doma.jdbc.entity.EntityPropertyNotDefinedException;
+import org.seasar.doma.jdbc.entity.EntityType;
+import org.seasar.doma.jdbc.entity.PostDeleteContext;
+import org.seasar.doma.jdbc.entity.PostInsertContext;
+import org.seasar.doma.jdbc.entity.PostUpdateContext;
+import org.seasar.doma.jdbc.entity.PreDeleteContext;
+import org.seasar.doma.jdbc.entity.PreInsertContext;
+import org.seasar.doma.jdbc.entity.PreUpdateContext;
+
+/**
+ * The context of one per-entity callback called by the default batch
+ * callbacks of {@link BatchEntityListener}. As in Doma's batch contexts,
+ * the entity and every property are reported as changed.
+ *
+ * @param <ENTITY>
+ *            the entity type
+ */
+class BatchEntityContext<ENTITY> implements PreInsertContext<ENTITY>,
+        PreUpdateContext<ENTITY>, PreDeleteContext<ENTITY>,
+        PostInsertContext<ENTITY>, PostUpdateContext<ENTITY>,
+        PostDeleteContext<ENTITY> {
+
+    private final BatchListenerContext<ENTITY> context;
+
+    private ENTITY newEntity;
+
+    BatchEntityContext(BatchListenerContext<ENTITY> context) {
+        this.context = context;
+    }
+
+    @Override
+    public EntityType<ENTITY> getEntityType() {
+        return context.getEntityType();
+    }
+
+    @Override
+    public Method getMethod() {
+        return context.getMethod();
+    }
+
+    @Override
+    public Config getConfig() {
+        return context.getConfig();
+    }
+
+    @Override
+    public boolean isEntityChanged() {
+        return true;
+    }
+
+    @Override
+    public boolean isPropertyChanged(String propertyName) {
+        EntityType<ENTITY> entityType = context.getEntityType();
+        if (entityType.getEntityPropertyType(propertyName) == null) {
+            throw new EntityPropertyNotDefinedException(entityType
+                    .getEntityClass().getName(), propertyName);
+        }
+        return true;
+    }
+
+    @Override
+    public ENTITY getNewEntity() {
+        return newEntity;
+    }
+
+    @Override
+    public void setNewEntity(ENTITY newEntity) {
+        this.newEntity = newEntity;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.entity;
+
+import java.util.List;
+import java.util.ListIterator;
+
+import org.seasar.doma.jdbc.entity.EntityListener;
+
+/**
+ * An entity listener that is called once per {@code @BatchInsert},
+ * {@code @BatchUpdate} or {@code @BatchDelete} call instead of once per
+ * entity.
+ * <p>
+ * The batch callbacks receive the entities of the call in a mutable list;
+ * to replace an entity, for example a copy of an immutable one, set the new
+ * entity at its index. The pre callbacks run before any SQL is prepared and
+ * the post callbacks after the whole batch is executed. By default they call
+ * the per-entity callbacks of {@link EntityListener}, with contexts that
+ * report every entity and property as changed as Doma's batch contexts do,
+ * so a listener only overrides the batch callbacks it can do in one pass.
+ * <p>
+ * Doma itself calls the per-entity callbacks; the batch callbacks are called
+ * by the batch queries of the test {@code AppConfig} once its batch
+ * listeners are enabled.
+ *
+ * @param <ENTITY>
+ *            the entity type
+ */
+public interface BatchEntityListener<ENTITY> extends EntityListener<ENTITY> {
+
+    default void preInsertBatch(List<ENTITY> entities,
+            BatchListenerContext<ENTITY> context) {
+        for (ListIterator<ENTITY> it = entities.listIterator(); it.hasNext();) {
+            BatchEntityContext<ENTITY> c = new BatchEntityContext<>(context);
+            preInsert(it.next(), c);
+            if (c.getNewEntity() != null) {
+                it.set(c.getNewEntity());
+            }
+        }
+    }
+
+    default void preUpdateBatch(List<ENTITY> entities,
+            BatchListenerContext<ENTITY> context) {
+        for (ListIterator<ENTITY> it = entities.listIterator(); it.hasNext();) {
+            BatchEntityContext<ENTITY> c = new BatchEntityContext<>(context);
+            preUpdate(it.next(), c);
+            if (c.getNewEntity() != null) {
+                it.set(c.getNewEntity());
+            }
+        }
+    }
+
+    default void preDeleteBatch(List<ENTITY> entities,
+            BatchListenerContext<ENTITY> context) {
+        for (ListIterator<ENTITY> it = entities.listIterator(); it.hasNext();) {
+            BatchEntityContext<ENTITY> c = new BatchEntityContext<>(context);
+            preDelete(it.next(), c);
+            if (c.getNewEntity() != null) {
+                it.set(c.getNewEntity());
+            }
+        }
+    }
+
+    default void postInsertBatch(List<ENTITY> entities,
+            BatchListenerContext<ENTITY> context) {
+        for (ListIterator<ENTITY> it = entities.listIterator(); it.hasNext();) {
+            BatchEntityContext<ENTITY> c = new BatchEntityContext<>(context);
+            postInsert(it.next(), c);
+            if (c.getNewEntity() != null) {
+                it.set(c.getNewEntity());
+            }
+        }
+    }
+
+    default void postUpdateBatch(List<ENTITY> entities,
+            BatchListenerContext<ENTITY> context) {
+        for (ListIterator<ENTITY> it = entities.listIterator(); it.hasNext();) {
+            BatchEntityContext<ENTITY> c = new BatchEntityContext<>(context);
+            postUpdate(it.next(), c);
+            if (c.getNewEntity() != null) {
+                it.set(c.getNewEntity());
+            }
+        }
+    }
+
+    default void postDeleteBatch(List<ENTITY> entities,
+            BatchListenerContext<ENTITY> context) {
+        for (ListIterator<ENTITY> it = entities.listIterator(); it.hasNext();) {
+            BatchEntityContext<ENTITY> c = new BatchEntityContext<>(context);
+            postDelete(it.next(), c);
+            if (c.getNewEntity() != null) {
+                it.set(c.getNewEntity());
+            }
+        }
+    }
+}
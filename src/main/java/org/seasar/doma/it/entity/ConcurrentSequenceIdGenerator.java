@@ -0,0 +1,320 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.entity;
+
+import java.sql.Statement;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.seasar.doma.GenerationType;
+import org.seasar.doma.jdbc.JdbcException;
+import org.seasar.doma.jdbc.Sql;
+import org.seasar.doma.jdbc.id.AbstractIdGenerator;
+import org.seasar.doma.jdbc.id.IdGenerationConfig;
+import org.seasar.doma.jdbc.id.SequenceIdGenerator;
+import org.seasar.doma.message.Message;
+
+/**
+ * A sequence id generator that hands out the ids of a block without a lock,
+ * for {@code @SequenceGenerator(implementer = ...)}.
+ * <p>
+ * Each id is taken from the current block with an atomic increment. When a
+ * block is consumed down to its low-water mark, the next block is fetched
+ * from the sequence on a background thread in its own transaction, so that
+ * the threads that reach the end of the block usually find it ready. If the
+ * background thread has not started the fetch by then, the first thread that
+ * reaches the end runs it instead, in the transaction of that thread; a
+ * rollback of that transaction does not return the sequence values, so the
+ * block stays valid. A thread that has to wait for a fetch in progress is
+ * counted as a stall. Each block is fetched once, whichever thread runs the
+ * fetch.
+ * <p>
+ * The generator is opt-in: on one CPU and an in-memory database it is
+ * slower than {@code BuiltinSequenceIdGenerator}, so the entities of this
+ * project keep the builtin one, and {@code SequenceIdBenchmark} compares
+ * both.
+ * <p>
+ * As with {@code BuiltinSequenceIdGenerator}, a block is
+ * {@code [nextval, nextval + allocationSize)}, so the sequence must be
+ * incremented by at least the allocation size. Prefetched blocks that are
+ * never used leave gaps.
+ */
+public class ConcurrentSequenceIdGenerator extends AbstractIdGenerator
+        implements SequenceIdGenerator {
+
+    private static final ConcurrentMap<String, ConcurrentSequenceIdGenerator> generators = new ConcurrentHashMap<>();
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private static final Executor prefetcher = Executors
+            .newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "ConcurrentSequenceIdGenerator-"
+                        + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    protected String qualifiedSequenceName;
+
+    protected long initialValue;
+
+    protected long allocationSize;
+
+    protected final ConcurrentMap<String, Allocator> allocators = new ConcurrentHashMap<>();
+
+    /**
+     * @param qualifiedSequenceName
+     *            the sequence name given to {@code @SequenceGenerator}
+     * @return the generator of the sequence
+     * @throws IllegalArgumentException
+     *             if no generator has been initialized for the sequence
+     */
+    public static ConcurrentSequenceIdGenerator of(String qualifiedSequenceName) {
+        ConcurrentSequenceIdGenerator generator = generators
+                .get(qualifiedSequenceName);
+        if (generator == null) {
+            throw new IllegalArgumentException("qualifiedSequenceName: "
+                    + qualifiedSequenceName);
+        }
+        return generator;
+    }
+
+    @Override
+    public void setQualifiedSequenceName(String qualifiedSequenceName) {
+        this.qualifiedSequenceName = qualifiedSequenceName;
+    }
+
+    @Override
+    public void setInitialValue(long initialValue) {
+        this.initialValue = initialValue;
+    }
+
+    @Override
+    public void setAllocationSize(long allocationSize) {
+        this.allocationSize = allocationSize;
+    }
+
+    @Override
+    public void initialize() {
+        Objects.requireNonNull(qualifiedSequenceName);
+        if (allocationSize < 1) {
+            throw new IllegalArgumentException("allocationSize: "
+                    + allocationSize);
+        }
+        generators.put(qualifiedSequenceName, this);
+    }
+
+    @Override
+    public boolean supportsBatch(IdGenerationConfig config) {
+        return true;
+    }
+
+    @Override
+    public boolean supportsAutoGeneratedKeys(IdGenerationConfig config) {
+        return false;
+    }
+
+    @Override
+    public boolean includesIdentityColumn(IdGenerationConfig config) {
+        return true;
+    }
+
+    @Override
+    public Long generatePreInsert(IdGenerationConfig config) {
+        Allocator allocator = allocators.computeIfAbsent(
+                config.getDataSourceName(), name -> new Allocator());
+        return allocator.next(config);
+    }
+
+    @Override
+    public Long generatePostInsert(IdGenerationConfig config,
+            Statement statement) {
+        return null;
+    }
+
+    @Override
+    public GenerationType getGenerationType() {
+        return GenerationType.SEQUENCE;
+    }
+
+    /**
+     * @return the number of ids left in a block when the next block is
+     *         prefetched
+     */
+    protected long getLowWaterMark() {
+        return allocationSize / 2;
+    }
+
+    /**
+     * @return the counters of all data sources
+     */
+    public IdBlockStatistics getStatistics() {
+        long refills = 0;
+        long prefetches = 0;
+        long stalls = 0;
+        for (Allocator allocator : allocators.values()) {
+            refills += allocator.refills.sum();
+            prefetches += allocator.prefetches.sum();
+            stalls += allocator.stalls.sum();
+        }
+        return new IdBlockStatistics(refills, prefetches, stalls);
+    }
+
+    protected long fetch(IdGenerationConfig config) {
+        Sql<?> sql = config.getDialect().getSequenceNextValSql(
+                qualifiedSequenceName, allocationSize);
+        return getGeneratedValue(config, sql);
+    }
+
+    /**
+     * Fetches a block on the prefetch thread, which has no transaction of its
+     * own.
+     */
+    protected long fetchRequiresNew(IdGenerationConfig config) {
+        try {
+            return config.getRequiresNewController().requiresNew(
+                    () -> fetch(config));
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new JdbcException(Message.DOMA2018, t, config
+                    .getEntityType().getName(), t);
+        }
+    }
+
+    /**
+     * The blocks of one data source.
+     */
+    protected class Allocator {
+
+        protected final AtomicReference<Block> current = new AtomicReference<>(
+                new Block(0, 0));
+
+        protected final LongAdder refills = new LongAdder();
+
+        protected final LongAdder prefetches = new LongAdder();
+
+        protected final LongAdder stalls = new LongAdder();
+
+        protected long next(IdGenerationConfig config) {
+            for (;;) {
+                Block block = current.get();
+                long offset = block.next.getAndIncrement();
+                if (offset < block.size) {
+                    if (offset == block.size - 1 - getLowWaterMark()) {
+                        prefetch(block, config);
+                    }
+                    return block.start + offset;
+                }
+                advance(block, config);
+            }
+        }
+
+        protected void prefetch(Block block, IdGenerationConfig config) {
+            Refill refill = new Refill();
+            if (block.successor.compareAndSet(null, refill)) {
+                prefetches.increment();
+                prefetcher.execute(() -> fill(refill,
+                        () -> fetchRequiresNew(config)));
+            }
+        }
+
+        /**
+         * Waits for the block after {@code exhausted} and makes it current.
+         * The block is fetched in the calling thread and its transaction if
+         * it has not been prefetched, or if the prefetch thread has not
+         * started yet.
+         */
+        protected void advance(Block exhausted, IdGenerationConfig config) {
+            Refill refill = exhausted.successor.get();
+            if (refill == null) {
+                exhausted.successor.compareAndSet(null, new Refill());
+                refill = exhausted.successor.get();
+            }
+            fill(refill, () -> fetch(config));
+            if (!refill.future.isDone()) {
+                stalls.increment();
+            }
+            Block block;
+            try {
+                block = refill.future.join();
+            } catch (CompletionException e) {
+                // lets a later call fetch the block again
+                exhausted.successor.compareAndSet(refill, null);
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+            current.compareAndSet(exhausted, block);
+        }
+
+        protected void fill(Refill refill, LongSupplier fetcher) {
+            if (!refill.claimed.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                long start = fetcher.getAsLong();
+                refills.increment();
+                refill.future.complete(new Block(start, allocationSize));
+            } catch (Throwable t) {
+                refill.future.completeExceptionally(t);
+            }
+        }
+    }
+
+    /**
+     * The ids {@code [start, start + size)}, of which those from
+     * {@code start + next} are not handed out yet.
+     */
+    protected static class Block {
+
+        protected final long start;
+
+        protected final long size;
+
+        protected final AtomicLong next = new AtomicLong();
+
+        protected final AtomicReference<Refill> successor = new AtomicReference<>();
+
+        protected Block(long start, long size) {
+            this.start = start;
+            this.size = size;
+        }
+    }
+
+    /**
+     * The fetch of the next block, which runs once in the thread that claims
+     * it first.
+     */
+    protected static class Refill {
+
+        protected final CompletableFuture<Block> future = new CompletableFuture<>();
+
+        protected final AtomicBoolean claimed = new AtomicBoolean();
+    }
+}
@@ -15,7 +15,8 @@
  */
 package org.seasar.doma.it.entity;
 
-import org.seasar.doma.jdbc.entity.EntityListener;
+import java.util.List;
+
 import org.seasar.doma.jdbc.entity.PostDeleteContext;
 import org.seasar.doma.jdbc.entity.PostInsertContext;
 import org.seasar.doma.jdbc.entity.PostUpdateContext;
@@ -23,54 +24,76 @@ import org.seasar.doma.jdbc.entity.PreDeleteContext;
 import org.seasar.doma.jdbc.entity.PreInsertContext;
 import org.seasar.doma.jdbc.entity.PreUpdateContext;
 
-public class DeptListener implements EntityListener<Dept> {
+public class DeptListener implements BatchEntityListener<Dept> {
 
     @Override
     public void preDelete(Dept entity, PreDeleteContext<Dept> context) {
-        Dept newEntity = new Dept(entity.departmentId, entity.departmentNo,
-                entity.departmentName + "_preD", entity.location,
-                entity.version);
-        context.setNewEntity(newEntity);
+        context.setNewEntity(newDept(entity, "_preD"));
     }
 
     @Override
     public void preInsert(Dept entity, PreInsertContext<Dept> context) {
-        Dept newEntity = new Dept(entity.departmentId, entity.departmentNo,
-                entity.departmentName + "_preI", entity.location,
-                entity.version);
-        context.setNewEntity(newEntity);
+        context.setNewEntity(newDept(entity, "_preI"));
     }
 
     @Override
     public void preUpdate(Dept entity, PreUpdateContext<Dept> context) {
-        Dept newEntity = new Dept(entity.departmentId, entity.departmentNo,
-                entity.departmentName + "_preU", entity.location,
-                entity.version);
-        context.setNewEntity(newEntity);
+        context.setNewEntity(newDept(entity, "_preU"));
     }
 
     @Override
     public void postInsert(Dept entity, PostInsertContext<Dept> context) {
-        Dept newEntity = new Dept(entity.departmentId, entity.departmentNo,
-                entity.departmentName + "_postI", entity.location,
-                entity.version);
-        context.setNewEntity(newEntity);
+        context.setNewEntity(newDept(entity, "_postI"));
     }
 
     @Override
     public void postUpdate(Dept entity, PostUpdateContext<Dept> context) {
-        Dept newEntity = new Dept(entity.departmentId, entity.departmentNo,
-                entity.departmentName + "_postU", entity.location,
-                entity.version);
-        context.setNewEntity(newEntity);
+        context.setNewEntity(newDept(entity, "_postU"));
     }
 
     @Override
     public void postDelete(Dept entity, PostDeleteContext<Dept> context) {
-        Dept newEntity = new Dept(entity.departmentId, entity.departmentNo,
-                entity.departmentName + "_postD", entity.location,
-                entity.version);
-        context.setNewEntity(newEntity);
+        context.setNewEntity(newDept(entity, "_postD"));
+    }
+
+    @Override
+    public void preDeleteBatch(List<Dept> entities,
+            BatchListenerContext<Dept> context) {
+        entities.replaceAll(entity -> newDept(entity, "_preD"));
+    }
+
+    @Override
+    public void preInsertBatch(List<Dept> entities,
+            BatchListenerContext<Dept> context) {
+        entities.replaceAll(entity -> newDept(entity, "_preI"));
+    }
+
+    @Override
+    public void preUpdateBatch(List<Dept> entities,
+            BatchListenerContext<Dept> context) {
+        entities.replaceAll(entity -> newDept(entity, "_preU"));
     }
 
+    @Override
+    public void postInsertBatch(List<Dept> entities,
+            BatchListenerContext<Dept> context) {
+        entities.replaceAll(entity -> newDept(entity, "_postI"));
+    }
+
+    @Override
+    public void postUpdateBatch(List<Dept> entities,
+            BatchListenerContext<Dept> context) {
+        entities.replaceAll(entity -> newDept(entity, "_postU"));
+    }
+
+    @Override
+    public void postDeleteBatch(List<Dept> entities,
+            BatchListenerContext<Dept> context) {
+        entities.replaceAll(entity -> newDept(entity, "_postD"));
+    }
+
+    protected Dept newDept(Dept d, String suffix) {
+        return new Dept(d.departmentId, d.departmentNo, d.departmentName
+                + suffix, d.location, d.version);
+    }
 }
@@ -17,8 +17,8 @@ package org.seasar.doma.it.entity;
 
 import java.sql.Timestamp;
 import java.util.Date;
+import java.util.List;
 
-import org.seasar.doma.jdbc.entity.EntityListener;
 import org.seasar.doma.jdbc.entity.PostDeleteContext;
 import org.seasar.doma.jdbc.entity.PostInsertContext;
 import org.seasar.doma.jdbc.entity.PostUpdateContext;
@@ -26,7 +26,7 @@ import org.seasar.doma.jdbc.entity.PreDeleteContext;
 import org.seasar.doma.jdbc.entity.PreInsertContext;
 import org.seasar.doma.jdbc.entity.PreUpdateContext;
 
-public class EmpListener<E extends Emp> implements EntityListener<E> {
+public class EmpListener<E extends Emp> implements BatchEntityListener<E> {
 
     @Override
     public void preDelete(E entity, PreDeleteContext<E> context) {
@@ -44,6 +44,31 @@ public class EmpListener<E extends Emp> implements EntityListener<E> {
         }
     }
 
+    /**
+     * Stamps all entities of a batch with the same timestamp.
+     */
+    @Override
+    public void preInsertBatch(List<E> entities,
+            BatchListenerContext<E> context) {
+        Timestamp timestamp = new Timestamp(new Date().getTime());
+        for (E entity : entities) {
+            entity.setInsertTimestamp(timestamp);
+        }
+    }
+
+    /**
+     * Stamps all entities of a batch with the same timestamp, as a batch
+     * update treats every entity as changed.
+     */
+    @Override
+    public void preUpdateBatch(List<E> entities,
+            BatchListenerContext<E> context) {
+        Timestamp timestamp = new Timestamp(new Date().getTime());
+        for (E entity : entities) {
+            entity.setUpdateTimestamp(timestamp);
+        }
+    }
+
     @Override
     public void postInsert(E entity, PostInsertContext<E> context) {
     }
@@ -56,4 +81,24 @@ public class EmpListener<E extends Emp> implements EntityListener<E> {
     public void postDelete(E entity, PostDeleteContext<E> context) {
     }
 
+    @Override
+    public void preDeleteBatch(List<E> entities,
+            BatchListenerContext<E> context) {
+    }
+
+    @Override
+    public void postInsertBatch(List<E> entities,
+            BatchListenerContext<E> context) {
+    }
+
+    @Override
+    public void postUpdateBatch(List<E> entities,
+            BatchListenerContext<E> context) {
+    }
+
+    @Override
+    public void postDeleteBatch(List<E> entities,
+            BatchListenerContext<E> context) {
+    }
+
 }
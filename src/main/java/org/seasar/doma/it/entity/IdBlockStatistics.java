@@ -0,0 +1,62 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.entity;
+
+/**
+ * An immutable snapshot of the {@link ConcurrentSequenceIdGenerator}
+ * counters.
+ */
+public class IdBlockStatistics {
+
+    private final long refills;
+
+    private final long prefetches;
+
+    private final long stalls;
+
+    public IdBlockStatistics(long refills, long prefetches, long stalls) {
+        this.refills = refills;
+        this.prefetches = prefetches;
+        this.stalls = stalls;
+    }
+
+    /**
+     * @return the number of blocks fetched from the sequence
+     */
+    public long getRefills() {
+        return refills;
+    }
+
+    /**
+     * @return the number of blocks requested ahead of time
+     */
+    public long getPrefetches() {
+        return prefetches;
+    }
+
+    /**
+     * @return the number of times a thread waited for a block
+     */
+    public long getStalls() {
+        return stalls;
+    }
+
+    @Override
+    public String toString() {
+        return "IdBlockStatistics [refills=" + refills + ", prefetches="
+                + prefetches + ", stalls=" + stalls + "]";
+    }
+}
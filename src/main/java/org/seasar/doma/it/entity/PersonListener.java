@@ -15,7 +15,8 @@
  */
 package org.seasar.doma.it.entity;
 
-import org.seasar.doma.jdbc.entity.EntityListener;
+import java.util.List;
+
 import org.seasar.doma.jdbc.entity.PostDeleteContext;
 import org.seasar.doma.jdbc.entity.PostInsertContext;
 import org.seasar.doma.jdbc.entity.PostUpdateContext;
@@ -23,7 +24,7 @@ import org.seasar.doma.jdbc.entity.PreDeleteContext;
 import org.seasar.doma.jdbc.entity.PreInsertContext;
 import org.seasar.doma.jdbc.entity.PreUpdateContext;
 
-public class PersonListener implements EntityListener<Person> {
+public class PersonListener implements BatchEntityListener<Person> {
 
     @Override
     public void preDelete(Person entity, PreDeleteContext<Person> context) {
@@ -55,6 +56,42 @@ public class PersonListener implements EntityListener<Person> {
         context.setNewEntity(newPerson(entity, "_postD"));
     }
 
+    @Override
+    public void preDeleteBatch(List<Person> entities,
+            BatchListenerContext<Person> context) {
+        entities.replaceAll(entity -> newPerson(entity, "_preD"));
+    }
+
+    @Override
+    public void preInsertBatch(List<Person> entities,
+            BatchListenerContext<Person> context) {
+        entities.replaceAll(entity -> newPerson(entity, "_preI"));
+    }
+
+    @Override
+    public void preUpdateBatch(List<Person> entities,
+            BatchListenerContext<Person> context) {
+        entities.replaceAll(entity -> newPerson(entity, "_preU"));
+    }
+
+    @Override
+    public void postInsertBatch(List<Person> entities,
+            BatchListenerContext<Person> context) {
+        entities.replaceAll(entity -> newPerson(entity, "_postI"));
+    }
+
+    @Override
+    public void postUpdateBatch(List<Person> entities,
+            BatchListenerContext<Person> context) {
+        entities.replaceAll(entity -> newPerson(entity, "_postU"));
+    }
+
+    @Override
+    public void postDeleteBatch(List<Person> entities,
+            BatchListenerContext<Person> context) {
+        entities.replaceAll(entity -> newPerson(entity, "_postD"));
+    }
+
     protected Person newPerson(Person p, String suffix) {
         return new Person(p.employeeId, p.employeeNo, p.employeeName + suffix,
                 p.managerId, p.hiredate, p.salary, p.departmentId, p.addressId,
@@ -0,0 +1,284 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.entity;
+
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.seasar.doma.GenerationType;
+import org.seasar.doma.internal.jdbc.sql.InParameter;
+import org.seasar.doma.internal.jdbc.sql.PreparedSql;
+import org.seasar.doma.jdbc.SqlKind;
+import org.seasar.doma.jdbc.SqlLogType;
+import org.seasar.doma.jdbc.id.AbstractIdGenerator;
+import org.seasar.doma.jdbc.id.BuiltinTableIdGenerator;
+import org.seasar.doma.jdbc.id.IdGenerationConfig;
+import org.seasar.doma.jdbc.id.TableIdGenerator;
+
+/**
+ * A table id generator that spreads the allocations over several rows of the
+ * generator table, for {@code @TableGenerator(implementer = ...)}.
+ * <p>
+ * The generator table holds {@link #STRIPE_ROWS} rows
+ * {@code pkColumnValue + "#0"} to {@code pkColumnValue + "#3"}. With
+ * {@code n} stripes, the first {@code n} of them are used. Each thread
+ * allocates from the row of its stripe, so that threads of different stripes
+ * neither share a lock in the JVM nor update the same row. The row {@code i}
+ * is seeded with {@code base + i * allocationSize} and is always incremented
+ * by {@code STRIPE_ROWS * allocationSize}, of which only the first
+ * {@code allocationSize} ids are used, so the ranges of the rows never
+ * overlap, whatever the number of stripes was when they were handed out.
+ * <p>
+ * The row {@code pkColumnValue} of {@code BuiltinTableIdGenerator} is never
+ * used. The scripts seed the stripe rows from {@code 1000000001}, above the
+ * ids of that row, so that switching between both generators does not hand
+ * out an id twice. The stripe rows are checked the first time a data source
+ * is used, before any id is handed out.
+ */
+public class StripedTableIdGenerator extends AbstractIdGenerator implements
+        TableIdGenerator {
+
+    public static final int STRIPE_ROWS = 4;
+
+    public static final int DEFAULT_STRIPES = STRIPE_ROWS;
+
+    private static final ConcurrentMap<String, StripedTableIdGenerator> generators = new ConcurrentHashMap<>();
+
+    protected String qualifiedTableName;
+
+    protected String pkColumnName;
+
+    protected String pkColumnValue;
+
+    protected String valueColumnName;
+
+    protected long initialValue;
+
+    protected long allocationSize;
+
+    protected volatile int stripes = DEFAULT_STRIPES;
+
+    protected volatile StripeRow[] rows;
+
+    protected final ConcurrentMap<String, Stripe[]> stripesByDataSource = new ConcurrentHashMap<>();
+
+    /**
+     * @param pkColumnValue
+     *            the primary key value given to {@code @TableGenerator}
+     * @return the generator of the primary key value
+     * @throws IllegalArgumentException
+     *             if no entity with this generator has been initialized for
+     *             the primary key value
+     */
+    public static StripedTableIdGenerator of(String pkColumnValue) {
+        StripedTableIdGenerator generator = generators.get(pkColumnValue);
+        if (generator == null) {
+            throw new IllegalArgumentException("pkColumnValue: "
+                    + pkColumnValue);
+        }
+        return generator;
+    }
+
+    @Override
+    public void setQualifiedTableName(String qualifiedTableName) {
+        this.qualifiedTableName = qualifiedTableName;
+    }
+
+    @Override
+    public void setPkColumnName(String pkColumnName) {
+        this.pkColumnName = pkColumnName;
+    }
+
+    @Override
+    public void setPkColumnValue(String pkColumnValue) {
+        this.pkColumnValue = pkColumnValue;
+    }
+
+    @Override
+    public void setValueColumnName(String valueColumnName) {
+        this.valueColumnName = valueColumnName;
+    }
+
+    @Override
+    public void setInitialValue(long initialValue) {
+        this.initialValue = initialValue;
+    }
+
+    @Override
+    public void setAllocationSize(long allocationSize) {
+        this.allocationSize = allocationSize;
+    }
+
+    public int getStripes() {
+        return stripes;
+    }
+
+    /**
+     * Changes the number of stripes. The blocks allocated so far are
+     * discarded.
+     *
+     * @param stripes
+     *            the number of generator rows, at most {@link #STRIPE_ROWS}
+     */
+    public synchronized void setStripes(int stripes) {
+        if (stripes < 1 || stripes > STRIPE_ROWS) {
+            throw new IllegalArgumentException("stripes: " + stripes);
+        }
+        this.stripes = stripes;
+        if (rows != null) {
+            rows = createRows();
+            stripesByDataSource.clear();
+        }
+    }
+
+    @Override
+    public synchronized void initialize() {
+        Objects.requireNonNull(qualifiedTableName);
+        Objects.requireNonNull(pkColumnName);
+        Objects.requireNonNull(pkColumnValue);
+        Objects.requireNonNull(valueColumnName);
+        if (allocationSize < 1) {
+            throw new IllegalArgumentException("allocationSize: "
+                    + allocationSize);
+        }
+        rows = createRows();
+        generators.put(pkColumnValue, this);
+    }
+
+    protected StripeRow[] createRows() {
+        StripeRow[] rows = new StripeRow[stripes];
+        for (int i = 0; i < rows.length; i++) {
+            StripeRow row = new StripeRow();
+            row.setQualifiedTableName(qualifiedTableName);
+            row.setPkColumnName(pkColumnName);
+            row.setPkColumnValue(pkColumnValue + "#" + i);
+            row.setValueColumnName(valueColumnName);
+            row.setInitialValue(initialValue);
+            row.setAllocationSize(STRIPE_ROWS * allocationSize);
+            row.initialize();
+            rows[i] = row;
+        }
+        return rows;
+    }
+
+    @Override
+    public boolean supportsBatch(IdGenerationConfig config) {
+        return true;
+    }
+
+    @Override
+    public boolean supportsAutoGeneratedKeys(IdGenerationConfig config) {
+        return false;
+    }
+
+    @Override
+    public boolean includesIdentityColumn(IdGenerationConfig config) {
+        return true;
+    }
+
+    @Override
+    public Long generatePreInsert(IdGenerationConfig config) {
+        StripeRow[] rows = this.rows;
+        Stripe[] stripes = stripesByDataSource.computeIfAbsent(
+                config.getDataSourceName(), name -> {
+                    checkRows(config, rows);
+                    Stripe[] s = new Stripe[rows.length];
+                    for (int i = 0; i < s.length; i++) {
+                        s[i] = new Stripe(rows[i]);
+                    }
+                    return s;
+                });
+        int index = (int) (Thread.currentThread().getId() % stripes.length);
+        return stripes[index].next(config);
+    }
+
+    /**
+     * Fails if a row of the stripes is missing from the generator table.
+     */
+    protected void checkRows(IdGenerationConfig config, StripeRow[] rows) {
+        StringBuilder buf = new StringBuilder();
+        for (StripeRow row : rows) {
+            if (buf.length() > 0) {
+                buf.append(", ");
+            }
+            buf.append("'").append(row.getPkColumnValue().replace("'", "''"))
+                    .append("'");
+        }
+        String rawSql = "select count(*) from " + qualifiedTableName
+                + " where " + pkColumnName + " in (" + buf + ")";
+        long count = getGeneratedValue(config, new PreparedSql(
+                SqlKind.SELECT, rawSql, rawSql, null,
+                Collections.<InParameter<?>> emptyList(), SqlLogType.FORMATTED));
+        if (count != rows.length) {
+            throw new IllegalStateException("The table " + qualifiedTableName
+                    + " has " + count + " of the " + rows.length
+                    + " generator rows " + buf + ".");
+        }
+    }
+
+    @Override
+    public Long generatePostInsert(IdGenerationConfig config,
+            Statement statement) {
+        return null;
+    }
+
+    @Override
+    public GenerationType getGenerationType() {
+        return GenerationType.TABLE;
+    }
+
+    /**
+     * The block of one stripe and data source.
+     */
+    protected class Stripe {
+
+        protected final StripeRow row;
+
+        protected long next;
+
+        protected long limit;
+
+        protected Stripe(StripeRow row) {
+            this.row = row;
+        }
+
+        protected synchronized long next(IdGenerationConfig config) {
+            if (next == limit) {
+                next = row.fetch(config);
+                limit = next + allocationSize;
+            }
+            return next++;
+        }
+    }
+
+    /**
+     * Increments one generator row in a new transaction and returns its
+     * value before the increment.
+     */
+    protected static class StripeRow extends BuiltinTableIdGenerator {
+
+        protected long fetch(IdGenerationConfig config) {
+            return getNewInitialValue(config);
+        }
+
+        protected String getPkColumnValue() {
+            return pkColumnValue;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.entity;
+
+import org.seasar.doma.Entity;
+import org.seasar.doma.GeneratedValue;
+import org.seasar.doma.GenerationType;
+import org.seasar.doma.Id;
+import org.seasar.doma.OriginalStates;
+import org.seasar.doma.Table;
+import org.seasar.doma.TableGenerator;
+
+/**
+ * A row of TABLE_STRATEGY whose id comes from
+ * {@link StripedTableIdGenerator} instead of Doma's builtin generator.
+ */
+@Entity
+@Table(name = "TABLE_STRATEGY")
+public class StripedTableStrategy {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE)
+    @TableGenerator(pkColumnValue = "TABLE_STRATEGY_ID", allocationSize = 50,
+            implementer = StripedTableIdGenerator.class)
+    Integer id;
+
+    String value;
+
+    @OriginalStates
+    StripedTableStrategy originalStates;
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public void setValue(String value) {
+        this.value = value;
+    }
+
+}
@@ -0,0 +1 @@
+merge into COMP_KEY_DEPARTMENT (DEPARTMENT_ID1, DEPARTMENT_ID2, DEPARTMENT_NO, DEPARTMENT_NAME, LOCATION, VERSION) key (DEPARTMENT_ID1, DEPARTMENT_ID2) select /*entity.departmentId1*/1, /*entity.departmentId2*/1, /*entity.departmentNo*/1, /*entity.departmentName*/'aaa', /*entity.location*/'aaa', coalesce(/*entity.version*/0, 0) + 1 from DUAL where not exists (select 1 from COMP_KEY_DEPARTMENT where DEPARTMENT_ID1 = /*entity.departmentId1*/1 and DEPARTMENT_ID2 = /*entity.departmentId2*/1 and VERSION <> coalesce(/*entity.version*/0, 0))
\ No newline at end of file
@@ -0,0 +1,2 @@
+-- Not run here: only the H2 and HSQLDB variants are exercised.
+merge into COMP_KEY_DEPARTMENT as T using (select cast(/*entity.departmentId1*/1 as int) as DEPARTMENT_ID1, cast(/*entity.departmentId2*/1 as int) as DEPARTMENT_ID2, cast(/*entity.departmentNo*/1 as int) as DEPARTMENT_NO, cast(/*entity.departmentName*/'aaa' as varchar(20)) as DEPARTMENT_NAME, cast(/*entity.location*/'aaa' as varchar(20)) as LOCATION, coalesce(cast(/*entity.version*/0 as int), 0) as VERSION where not exists (select 1 from COMP_KEY_DEPARTMENT D where D.DEPARTMENT_ID1 = /*entity.departmentId1*/1 and D.DEPARTMENT_ID2 = /*entity.departmentId2*/1 and D.VERSION <> coalesce(/*entity.version*/0, 0))) as S on T.DEPARTMENT_ID1 = S.DEPARTMENT_ID1 and T.DEPARTMENT_ID2 = S.DEPARTMENT_ID2 when matched then update set DEPARTMENT_NO = S.DEPARTMENT_NO, DEPARTMENT_NAME = S.DEPARTMENT_NAME, LOCATION = S.LOCATION, VERSION = S.VERSION + 1 when not matched then insert (DEPARTMENT_ID1, DEPARTMENT_ID2, DEPARTMENT_NO, DEPARTMENT_NAME, LOCATION, VERSION) values (S.DEPARTMENT_ID1, S.DEPARTMENT_ID2, S.DEPARTMENT_NO, S.DEPARTMENT_NAME, S.LOCATION, S.VERSION + 1);
\ No newline at end of file
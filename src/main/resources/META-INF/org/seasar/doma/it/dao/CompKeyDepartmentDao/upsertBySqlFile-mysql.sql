@@ -0,0 +1,2 @@
+-- Not run here: only the H2 and HSQLDB variants are exercised. A version conflict selects no row, so its count is 0 whatever useAffectedRows is; an updated row counts 2, which upsert(List) accepts.
+insert into COMP_KEY_DEPARTMENT (DEPARTMENT_ID1, DEPARTMENT_ID2, DEPARTMENT_NO, DEPARTMENT_NAME, LOCATION, VERSION) select /*entity.departmentId1*/1, /*entity.departmentId2*/1, /*entity.departmentNo*/1, /*entity.departmentName*/'aaa', /*entity.location*/'aaa', coalesce(/*entity.version*/0, 0) + 1 from DUAL where not exists (select 1 from COMP_KEY_DEPARTMENT where DEPARTMENT_ID1 = /*entity.departmentId1*/1 and DEPARTMENT_ID2 = /*entity.departmentId2*/1 and VERSION <> coalesce(/*entity.version*/0, 0)) on duplicate key update DEPARTMENT_NO = values(DEPARTMENT_NO), DEPARTMENT_NAME = values(DEPARTMENT_NAME), LOCATION = values(LOCATION), VERSION = values(VERSION)
\ No newline at end of file
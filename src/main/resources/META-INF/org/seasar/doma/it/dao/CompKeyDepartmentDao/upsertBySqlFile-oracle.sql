@@ -0,0 +1,2 @@
+-- Not run here: only the H2 and HSQLDB variants are exercised.
+merge into COMP_KEY_DEPARTMENT T using (select /*entity.departmentId1*/1 DEPARTMENT_ID1, /*entity.departmentId2*/1 DEPARTMENT_ID2, /*entity.departmentNo*/1 DEPARTMENT_NO, /*entity.departmentName*/'aaa' DEPARTMENT_NAME, /*entity.location*/'aaa' LOCATION, coalesce(/*entity.version*/0, 0) VERSION from DUAL where not exists (select 1 from COMP_KEY_DEPARTMENT D where D.DEPARTMENT_ID1 = /*entity.departmentId1*/1 and D.DEPARTMENT_ID2 = /*entity.departmentId2*/1 and D.VERSION <> coalesce(/*entity.version*/0, 0))) S on (T.DEPARTMENT_ID1 = S.DEPARTMENT_ID1 and T.DEPARTMENT_ID2 = S.DEPARTMENT_ID2) when matched then update set T.DEPARTMENT_NO = S.DEPARTMENT_NO, T.DEPARTMENT_NAME = S.DEPARTMENT_NAME, T.LOCATION = S.LOCATION, T.VERSION = S.VERSION + 1 when not matched then insert (DEPARTMENT_ID1, DEPARTMENT_ID2, DEPARTMENT_NO, DEPARTMENT_NAME, LOCATION, VERSION) values (S.DEPARTMENT_ID1, S.DEPARTMENT_ID2, S.DEPARTMENT_NO, S.DEPARTMENT_NAME, S.LOCATION, S.VERSION + 1)
\ No newline at end of file
@@ -0,0 +1,2 @@
+-- Not run here: only the H2 and HSQLDB variants are exercised.
+insert into COMP_KEY_DEPARTMENT as T (DEPARTMENT_ID1, DEPARTMENT_ID2, DEPARTMENT_NO, DEPARTMENT_NAME, LOCATION, VERSION) values (/*entity.departmentId1*/1, /*entity.departmentId2*/1, /*entity.departmentNo*/1, /*entity.departmentName*/'aaa', /*entity.location*/'aaa', coalesce(/*entity.version*/0, 0) + 1) on conflict (DEPARTMENT_ID1, DEPARTMENT_ID2) do update set DEPARTMENT_NO = excluded.DEPARTMENT_NO, DEPARTMENT_NAME = excluded.DEPARTMENT_NAME, LOCATION = excluded.LOCATION, VERSION = excluded.VERSION where T.VERSION = excluded.VERSION - 1
\ No newline at end of file
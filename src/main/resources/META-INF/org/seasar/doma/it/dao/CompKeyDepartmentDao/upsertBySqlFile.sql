@@ -0,0 +1 @@
+merge into COMP_KEY_DEPARTMENT T using (select * from (values (cast(/*entity.departmentId1*/1 as integer), cast(/*entity.departmentId2*/1 as integer), cast(/*entity.departmentNo*/1 as integer), cast(/*entity.departmentName*/'aaa' as varchar(20)), cast(/*entity.location*/'aaa' as varchar(20)), coalesce(cast(/*entity.version*/0 as integer), 0))) as V (DEPARTMENT_ID1, DEPARTMENT_ID2, DEPARTMENT_NO, DEPARTMENT_NAME, LOCATION, VERSION) where not exists (select 1 from COMP_KEY_DEPARTMENT D where D.DEPARTMENT_ID1 = V.DEPARTMENT_ID1 and D.DEPARTMENT_ID2 = V.DEPARTMENT_ID2 and D.VERSION <> V.VERSION)) as S on T.DEPARTMENT_ID1 = S.DEPARTMENT_ID1 and T.DEPARTMENT_ID2 = S.DEPARTMENT_ID2 when matched then update set DEPARTMENT_NO = S.DEPARTMENT_NO, DEPARTMENT_NAME = S.DEPARTMENT_NAME, LOCATION = S.LOCATION, VERSION = S.VERSION + 1 when not matched then insert (DEPARTMENT_ID1, DEPARTMENT_ID2, DEPARTMENT_NO, DEPARTMENT_NAME, LOCATION, VERSION) values (S.DEPARTMENT_ID1, S.DEPARTMENT_ID2, S.DEPARTMENT_NO, S.DEPARTMENT_NAME, S.LOCATION, S.VERSION + 1)
\ No newline at end of file
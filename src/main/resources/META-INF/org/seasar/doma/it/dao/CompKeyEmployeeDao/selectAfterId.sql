@@ -0,0 +1,6 @@
+select * from COMP_KEY_EMPLOYEE where
+/*%if employeeId1 != null*/
+  EMPLOYEE_ID1 >= /*employeeId1*/0
+  and (EMPLOYEE_ID1 > /*employeeId1*/0 or EMPLOYEE_ID2 > /*employeeId2*/0)
+/*%end*/
+order by EMPLOYEE_ID1, EMPLOYEE_ID2
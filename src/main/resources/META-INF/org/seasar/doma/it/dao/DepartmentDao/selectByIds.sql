@@ -0,0 +1 @@
+select * from DEPARTMENT where DEPARTMENT_ID in /*departmentIds*/(1, 2) order by DEPARTMENT_ID
\ No newline at end of file
@@ -0,0 +1 @@
+merge into DEPARTMENT (DEPARTMENT_ID, DEPARTMENT_NO, DEPARTMENT_NAME, LOCATION, VERSION) key (DEPARTMENT_ID) select /*entity.departmentId*/1, /*entity.departmentNo*/1, /*entity.departmentName*/'aaa', /*entity.location*/'aaa', coalesce(/*entity.version*/0, 0) + 1 from DUAL where not exists (select 1 from DEPARTMENT where DEPARTMENT_ID = /*entity.departmentId*/1 and VERSION <> coalesce(/*entity.version*/0, 0))
\ No newline at end of file
@@ -0,0 +1,2 @@
+-- Not run here: only the H2 and HSQLDB variants are exercised.
+merge into DEPARTMENT as T using (select cast(/*entity.departmentId*/1 as int) as DEPARTMENT_ID, cast(/*entity.departmentNo*/1 as int) as DEPARTMENT_NO, cast(/*entity.departmentName*/'aaa' as varchar(20)) as DEPARTMENT_NAME, cast(/*entity.location*/'aaa' as varchar(20)) as LOCATION, coalesce(cast(/*entity.version*/0 as int), 0) as VERSION where not exists (select 1 from DEPARTMENT D where D.DEPARTMENT_ID = /*entity.departmentId*/1 and D.VERSION <> coalesce(/*entity.version*/0, 0))) as S on T.DEPARTMENT_ID = S.DEPARTMENT_ID when matched then update set DEPARTMENT_NO = S.DEPARTMENT_NO, DEPARTMENT_NAME = S.DEPARTMENT_NAME, LOCATION = S.LOCATION, VERSION = S.VERSION + 1 when not matched then insert (DEPARTMENT_ID, DEPARTMENT_NO, DEPARTMENT_NAME, LOCATION, VERSION) values (S.DEPARTMENT_ID, S.DEPARTMENT_NO, S.DEPARTMENT_NAME, S.LOCATION, S.VERSION + 1);
\ No newline at end of file
@@ -0,0 +1,2 @@
+-- Not run here: only the H2 and HSQLDB variants are exercised.
+merge into DEPARTMENT T using (select /*entity.departmentId*/1 DEPARTMENT_ID, /*entity.departmentNo*/1 DEPARTMENT_NO, /*entity.departmentName*/'aaa' DEPARTMENT_NAME, /*entity.location*/'aaa' LOCATION, coalesce(/*entity.version*/0, 0) VERSION from DUAL where not exists (select 1 from DEPARTMENT D where D.DEPARTMENT_ID = /*entity.departmentId*/1 and D.VERSION <> coalesce(/*entity.version*/0, 0))) S on (T.DEPARTMENT_ID = S.DEPARTMENT_ID) when matched then update set T.DEPARTMENT_NO = S.DEPARTMENT_NO, T.DEPARTMENT_NAME = S.DEPARTMENT_NAME, T.LOCATION = S.LOCATION, T.VERSION = S.VERSION + 1 when not matched then insert (DEPARTMENT_ID, DEPARTMENT_NO, DEPARTMENT_NAME, LOCATION, VERSION) values (S.DEPARTMENT_ID, S.DEPARTMENT_NO, S.DEPARTMENT_NAME, S.LOCATION, S.VERSION + 1)
\ No newline at end of file
@@ -0,0 +1,2 @@
+-- Not run here: only the H2 and HSQLDB variants are exercised.
+insert or replace into DEPARTMENT (DEPARTMENT_ID, DEPARTMENT_NO, DEPARTMENT_NAME, LOCATION, VERSION) select /*entity.departmentId*/1, /*entity.departmentNo*/1, /*entity.departmentName*/'aaa', /*entity.location*/'aaa', coalesce(/*entity.version*/0, 0) + 1 where not exists (select 1 from DEPARTMENT where DEPARTMENT_ID = /*entity.departmentId*/1 and VERSION <> coalesce(/*entity.version*/0, 0))
\ No newline at end of file
@@ -0,0 +1 @@
+merge into DEPARTMENT T using (select * from (values (cast(/*entity.departmentId*/1 as integer), cast(/*entity.departmentNo*/1 as integer), cast(/*entity.departmentName*/'aaa' as varchar(20)), cast(/*entity.location*/'aaa' as varchar(20)), coalesce(cast(/*entity.version*/0 as integer), 0))) as V (DEPARTMENT_ID, DEPARTMENT_NO, DEPARTMENT_NAME, LOCATION, VERSION) where not exists (select 1 from DEPARTMENT D where D.DEPARTMENT_ID = V.DEPARTMENT_ID and D.VERSION <> V.VERSION)) as S on T.DEPARTMENT_ID = S.DEPARTMENT_ID when matched then update set DEPARTMENT_NO = S.DEPARTMENT_NO, DEPARTMENT_NAME = S.DEPARTMENT_NAME, LOCATION = S.LOCATION, VERSION = S.VERSION + 1 when not matched then insert (DEPARTMENT_ID, DEPARTMENT_NO, DEPARTMENT_NAME, LOCATION, VERSION) values (S.DEPARTMENT_ID, S.DEPARTMENT_NO, S.DEPARTMENT_NAME, S.LOCATION, S.VERSION + 1)
\ No newline at end of file
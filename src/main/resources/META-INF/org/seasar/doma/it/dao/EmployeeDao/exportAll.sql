@@ -0,0 +1 @@
+select * from EMPLOYEE order by EMPLOYEE_ID
\ No newline at end of file
@@ -0,0 +1,5 @@
+select * from EMPLOYEE where
+/*%if employeeId != null*/
+  EMPLOYEE_ID > /*employeeId*/0
+/*%end*/
+order by EMPLOYEE_ID
@@ -0,0 +1 @@
+select EMPLOYEE_ID, EMPLOYEE_NO, MANAGER_ID, DEPARTMENT_ID, ADDRESS_ID, VERSION, SALARY * 100.00 as SALARY_CENTS from EMPLOYEE order by EMPLOYEE_ID
\ No newline at end of file
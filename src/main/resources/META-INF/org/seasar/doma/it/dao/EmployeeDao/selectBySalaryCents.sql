@@ -0,0 +1 @@
+select * from EMPLOYEE where SALARY * 100 = /* salary */0 order by EMPLOYEE_ID
\ No newline at end of file
@@ -0,0 +1 @@
+select min(EMPLOYEE_ID) as MIN_ID, max(EMPLOYEE_ID) as MAX_ID from EMPLOYEE
\ No newline at end of file
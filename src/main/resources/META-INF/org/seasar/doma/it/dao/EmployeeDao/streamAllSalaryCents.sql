@@ -0,0 +1 @@
+select SALARY * 100 from EMPLOYEE order by SALARY
\ No newline at end of file
@@ -0,0 +1 @@
+select salary from EMPLOYEE order by salary
\ No newline at end of file
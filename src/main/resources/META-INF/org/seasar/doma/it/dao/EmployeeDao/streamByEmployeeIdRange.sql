@@ -0,0 +1 @@
+select * from EMPLOYEE where EMPLOYEE_ID >= /*fromId*/0 and EMPLOYEE_ID < /*toId*/0 order by EMPLOYEE_ID
\ No newline at end of file
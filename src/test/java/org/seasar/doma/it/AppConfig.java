@@ -19,10 +19,22 @@ import java.util.Objects;
 
 import javax.sql.DataSource;
 
+import org.seasar.doma.it.jdbc.BatchGeneratedKeysImplementors;
+import org.seasar.doma.it.jdbc.BatchListenerImplementors;
+import org.seasar.doma.it.jdbc.CompactMapImplementors;
+import org.seasar.doma.it.jdbc.MetricsJdbcLogger;
+import org.seasar.doma.it.jdbc.MultiRowInsertImplementors;
+import org.seasar.doma.it.jdbc.PoolStatistics;
+import org.seasar.doma.it.jdbc.PooledDataSource;
+import org.seasar.doma.it.jdbc.PreloadingSqlFileRepository;
+import org.seasar.doma.it.jdbc.StatementCacheStatistics;
+import org.seasar.doma.it.jdbc.StatementCachingDataSource;
+import org.seasar.doma.it.jdbc.WindowCountImplementors;
 import org.seasar.doma.jdbc.Config;
 import org.seasar.doma.jdbc.Naming;
 import org.seasar.doma.jdbc.RequiresNewController;
 import org.seasar.doma.jdbc.SimpleDataSource;
+import org.seasar.doma.jdbc.UtilLoggingJdbcLogger;
 import org.seasar.doma.jdbc.dialect.Dialect;
 import org.seasar.doma.jdbc.tx.LocalTransactionDataSource;
 import org.seasar.doma.jdbc.tx.LocalTransactionManager;
@@ -34,18 +46,51 @@ import org.seasar.doma.jdbc.tx.TransactionManager;
  */
 public class AppConfig implements Config {
 
+    private static final int POOL_MIN_SIZE = 1;
+
+    private static final int POOL_MAX_SIZE = 10;
+
     private final Dialect dialect;
 
     private final Dbms dbms;
 
-    private final DataSource originalDataSource;
+    private final StatementCachingDataSource statementCachingDataSource;
+
+    private final PooledDataSource originalDataSource;
 
     private final LocalTransactionDataSource dataSource;
 
     private final LocalTransactionManager transactionManager;
 
+    private final WindowCountImplementors windowCountImplementors;
+
+    private final BatchListenerImplementors batchListenerImplementors;
+
+    private final MultiRowInsertImplementors multiRowInsertImplementors;
+
+    private final BatchGeneratedKeysImplementors batchGeneratedKeysImplementors;
+
+    private final CompactMapImplementors compactMapImplementors;
+
+    private volatile TuningProfile tuningProfile;
+
+    private final PreloadingSqlFileRepository sqlFileRepository = new PreloadingSqlFileRepository();
+
+    private final MetricsJdbcLogger jdbcLogger = new MetricsJdbcLogger(
+            new UtilLoggingJdbcLogger());
+
     public AppConfig(Dialect dialect, Dbms dbms, String url, String user,
             String password) {
+        this(dialect, dbms, url, user, password, 0);
+    }
+
+    /**
+     * @param statementCacheSize
+     *            the number of prepared statements cached per connection, or
+     *            {@code 0} to disable the cache
+     */
+    public AppConfig(Dialect dialect, Dbms dbms, String url, String user,
+            String password, int statementCacheSize) {
         Objects.requireNonNull(dialect);
         Objects.requireNonNull(dbms);
         Objects.requireNonNull(url);
@@ -53,13 +98,36 @@ public class AppConfig implements Config {
         Objects.requireNonNull(password);
         this.dialect = dialect;
         this.dbms = dbms;
-        originalDataSource = createDataSource(url, user, password);
+        this.tuningProfile = TuningProfile.of(dbms);
+        SimpleDataSource simpleDataSource = createSimpleDataSource(url, user,
+                password);
+        if (statementCacheSize > 0) {
+            statementCachingDataSource = new StatementCachingDataSource(
+                    simpleDataSource, statementCacheSize);
+            originalDataSource = new PooledDataSource(
+                    statementCachingDataSource, POOL_MIN_SIZE, POOL_MAX_SIZE);
+        } else {
+            statementCachingDataSource = null;
+            originalDataSource = new PooledDataSource(simpleDataSource,
+                    POOL_MIN_SIZE, POOL_MAX_SIZE);
+        }
         dataSource = new LocalTransactionDataSource(originalDataSource);
         transactionManager = new LocalTransactionManager(
                 dataSource.getLocalTransaction(getJdbcLogger()));
+        windowCountImplementors = new WindowCountImplementors(
+                originalDataSource, dialect);
+        batchListenerImplementors = new BatchListenerImplementors(
+                windowCountImplementors);
+        multiRowInsertImplementors = new MultiRowInsertImplementors(
+                windowCountImplementors);
+        batchGeneratedKeysImplementors = new BatchGeneratedKeysImplementors(
+                multiRowInsertImplementors);
+        compactMapImplementors = new CompactMapImplementors(
+                batchGeneratedKeysImplementors);
     }
 
-    private DataSource createDataSource(String url, String user, String password) {
+    private SimpleDataSource createSimpleDataSource(String url, String user,
+            String password) {
         SimpleDataSource dataSource = new SimpleDataSource();
         dataSource.setUrl(url);
         dataSource.setUser(user);
@@ -82,6 +150,79 @@ public class AppConfig implements Config {
         return dbms.name();
     }
 
+    @Override
+    public int getFetchSize() {
+        return tuningProfile.getFetchSize();
+    }
+
+    @Override
+    public int getMaxRows() {
+        return tuningProfile.getMaxRows();
+    }
+
+    @Override
+    public int getBatchSize() {
+        return tuningProfile.getBatchSize();
+    }
+
+    @Override
+    public int getQueryTimeout() {
+        return tuningProfile.getQueryTimeout();
+    }
+
+    @Override
+    public PreloadingSqlFileRepository getSqlFileRepository() {
+        return sqlFileRepository;
+    }
+
+    @Override
+    public MetricsJdbcLogger getJdbcLogger() {
+        return jdbcLogger;
+    }
+
+    @Override
+    public BatchListenerImplementors getQueryImplementors() {
+        return batchListenerImplementors;
+    }
+
+    public WindowCountImplementors getWindowCountImplementors() {
+        return windowCountImplementors;
+    }
+
+    @Override
+    public CompactMapImplementors getCommandImplementors() {
+        return compactMapImplementors;
+    }
+
+    public MultiRowInsertImplementors getMultiRowInsertImplementors() {
+        return multiRowInsertImplementors;
+    }
+
+    public BatchGeneratedKeysImplementors getBatchGeneratedKeysImplementors() {
+        return batchGeneratedKeysImplementors;
+    }
+
+    public boolean isBatchGeneratedKeys() {
+        return batchGeneratedKeysImplementors.isEnabled();
+    }
+
+    /**
+     * Switches how {@code @BatchInsert} gets the keys of identity columns:
+     * reserved before the batch when the dialect is
+     * {@link IdentityReservingH2Dialect}, read from the whole batch where the
+     * driver returns them, or, when {@code false}, row by row as Doma does.
+     *
+     * @param batchGeneratedKeys
+     *            {@code true} to send identity batches as JDBC batches
+     */
+    public void setBatchGeneratedKeys(boolean batchGeneratedKeys) {
+        batchGeneratedKeysImplementors.setEnabled(batchGeneratedKeys);
+        if (dialect instanceof IdentityReservingH2Dialect) {
+            ((IdentityReservingH2Dialect) dialect)
+                    .setIdentityReservation(batchGeneratedKeys);
+        }
+    }
+
     @Override
     public RequiresNewController getRequiresNewController() {
         return new RequiresNewController() {
@@ -103,10 +244,40 @@ public class AppConfig implements Config {
         return dbms;
     }
 
+    public TuningProfile getTuningProfile() {
+        return tuningProfile;
+    }
+
+    /**
+     * Replaces the tuning profile. Queries built afterwards use the new
+     * values.
+     *
+     * @param tuningProfile
+     *            the tuning profile
+     */
+    public void setTuningProfile(TuningProfile tuningProfile) {
+        this.tuningProfile = Objects.requireNonNull(tuningProfile);
+    }
+
     public DataSource getOriginalDataSource() {
         return originalDataSource;
     }
 
+    public PoolStatistics getPoolStatistics() {
+        return originalDataSource.getStatistics();
+    }
+
+    /**
+     * @return the statement cache counters, or {@code null} when the cache is
+     *         disabled
+     */
+    public StatementCacheStatistics getStatementCacheStatistics() {
+        if (statementCachingDataSource == null) {
+            return null;
+        }
+        return statementCachingDataSource.getStatistics();
+    }
+
     @Override
     public Naming getNaming() {
         return Naming.SNAKE_UPPER_CASE;
@@ -24,6 +24,7 @@ import java.util.regex.Pattern;
 import org.junit.rules.TestWatcher;
 import org.junit.runner.Description;
 import org.seasar.doma.it.dao.ScriptDao;
+import org.seasar.doma.it.jdbc.SqlFileWarmUpResult;
 import org.seasar.doma.jdbc.dialect.Db2Dialect;
 import org.seasar.doma.jdbc.dialect.H2Dialect;
 import org.seasar.doma.jdbc.dialect.HsqldbDialect;
@@ -52,14 +53,7 @@ public class Container extends TestWatcher {
     @Override
     protected void starting(Description description) {
         if (config == null) {
-            String url = getProperty("url",
-                    "jdbc:h2:mem:doma_it;DB_CLOSE_DELAY=-1");
-            logger.log(Level.INFO, "url=" + url);
-            String user = getProperty("user", "sa");
-            logger.log(Level.INFO, "user=" + user);
-            String password = getProperty("password", "");
-            Dbms dbms = determineDbms(url);
-            config = createConfig(dbms, url, user, password);
+            config = createConfig();
             config.getTransactionManager().required(() -> {
                 ScriptDao dao = ScriptDao.get(config);
                 dao.create();
@@ -67,6 +61,52 @@ public class Container extends TestWatcher {
         }
     }
 
+    protected AppConfig createConfig() {
+        String url = getProperty("url", "jdbc:h2:mem:doma_it;DB_CLOSE_DELAY=-1");
+        logger.log(Level.INFO, "url=" + url);
+        String user = getProperty("user", "sa");
+        logger.log(Level.INFO, "user=" + user);
+        String password = getProperty("password", "");
+        int statementCacheSize = Integer.parseInt(getProperty(
+                "statementCacheSize", "0"));
+        logger.log(Level.INFO, "statementCacheSize=" + statementCacheSize);
+        Dbms dbms = determineDbms(url);
+        AppConfig config = createConfig(dbms, url, user, password,
+                statementCacheSize);
+        config.setTuningProfile(TuningProfile.fromSystemProperties(dbms));
+        config.getWindowCountImplementors().setEnabled(
+                Boolean.parseBoolean(getProperty("windowCount", "false")));
+        logger.log(Level.INFO, "windowCount="
+                + config.getWindowCountImplementors().isAvailable());
+        config.getQueryImplementors().setEnabled(
+                Boolean.parseBoolean(getProperty("batchListeners", "false")));
+        logger.log(Level.INFO, "batchListeners="
+                + config.getQueryImplementors().isEnabled());
+        config.getCommandImplementors().setEnabled(
+                Boolean.parseBoolean(getProperty("compactMaps", "false")));
+        logger.log(Level.INFO, "compactMaps="
+                + config.getCommandImplementors().isEnabled());
+        config.getMultiRowInsertImplementors().setRowsPerStatement(
+                Integer.parseInt(getProperty("multiRowInsert", "0")));
+        logger.log(Level.INFO, "multiRowInsert="
+                + config.getMultiRowInsertImplementors().getRowsPerStatement());
+        config.setBatchGeneratedKeys(isBatchGeneratedKeys());
+        logger.log(Level.INFO, "batchGeneratedKeys="
+                + config.isBatchGeneratedKeys());
+        logger.log(Level.INFO, config.getTuningProfile().toString());
+        warmUp(config);
+        return config;
+    }
+
+    protected void warmUp(AppConfig config) {
+        SqlFileWarmUpResult result = config.getSqlFileRepository().warmUp(
+                config.getDialect());
+        logger.log(Level.INFO, result.toString());
+        result.getErrors().forEach(
+                (path, e) -> logger.log(Level.WARNING,
+                        "Failed to warm up " + path, e));
+    }
+
     protected String getProperty(String key, String defaultValue) {
         String value = System.getProperty(key);
         if (value != null && value.length() > 0) {
@@ -84,27 +124,49 @@ public class Container extends TestWatcher {
     }
 
     protected AppConfig createConfig(Dbms dbms, String url, String user,
-            String password) {
+            String password, int statementCacheSize) {
         switch (dbms) {
         case H2:
-            return new AppConfig(new H2Dialect(), dbms, url, user, password);
+            return new AppConfig(createH2Dialect(), dbms, url, user, password,
+                    statementCacheSize);
         case HSQLDB:
-            return new AppConfig(new HsqldbDialect(), dbms, url, user, password);
+            return new AppConfig(new HsqldbDialect(), dbms, url, user, password,
+                    statementCacheSize);
         case SQLITE:
-            return new AppConfig(new SqliteDialect(), dbms, url, user, password);
+            return new AppConfig(new SqliteDialect(), dbms, url, user, password,
+                    statementCacheSize);
         case MYSQL:
-            return new AppConfig(new MysqlDialect(), dbms, url, user, password);
+            return new AppConfig(new MysqlDialect(), dbms, url, user, password,
+                    statementCacheSize);
         case POSTGRESQL:
             return new AppConfig(new PostgresDialect(), dbms, url, user,
-                    password);
+                    password, statementCacheSize);
         case SQLSERVER:
-            return new AppConfig(new MssqlDialect(), dbms, url, user, password);
+            return new AppConfig(new MssqlDialect(), dbms, url, user, password,
+                    statementCacheSize);
         case ORACLE:
-            return new AppConfig(new OracleDialect(), dbms, url, user, password);
+            return new AppConfig(new OracleDialect(), dbms, url, user, password,
+                    statementCacheSize);
         case DB2:
-            return new AppConfig(new Db2Dialect(), dbms, url, user, password);
+            return new AppConfig(new Db2Dialect(), dbms, url, user, password,
+                    statementCacheSize);
         }
         throw new IllegalArgumentException("unreachable: " + dbms);
     }
 
+    protected boolean isBatchGeneratedKeys() {
+        return Boolean.parseBoolean(getProperty("batchGeneratedKeys", "false"));
+    }
+
+    /**
+     * Returns {@link IdentityReservingH2Dialect} only when batch generated
+     * keys are switched on, so that H2 otherwise runs Doma's own dialect.
+     */
+    protected H2Dialect createH2Dialect() {
+        if (isBatchGeneratedKeys()) {
+            return new IdentityReservingH2Dialect();
+        }
+        return new H2Dialect();
+    }
+
 }
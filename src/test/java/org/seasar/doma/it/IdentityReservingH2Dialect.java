@@ -0,0 +1,100 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it;
+
+import java.util.Collections;
+import java.util.Objects;
+
+import org.seasar.doma.internal.jdbc.sql.PreparedSql;
+import org.seasar.doma.jdbc.JdbcMappingVisitor;
+import org.seasar.doma.jdbc.Sql;
+import org.seasar.doma.jdbc.SqlKind;
+import org.seasar.doma.jdbc.SqlLogType;
+import org.seasar.doma.jdbc.dialect.H2Dialect;
+
+/**
+ * An H2 dialect that reserves identity values for {@code @BatchInsert} from
+ * the sequence behind the identity column, as Doma does for PostgreSQL.
+ * <p>
+ * The H2 driver returns only the last generated key of a JDBC batch, so
+ * without a reservation every row of an identity batch is executed on its
+ * own. With it, the values are selected with one query and the rows are
+ * inserted with them as one batch.
+ */
+public class IdentityReservingH2Dialect extends H2Dialect {
+
+    protected volatile boolean identityReservation = true;
+
+    public IdentityReservingH2Dialect() {
+    }
+
+    public IdentityReservingH2Dialect(JdbcMappingVisitor jdbcMappingVisitor) {
+        super(jdbcMappingVisitor);
+    }
+
+    @Override
+    public boolean supportsIdentityReservation() {
+        return identityReservation;
+    }
+
+    @Override
+    public Sql<?> getIdentityReservationSql(String catalogName,
+            String schemaName, String tableName, String columnName,
+            boolean isQuoteRequired, int reservationSize) {
+        Objects.requireNonNull(tableName);
+        Objects.requireNonNull(columnName);
+        String schema = schemaName == null || schemaName.isEmpty() ? "SCHEMA()"
+                : literal(schemaName, isQuoteRequired);
+        String table = literal(tableName, isQuoteRequired);
+        String column = literal(columnName, isQuoteRequired);
+        // the sequence is looked up once; when the column has none, NEXTVAL
+        // fails with "sequence not found" instead of returning no identities
+        StringBuilder buf = new StringBuilder(256);
+        buf.append("select NEXTVAL(").append(schema).append(", s.NAME) from ");
+        buf.append("(select coalesce(max(SEQUENCE_NAME), ");
+        buf.append(literal(tableName + "." + columnName, isQuoteRequired));
+        buf.append(") NAME from INFORMATION_SCHEMA.COLUMNS");
+        buf.append(" where TABLE_SCHEMA = ").append(schema);
+        buf.append(" and TABLE_NAME = ").append(table);
+        buf.append(" and COLUMN_NAME = ").append(column);
+        buf.append(") s, SYSTEM_RANGE(1, ").append(reservationSize).append(")");
+        String rawSql = buf.toString();
+        return new PreparedSql(SqlKind.SELECT, rawSql, rawSql, null,
+                Collections.emptyList(), SqlLogType.FORMATTED);
+    }
+
+    /**
+     * @return the name as a string literal, in upper case unless it is
+     *         quoted, as H2 stores unquoted names
+     */
+    protected String literal(String name, boolean isQuoteRequired) {
+        String value = isQuoteRequired ? name : name.toUpperCase();
+        return "'" + value.replace("'", "''") + "'";
+    }
+
+    public boolean isIdentityReservation() {
+        return identityReservation;
+    }
+
+    /**
+     * @param identityReservation
+     *            {@code false} to let H2 generate the identity of each row
+     *            as {@link H2Dialect} does
+     */
+    public void setIdentityReservation(boolean identityReservation) {
+        this.identityReservation = identityReservation;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it;
+
+import java.util.Objects;
+
+/**
+ * The JDBC tuning values that {@link AppConfig} returns from
+ * {@link org.seasar.doma.jdbc.Config#getFetchSize()},
+ * {@link org.seasar.doma.jdbc.Config#getMaxRows()},
+ * {@link org.seasar.doma.jdbc.Config#getBatchSize()} and
+ * {@link org.seasar.doma.jdbc.Config#getQueryTimeout()}.
+ * <p>
+ * These are defaults only. A DAO method overrides them with the
+ * {@code fetchSize}, {@code maxRows}, {@code batchSize} and
+ * {@code queryTimeout} elements of its annotation, for example
+ * {@code @Select(fetchSize = 1000)}. A value of {@code 0} leaves the driver
+ * default in place.
+ */
+public class TuningProfile {
+
+    public static final String FETCH_SIZE = "tuning.fetchSize";
+
+    public static final String MAX_ROWS = "tuning.maxRows";
+
+    public static final String BATCH_SIZE = "tuning.batchSize";
+
+    public static final String QUERY_TIMEOUT = "tuning.queryTimeout";
+
+    private final int fetchSize;
+
+    private final int maxRows;
+
+    private final int batchSize;
+
+    private final int queryTimeout;
+
+    public TuningProfile(int fetchSize, int maxRows, int batchSize,
+            int queryTimeout) {
+        if (fetchSize < 0) {
+            throw new IllegalArgumentException("fetchSize: " + fetchSize);
+        }
+        if (maxRows < 0) {
+            throw new IllegalArgumentException("maxRows: " + maxRows);
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize: " + batchSize);
+        }
+        if (queryTimeout < 0) {
+            throw new IllegalArgumentException("queryTimeout: "
+                    + queryTimeout);
+        }
+        this.fetchSize = fetchSize;
+        this.maxRows = maxRows;
+        this.batchSize = batchSize;
+        this.queryTimeout = queryTimeout;
+    }
+
+    /**
+     * Returns the default profile of a DBMS.
+     * <p>
+     * Drivers that fetch a handful of rows per round trip by default (Oracle,
+     * DB2) or that buffer the whole result unless a fetch size is given
+     * (PostgreSQL inside a transaction) get an explicit fetch size. The
+     * embedded databases and the drivers whose fetch size has special
+     * semantics (MySQL, SQLite, SQL Server) keep the driver default. Every
+     * DBMS sends batches of 100 statements.
+     *
+     * @param dbms
+     *            the DBMS
+     * @return the profile
+     */
+    public static TuningProfile of(Dbms dbms) {
+        Objects.requireNonNull(dbms);
+        switch (dbms) {
+        case H2:
+        case HSQLDB:
+        case SQLITE:
+        case MYSQL:
+        case SQLSERVER:
+            return new TuningProfile(0, 0, 100, 0);
+        case POSTGRESQL:
+            return new TuningProfile(500, 0, 100, 0);
+        case ORACLE:
+        case DB2:
+            return new TuningProfile(200, 0, 100, 0);
+        }
+        throw new IllegalArgumentException("unreachable: " + dbms);
+    }
+
+    /**
+     * Returns the default profile of a DBMS with the values of the
+     * {@code tuning.*} system properties applied.
+     *
+     * @param dbms
+     *            the DBMS
+     * @return the profile
+     */
+    public static TuningProfile fromSystemProperties(Dbms dbms) {
+        TuningProfile profile = of(dbms);
+        return new TuningProfile(Integer.getInteger(FETCH_SIZE,
+                profile.fetchSize), Integer.getInteger(MAX_ROWS,
+                profile.maxRows), Integer.getInteger(BATCH_SIZE,
+                profile.batchSize), Integer.getInteger(QUERY_TIMEOUT,
+                profile.queryTimeout));
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public int getMaxRows() {
+        return maxRows;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getQueryTimeout() {
+        return queryTimeout;
+    }
+
+    public TuningProfile withFetchSize(int fetchSize) {
+        return new TuningProfile(fetchSize, maxRows, batchSize, queryTimeout);
+    }
+
+    public TuningProfile withMaxRows(int maxRows) {
+        return new TuningProfile(fetchSize, maxRows, batchSize, queryTimeout);
+    }
+
+    public TuningProfile withBatchSize(int batchSize) {
+        return new TuningProfile(fetchSize, maxRows, batchSize, queryTimeout);
+    }
+
+    public TuningProfile withQueryTimeout(int queryTimeout) {
+        return new TuningProfile(fetchSize, maxRows, batchSize, queryTimeout);
+    }
+
+    @Override
+    public String toString() {
+        return "TuningProfile [fetchSize=" + fetchSize + ", maxRows="
+                + maxRows + ", batchSize=" + batchSize + ", queryTimeout="
+                + queryTimeout + "]";
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.seasar.doma.it.dao.EmployeeDao;
+import org.seasar.doma.it.entity.Employee;
+
+public class TuningProfileTest {
+
+    @ClassRule
+    public static Container container = new Container();
+
+    @Rule
+    public Sandbox sandbox = new Sandbox(container);
+
+    @Test
+    public void testOf() throws Exception {
+        for (Dbms dbms : Dbms.values()) {
+            TuningProfile profile = TuningProfile.of(dbms);
+            assertEquals(0, profile.getMaxRows());
+            assertEquals(100, profile.getBatchSize());
+        }
+        assertEquals(500, TuningProfile.of(Dbms.POSTGRESQL).getFetchSize());
+        assertEquals(200, TuningProfile.of(Dbms.ORACLE).getFetchSize());
+    }
+
+    @Test
+    public void testAppConfig() throws Exception {
+        AppConfig config = container.get(c -> c);
+        TuningProfile original = config.getTuningProfile();
+        assertEquals(original.getBatchSize(), config.getBatchSize());
+        try {
+            config.setTuningProfile(original.withFetchSize(3).withMaxRows(5));
+            assertEquals(3, config.getFetchSize());
+            EmployeeDao dao = EmployeeDao.get(config);
+            List<Employee> list = dao.streamAll(s -> s.collect(Collectors
+                    .toList()));
+            assertEquals(5, list.size());
+        } finally {
+            config.setTuningProfile(original);
+        }
+    }
+}
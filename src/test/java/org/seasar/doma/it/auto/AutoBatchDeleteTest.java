@@ -15,11 +15,16 @@
  */
 package org.seasar.doma.it.auto;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import java.util.OptionalInt;
 
@@ -28,11 +33,13 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.seasar.doma.it.Container;
 import org.seasar.doma.it.Sandbox;
+import org.seasar.doma.it.dao.BatchUpdateResult;
 import org.seasar.doma.it.dao.BusinessmanDao;
 import org.seasar.doma.it.dao.CompKeyEmployeeDao;
 import org.seasar.doma.it.dao.EmployeeDao;
 import org.seasar.doma.it.dao.NoIdDao;
 import org.seasar.doma.it.dao.PersonDao;
+import org.seasar.doma.it.dao.SetBasedDeleter;
 import org.seasar.doma.it.dao.StaffDao;
 import org.seasar.doma.it.dao.WorkerDao;
 import org.seasar.doma.it.entity.Businessman;
@@ -45,6 +52,7 @@ import org.seasar.doma.it.entity.Worker;
 import org.seasar.doma.jdbc.BatchResult;
 import org.seasar.doma.jdbc.JdbcException;
 import org.seasar.doma.jdbc.OptimisticLockException;
+import org.seasar.doma.jdbc.builder.UpdateBuilder;
 import org.seasar.doma.message.Message;
 
 public class AutoBatchDeleteTest {
@@ -250,4 +258,65 @@ public class AutoBatchDeleteTest {
         assertNull(staff);
     }
 
+
+    @Test
+    public void testSetBasedDelete() throws Exception {
+        EmployeeDao dao = container.get(EmployeeDao::get);
+        List<Employee> employees = dao.selectAll().subList(1, 13);
+        SetBasedDeleter<Employee> deleter = dao.setBasedDeleter();
+        deleter.setChunkSize(5);
+        BatchUpdateResult<Employee> result = deleter.delete(employees);
+        assertEquals(12, result.getRows());
+        assertEquals(12, result.getUpdateCount());
+        assertFalse(result.hasConflicts());
+        assertEquals(2, dao.selectAll().size());
+    }
+
+    @Test
+    public void testSetBasedDelete_conflicts() throws Exception {
+        EmployeeDao dao = container.get(EmployeeDao::get);
+        List<Employee> employees = dao.selectAll();
+        UpdateBuilder builder = UpdateBuilder.newInstance(container
+                .get(c -> c));
+        builder.sql("update EMPLOYEE set VERSION = VERSION + 1 ");
+        builder.sql("where EMPLOYEE_ID in (3, 8)");
+        builder.execute();
+        SetBasedDeleter<Employee> deleter = dao.setBasedDeleter();
+        deleter.setChunkSize(5);
+        BatchUpdateResult<Employee> result = deleter.delete(employees);
+        assertEquals(12, result.getUpdateCount());
+        assertArrayEquals(new int[] { 2, 7 }, result.conflictIndexes()
+                .toArray());
+        List<Employee> remaining = dao.selectAll();
+        assertEquals(2, remaining.size());
+        assertEquals(Integer.valueOf(3), remaining.get(0).getEmployeeId());
+        assertEquals(Integer.valueOf(8), remaining.get(1).getEmployeeId());
+    }
+
+    @Test
+    public void testSetBasedDelete_compositeKey() throws Exception {
+        CompKeyEmployeeDao dao = container.get(CompKeyEmployeeDao::get);
+        CompKeyEmployee employee = dao.selectById(1, 1);
+        CompKeyEmployee employee2 = dao.selectById(2, 2);
+        CompKeyEmployee stale = dao.selectById(3, 3);
+        stale.setVersion(stale.getVersion() + 1);
+        BatchUpdateResult<CompKeyEmployee> result = dao.setBasedDeleter()
+                .delete(Arrays.asList(employee, employee2, stale));
+        assertEquals(2, result.getUpdateCount());
+        assertTrue(result.isConflict(2));
+        assertNull(dao.selectById(1, 1));
+        assertNull(dao.selectById(2, 2));
+        assertNotNull(dao.selectById(3, 3));
+    }
+
+    @Test
+    public void testSetBasedDelete_listener() throws Exception {
+        PersonDao dao = container.get(PersonDao::get);
+        try {
+            new SetBasedDeleter<>(container.get(c -> c), Person.class,
+                    entities -> dao.delete(entities).getCounts());
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
 }
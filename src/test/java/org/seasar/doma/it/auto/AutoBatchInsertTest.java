@@ -22,15 +22,22 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.sql.Date;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalInt;
 
 import org.junit.ClassRule;
 import org.junit.Rule;
 import org.junit.Test;
+import org.seasar.doma.MapKeyNamingType;
+import org.seasar.doma.it.AppConfig;
 import org.seasar.doma.it.Container;
 import org.seasar.doma.it.Dbms;
+import org.seasar.doma.it.IdentityReservingH2Dialect;
 import org.seasar.doma.it.Run;
 import org.seasar.doma.it.Sandbox;
 import org.seasar.doma.it.dao.BusinessmanDao;
@@ -56,8 +63,12 @@ import org.seasar.doma.it.entity.Staff;
 import org.seasar.doma.it.entity.StaffInfo;
 import org.seasar.doma.it.entity.TableStrategy;
 import org.seasar.doma.it.entity.Worker;
+import org.seasar.doma.it.jdbc.DelegatingConfig;
 import org.seasar.doma.jdbc.BatchResult;
+import org.seasar.doma.jdbc.Config;
 import org.seasar.doma.jdbc.JdbcException;
+import org.seasar.doma.jdbc.builder.SelectBuilder;
+import org.seasar.doma.jdbc.dialect.Dialect;
 import org.seasar.doma.message.Message;
 
 public class AutoBatchInsertTest {
@@ -202,6 +213,52 @@ public class AutoBatchInsertTest {
         }
     }
 
+    @Test
+    @Run(unless = { Dbms.ORACLE })
+    public void testId_Identity_batchGeneratedKeys() throws Exception {
+        AppConfig config = container.get(c -> c);
+        // on H2 the keys of a batch come from an identity reservation
+        IdentityReservingH2Dialect dialect = null;
+        Config daoConfig = config;
+        if (config.getDbms() == Dbms.H2
+                && !(config.getDialect() instanceof IdentityReservingH2Dialect)) {
+            dialect = new IdentityReservingH2Dialect();
+            daoConfig = withDialect(config, dialect);
+        }
+        IdentityStrategyDao dao = IdentityStrategyDao.get(daoConfig);
+        boolean batchGeneratedKeys = config.isBatchGeneratedKeys();
+        try {
+            for (boolean enabled : new boolean[] { true, false }) {
+                config.setBatchGeneratedKeys(enabled);
+                if (dialect != null) {
+                    dialect.setIdentityReservation(enabled);
+                }
+                List<IdentityStrategy> entities = new ArrayList<>();
+                for (int i = 0; i < 250; i++) {
+                    IdentityStrategy entity = new IdentityStrategy();
+                    entity.setValue(enabled ? i : 1000 + i);
+                    entities.add(entity);
+                }
+                int[] result = dao.insert(entities);
+                assertEquals(250, result.length);
+                SelectBuilder builder = SelectBuilder.newInstance(config);
+                builder.sql("select ID, VALUE from IDENTITY_STRATEGY");
+                Map<Integer, Integer> values = new HashMap<>();
+                for (Map<String, Object> row : builder
+                        .getMapResultList(MapKeyNamingType.NONE)) {
+                    values.put(((Number) row.get("ID")).intValue(), Integer
+                            .valueOf(row.get("VALUE").toString()));
+                }
+                for (IdentityStrategy entity : entities) {
+                    assertNotNull(entity.getId());
+                    assertEquals(entity.getValue(), values.get(entity.getId()));
+                }
+            }
+        } finally {
+            config.setBatchGeneratedKeys(batchGeneratedKeys);
+        }
+    }
+
     @Test
     @Run(unless = { Dbms.MYSQL, Dbms.SQLSERVER, Dbms.SQLITE })
     public void testId_sequence() throws Exception {
@@ -331,4 +388,14 @@ public class AutoBatchInsertTest {
         assertEquals(Date.valueOf("2016-04-01"), staff.staffInfo.hiredate);
         assertEquals(5678L, staff.staffInfo.salary.getValue().longValue());
     }
+
+    private Config withDialect(Config config, Dialect dialect) {
+        return new DelegatingConfig(config) {
+
+            @Override
+            public Dialect getDialect() {
+                return dialect;
+            }
+        };
+    }
 }
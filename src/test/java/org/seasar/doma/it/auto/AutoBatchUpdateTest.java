@@ -15,21 +15,27 @@
  */
 package org.seasar.doma.it.auto;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.sql.Date;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import java.util.OptionalInt;
+import java.util.stream.Collectors;
 
 import org.junit.ClassRule;
 import org.junit.Rule;
 import org.junit.Test;
 import org.seasar.doma.it.Container;
 import org.seasar.doma.it.Sandbox;
+import org.seasar.doma.it.dao.BatchUpdateResult;
 import org.seasar.doma.it.dao.BusinessmanDao;
 import org.seasar.doma.it.dao.CompKeyDepartmentDao;
 import org.seasar.doma.it.dao.DepartmentDao;
@@ -227,6 +233,63 @@ public class AutoBatchUpdateTest {
                 department3));
     }
 
+    @Test
+    public void testUpdateReportingConflicts() throws Exception {
+        DepartmentDao dao = container.get(DepartmentDao::get);
+        List<Department> departments = dao.selectByIds(Arrays.asList(1, 2,
+                3, 4));
+        Department concurrent = dao.selectById(2);
+        concurrent.setDepartmentName("hoge");
+        dao.update(concurrent);
+        concurrent = dao.selectById(4);
+        concurrent.setDepartmentName("hoge");
+        dao.update(concurrent);
+        departments.forEach(d -> d.setDepartmentName("foo"));
+
+        BatchUpdateResult<Department> result = dao
+                .updateReportingConflicts(departments);
+        assertEquals(4, result.getRows());
+        assertEquals(2, result.getUpdateCount());
+        assertEquals(2, result.getConflictCount());
+        assertTrue(result.isConflict(1));
+        assertFalse(result.isConflict(2));
+        assertArrayEquals(new int[] { 1, 3 }, result.conflictIndexes()
+                .toArray());
+
+        List<Integer> ids = result.getConflictingEntities().stream()
+                .map(d -> d.getDepartmentId().getValue())
+                .collect(Collectors.toList());
+        assertEquals(Arrays.asList(2, 4), ids);
+        assertEquals(new Integer(1), departments.get(1).getVersion());
+        assertEquals(new Integer(2), departments.get(2).getVersion());
+        List<Department> retry = dao.selectByIds(ids);
+        retry.forEach(d -> d.setDepartmentName("foo"));
+        result = dao.updateReportingConflicts(retry);
+        assertFalse(result.hasConflicts());
+        assertEquals(2, result.getUpdateCount());
+        assertEquals("foo", dao.selectById(4).getDepartmentName());
+    }
+
+    @Test
+    public void testUpdateReportingConflicts_retryAsReturned()
+            throws Exception {
+        DepartmentDao dao = container.get(DepartmentDao::get);
+        List<Department> departments = dao.selectByIds(Arrays.asList(1, 2));
+        Department concurrent = dao.selectById(2);
+        concurrent.setDepartmentName("hoge");
+        dao.update(concurrent);
+        departments.forEach(d -> d.setDepartmentName("foo"));
+
+        BatchUpdateResult<Department> result = dao
+                .updateReportingConflicts(departments);
+        assertEquals(1, result.getConflictCount());
+        result = dao.updateReportingConflicts(result
+                .getConflictingEntities());
+        assertEquals(1, result.getConflictCount());
+        assertEquals(0, result.getUpdateCount());
+        assertEquals("hoge", dao.selectById(2).getDepartmentName());
+    }
+
     @Test
     public void testNoId() throws Exception {
         NoIdDao dao = container.get(NoIdDao::get);
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.auto;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.seasar.doma.it.Container;
+import org.seasar.doma.it.Sandbox;
+import org.seasar.doma.it.dao.BatchWriteResult;
+import org.seasar.doma.it.dao.BatchWriter;
+import org.seasar.doma.it.dao.DepartmentDao;
+import org.seasar.doma.it.domain.Identity;
+import org.seasar.doma.it.entity.Department;
+import org.seasar.doma.jdbc.JdbcException;
+import org.seasar.doma.jdbc.builder.DeleteBuilder;
+import org.seasar.doma.jdbc.builder.SelectBuilder;
+import org.seasar.doma.jdbc.tx.TransactionManager;
+
+public class AutoBatchWriterTest {
+
+    @ClassRule
+    public static Container container = new Container();
+
+    @Rule
+    public Sandbox sandbox = new Sandbox(container);
+
+    @Test
+    public void testInsertInCallerTransaction() throws Exception {
+        DepartmentDao dao = container.get(DepartmentDao::get);
+        BatchWriter<Department> writer = dao.batchInserter();
+        writer.setChunkSize(10);
+        List<BatchWriteResult> progress = new ArrayList<>();
+        writer.setProgressListener(progress::add);
+        BatchWriteResult result = writer.write(departments(100, 25));
+        assertEquals(25, result.getRows());
+        assertEquals(25, result.getUpdateCount());
+        assertEquals(3, result.getChunks());
+        assertEquals(0, result.getCommits());
+        assertEquals(3, progress.size());
+        assertEquals(10, progress.get(0).getRows());
+        assertEquals(20, progress.get(1).getRows());
+        assertEquals(25, countFrom(100));
+    }
+
+    @Test
+    public void testUpdate() throws Exception {
+        DepartmentDao dao = container.get(DepartmentDao::get);
+        BatchWriter<Department> writer = dao.batchUpdater();
+        writer.setChunkSize(3);
+        BatchWriteResult result = writer.write(IntStream.rangeClosed(1, 4)
+                .mapToObj(id -> {
+                    Department department = dao.selectById(id);
+                    department.setDepartmentName("DEPT" + id);
+                    return department;
+                }).iterator());
+        assertEquals(4, result.getUpdateCount());
+        assertEquals(2, result.getChunks());
+        assertEquals("DEPT4", dao.selectById(4).getDepartmentName());
+    }
+
+    @Test
+    public void testCommitInterval() throws Exception {
+        DepartmentDao dao = container.get(DepartmentDao::get);
+        BatchWriter<Department> writer = dao.batchInserter();
+        writer.setChunkSize(10);
+        writer.setCommitInterval(2);
+        try {
+            BatchWriteResult result = writer.write(departments(100, 45));
+            assertEquals(45, result.getRows());
+            assertEquals(5, result.getChunks());
+            assertEquals(3, result.getCommits());
+            assertEquals(45, countFrom(100));
+        } finally {
+            deleteFrom(100);
+        }
+    }
+
+    @Test
+    public void testCommitIntervalFailure() throws Exception {
+        DepartmentDao dao = container.get(DepartmentDao::get);
+        BatchWriter<Department> writer = dao.batchInserter();
+        writer.setChunkSize(10);
+        writer.setCommitInterval(2);
+        // the 31st department duplicates the 1st one
+        Stream<Department> departments = Stream.concat(departments(100, 30),
+                departments(100, 1));
+        try {
+            writer.write(departments);
+            fail();
+        } catch (JdbcException expected) {
+            assertNotNull(expected.getMessage());
+        }
+        try {
+            assertEquals(20, countFrom(100));
+        } finally {
+            deleteFrom(100);
+        }
+    }
+
+    @Test
+    public void testSuccessNoInfo() throws Exception {
+        BatchWriter<Department> writer = new BatchWriter<>(
+                container.get(c -> c), chunk -> {
+                    int[] counts = new int[chunk.size()];
+                    Arrays.fill(counts, Statement.SUCCESS_NO_INFO);
+                    return counts;
+                });
+        BatchWriteResult result = writer.write(departments(100, 5));
+        assertEquals(5, result.getRows());
+        assertEquals(0, result.getUpdateCount());
+    }
+
+    @Test
+    public void testStreamClosed() throws Exception {
+        DepartmentDao dao = container.get(DepartmentDao::get);
+        AtomicBoolean closed = new AtomicBoolean();
+        dao.batchInserter().write(
+                departments(100, 5).onClose(() -> closed.set(true)));
+        assertTrue(closed.get());
+    }
+
+    private Stream<Department> departments(int firstId, int count) {
+        return IntStream.range(firstId, firstId + count).mapToObj(id -> {
+            Department department = new Department();
+            department.setDepartmentId(new Identity<Department>(id));
+            department.setDepartmentNo(id);
+            department.setDepartmentName("BULK " + id);
+            return department;
+        });
+    }
+
+    private long countFrom(int firstId) {
+        SelectBuilder builder = SelectBuilder.newInstance(container
+                .get(c -> c));
+        builder.sql("select count(*) from DEPARTMENT where DEPARTMENT_ID >= ")
+                .param(int.class, firstId);
+        return builder.getScalarSingleResult(Long.class);
+    }
+
+    private void deleteFrom(int firstId) {
+        TransactionManager tm = container.get(c -> c.getTransactionManager());
+        tm.requiresNew(() -> {
+            DeleteBuilder builder = DeleteBuilder.newInstance(container
+                    .get(c -> c));
+            builder.sql("delete from DEPARTMENT where DEPARTMENT_ID >= ")
+                    .param(int.class, firstId);
+            builder.execute();
+        });
+    }
+}
@@ -19,11 +19,20 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.sql.Date;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.ClassRule;
 import org.junit.Rule;
@@ -50,18 +59,27 @@ import org.seasar.doma.it.domain.Location;
 import org.seasar.doma.it.domain.Salary;
 import org.seasar.doma.it.entity.Businessman;
 import org.seasar.doma.it.entity.CompKeyDepartment;
+import org.seasar.doma.it.entity.ConcurrentSequenceIdGenerator;
 import org.seasar.doma.it.entity.Department;
 import org.seasar.doma.it.entity.Dept;
+import org.seasar.doma.it.entity.IdBlockStatistics;
 import org.seasar.doma.it.entity.IdentityStrategy;
 import org.seasar.doma.it.entity.NoId;
 import org.seasar.doma.it.entity.SequenceStrategy;
 import org.seasar.doma.it.entity.Staff;
 import org.seasar.doma.it.entity.StaffInfo;
+import org.seasar.doma.it.entity.StripedTableIdGenerator;
+import org.seasar.doma.it.entity.StripedTableStrategy;
 import org.seasar.doma.it.entity.TableStrategy;
 import org.seasar.doma.it.entity.Worker;
+import org.seasar.doma.it.entity._SequenceStrategy;
+import org.seasar.doma.it.entity._StripedTableStrategy;
+import org.seasar.doma.jdbc.Config;
 import org.seasar.doma.jdbc.JdbcException;
 import org.seasar.doma.jdbc.Result;
 import org.seasar.doma.jdbc.UniqueConstraintException;
+import org.seasar.doma.jdbc.id.IdGenerationConfig;
+import org.seasar.doma.jdbc.tx.TransactionManager;
 import org.seasar.doma.message.Message;
 
 public class AutoInsertTest {
@@ -204,6 +222,48 @@ public class AutoInsertTest {
         }
     }
 
+    @Test
+    @Run(unless = { Dbms.MYSQL, Dbms.SQLSERVER, Dbms.SQLITE })
+    public void testId_sequence_concurrent() throws Exception {
+        Config config = container.get(c -> c);
+        IdGenerationConfig idGenerationConfig = new IdGenerationConfig(
+                config, _SequenceStrategy.getSingletonInternal());
+        ConcurrentSequenceIdGenerator generator = new ConcurrentSequenceIdGenerator();
+        generator.setQualifiedSequenceName("SEQUENCE_STRATEGY_ID");
+        generator.setInitialValue(1);
+        generator.setAllocationSize(50);
+        generator.initialize();
+        assertSame(generator,
+                ConcurrentSequenceIdGenerator.of("SEQUENCE_STRATEGY_ID"));
+        IdBlockStatistics before = generator.getStatistics();
+        TransactionManager tm = config.getTransactionManager();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<Long>>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> tm.required(() -> {
+                    List<Long> ids = new ArrayList<>();
+                    for (int j = 0; j < 400; j++) {
+                        ids.add(generator.generatePreInsert(idGenerationConfig));
+                    }
+                    return ids;
+                })));
+            }
+            Set<Long> ids = new HashSet<>();
+            for (Future<List<Long>> future : futures) {
+                ids.addAll(future.get());
+            }
+            assertEquals(3200, ids.size());
+        } finally {
+            executor.shutdown();
+        }
+        IdBlockStatistics after = generator.getStatistics();
+        long refills = after.getRefills() - before.getRefills();
+        assertTrue(after.toString(), refills >= 3200 / 50);
+        assertTrue(after.toString(),
+                after.getPrefetches() > before.getPrefetches());
+    }
+
     // it seems that sqlite doesn't support requiresNew transaction
     // so ignore this test case
     @Test
@@ -217,6 +277,99 @@ public class AutoInsertTest {
         }
     }
 
+    @Test
+    @Run(unless = { Dbms.SQLITE })
+    public void testId_table_striped() throws Exception {
+        TableStrategyDao dao = container.get(TableStrategyDao::get);
+        for (int i = 0; i < 110; i++) {
+            StripedTableStrategy entity = new StripedTableStrategy();
+            dao.insert(entity);
+            assertTrue(entity.getId().toString(), entity.getId() > 1000000000);
+        }
+    }
+
+    @Test
+    @Run(unless = { Dbms.SQLITE })
+    public void testId_table_concurrent() throws Exception {
+        Config config = container.get(c -> c);
+        IdGenerationConfig idGenerationConfig = new IdGenerationConfig(
+                config, _StripedTableStrategy.getSingletonInternal());
+        StripedTableIdGenerator generator = StripedTableIdGenerator
+                .of("TABLE_STRATEGY_ID");
+        assertEquals(StripedTableIdGenerator.DEFAULT_STRIPES,
+                generator.getStripes());
+        TransactionManager tm = config.getTransactionManager();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<Long>>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> tm.required(() -> {
+                    List<Long> ids = new ArrayList<>();
+                    for (int j = 0; j < 200; j++) {
+                        ids.add(generator.generatePreInsert(idGenerationConfig));
+                    }
+                    return ids;
+                })));
+            }
+            Set<Long> ids = new HashSet<>();
+            for (Future<List<Long>> future : futures) {
+                ids.addAll(future.get());
+            }
+            assertEquals(1600, ids.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @Run(unless = { Dbms.SQLITE })
+    public void testId_table_changeStripes() throws Exception {
+        Config config = container.get(c -> c);
+        IdGenerationConfig idGenerationConfig = new IdGenerationConfig(
+                config, _StripedTableStrategy.getSingletonInternal());
+        StripedTableIdGenerator generator = StripedTableIdGenerator
+                .of("TABLE_STRATEGY_ID");
+        Set<Long> ids = new HashSet<>();
+        try {
+            for (int stripes : new int[] { 4, 1, 4, 2 }) {
+                generator.setStripes(stripes);
+                for (int i = 0; i < 120; i++) {
+                    long id = generator.generatePreInsert(idGenerationConfig);
+                    assertTrue(ids.add(id));
+                    assertTrue(id > 1000000000L);
+                }
+            }
+        } finally {
+            generator.setStripes(StripedTableIdGenerator.DEFAULT_STRIPES);
+        }
+        try {
+            generator.setStripes(StripedTableIdGenerator.STRIPE_ROWS + 1);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    @Run(unless = { Dbms.SQLITE })
+    public void testId_table_missingRows() throws Exception {
+        Config config = container.get(c -> c);
+        IdGenerationConfig idGenerationConfig = new IdGenerationConfig(
+                config, _StripedTableStrategy.getSingletonInternal());
+        StripedTableIdGenerator generator = new StripedTableIdGenerator();
+        generator.setQualifiedTableName("ID_GENERATOR");
+        generator.setPkColumnName("PK");
+        generator.setPkColumnValue("MISSING_ID");
+        generator.setValueColumnName("VALUE");
+        generator.setInitialValue(1);
+        generator.setAllocationSize(50);
+        generator.initialize();
+        try {
+            generator.generatePreInsert(idGenerationConfig);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
     @Test
     public void testNoId() throws Exception {
         NoIdDao dao = container.get(NoIdDao::get);
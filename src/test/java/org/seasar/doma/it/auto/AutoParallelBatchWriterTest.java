@@ -0,0 +1,175 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.auto;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.seasar.doma.it.Container;
+import org.seasar.doma.it.Sandbox;
+import org.seasar.doma.it.dao.CompKeyDepartmentDao;
+import org.seasar.doma.it.dao.DepartmentDao;
+import org.seasar.doma.it.dao.ParallelBatchResult;
+import org.seasar.doma.it.dao.ParallelBatchResult.Partition;
+import org.seasar.doma.it.dao.ParallelBatchWriter;
+import org.seasar.doma.it.domain.Identity;
+import org.seasar.doma.it.entity.CompKeyDepartment;
+import org.seasar.doma.it.entity.Department;
+import org.seasar.doma.jdbc.builder.DeleteBuilder;
+import org.seasar.doma.jdbc.builder.SelectBuilder;
+import org.seasar.doma.jdbc.tx.TransactionManager;
+
+public class AutoParallelBatchWriterTest {
+
+    @ClassRule
+    public static Container container = new Container();
+
+    @Rule
+    public Sandbox sandbox = new Sandbox(container);
+
+    @Test
+    public void testInsert() throws Exception {
+        DepartmentDao dao = container.get(DepartmentDao::get);
+        ParallelBatchWriter<Department> writer = dao.parallelInserter();
+        writer.setChunkSize(10);
+        List<Department> departments = departments(100, 100);
+        Collections.shuffle(departments, new Random(1));
+        try {
+            ParallelBatchResult<Department> result = writer.write(departments);
+            assertTrue(result.isSucceeded());
+            assertEquals(100, result.getRows());
+            assertEquals(100, result.getUpdateCount());
+            assertEquals(4, result.getPartitions().size());
+            Partition<Department> first = result.getPartitions().get(0);
+            assertEquals(25, first.getEntities().size());
+            assertEquals(3, first.getResult().getChunks());
+            assertEquals(Integer.valueOf(100), first.getEntities().get(0)
+                    .getDepartmentId().getValue());
+            assertEquals(Integer.valueOf(124), first.getEntities().get(24)
+                    .getDepartmentId().getValue());
+            assertEquals(100, countFrom("DEPARTMENT", "DEPARTMENT_ID", 100));
+        } finally {
+            deleteFrom("DEPARTMENT", "DEPARTMENT_ID", 100);
+        }
+    }
+
+    @Test
+    public void testPartitionFailure() throws Exception {
+        DepartmentDao dao = container.get(DepartmentDao::get);
+        ParallelBatchWriter<Department> writer = dao.parallelInserter();
+        // the department 1 exists, so the first key range fails
+        List<Department> departments = departments(100, 40);
+        departments.addAll(departments(1, 1));
+        try {
+            ParallelBatchResult<Department> result = writer.write(departments);
+            assertFalse(result.isSucceeded());
+            assertEquals(1, result.getFailures().size());
+            Partition<Department> failure = result.getFailures().get(0);
+            assertEquals(0, failure.getIndex());
+            assertNotNull(failure.getFailure());
+            assertEquals(10, result.getFailedEntities().size());
+            assertEquals(31, result.getRows());
+            assertEquals(31, countFrom("DEPARTMENT", "DEPARTMENT_ID", 100));
+        } finally {
+            deleteFrom("DEPARTMENT", "DEPARTMENT_ID", 100);
+        }
+    }
+
+    @Test
+    public void testCompKeyInsertOnExecutor() throws Exception {
+        CompKeyDepartmentDao dao = container.get(CompKeyDepartmentDao::get);
+        ParallelBatchWriter<CompKeyDepartment> writer = dao
+                .parallelInserter();
+        writer.setPartitions(3);
+        List<CompKeyDepartment> departments = IntStream.range(100, 130)
+                .mapToObj(id -> {
+                    CompKeyDepartment department = new CompKeyDepartment();
+                    department.setDepartmentId1(id / 10);
+                    department.setDepartmentId2(id);
+                    department.setDepartmentNo(id);
+                    department.setDepartmentName("BULK " + id);
+                    return department;
+                }).collect(Collectors.toList());
+        Collections.reverse(departments);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            ParallelBatchResult<CompKeyDepartment> result = writer.write(
+                    departments, executor);
+            assertTrue(result.isSucceeded());
+            assertEquals(30, result.getRows());
+            assertEquals(Integer.valueOf(110), result.getPartitions().get(1)
+                    .getEntities().get(0).getDepartmentId2());
+            assertEquals(30, countFrom("COMP_KEY_DEPARTMENT",
+                    "DEPARTMENT_ID2", 100));
+        } finally {
+            executor.shutdown();
+            deleteFrom("COMP_KEY_DEPARTMENT", "DEPARTMENT_ID2", 100);
+        }
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        DepartmentDao dao = container.get(DepartmentDao::get);
+        ParallelBatchResult<Department> result = dao.parallelInserter()
+                .write(new ArrayList<>());
+        assertTrue(result.isSucceeded());
+        assertEquals(0, result.getPartitions().size());
+        assertEquals(0, result.getRows());
+    }
+
+    private List<Department> departments(int firstId, int count) {
+        return IntStream.range(firstId, firstId + count).mapToObj(id -> {
+            Department department = new Department();
+            department.setDepartmentId(new Identity<Department>(id));
+            department.setDepartmentNo(id);
+            department.setDepartmentName("BULK " + id);
+            return department;
+        }).collect(Collectors.toList());
+    }
+
+    private long countFrom(String table, String column, int firstId) {
+        SelectBuilder builder = SelectBuilder.newInstance(container
+                .get(c -> c));
+        builder.sql("select count(*) from " + table + " where " + column
+                + " >= ").param(int.class, firstId);
+        return builder.getScalarSingleResult(Long.class);
+    }
+
+    private void deleteFrom(String table, String column, int firstId) {
+        TransactionManager tm = container.get(c -> c.getTransactionManager());
+        tm.requiresNew(() -> {
+            DeleteBuilder builder = DeleteBuilder.newInstance(container
+                    .get(c -> c));
+            builder.sql("delete from " + table + " where " + column + " >= ")
+                    .param(int.class, firstId);
+            builder.execute();
+        });
+    }
+}
@@ -0,0 +1,394 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.dataset;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.seasar.doma.jdbc.Config;
+import org.seasar.doma.jdbc.tx.TransactionManager;
+
+/**
+ * Populates the EMPLOYEE, DEPARTMENT and ADDRESS tables and their
+ * COMP_KEY_* counterparts with a synthetic, reproducible dataset.
+ * <p>
+ * Existing rows in those tables are deleted first. The same seed always
+ * produces the same rows. DEPARTMENT_ID and EMPLOYEE_NAME follow a Zipf
+ * distribution and SALARY a log-normal distribution, so a few departments
+ * and names dominate as they do in real data.
+ * <p>
+ * Rows are written with JDBC batches of {@code batchSize} statements, and
+ * each {@code commitInterval} rows run in their own
+ * {@link TransactionManager#required(Runnable)} call. A caller that is
+ * already in a transaction therefore gets every row in that transaction.
+ */
+public class DatasetGenerator {
+
+    public static final String ROWS = "dataset.rows";
+
+    public static final String SEED = "dataset.seed";
+
+    public static final String BATCH_SIZE = "dataset.batchSize";
+
+    public static final String COMMIT_INTERVAL = "dataset.commitInterval";
+
+    public static final int MAX_ROWS = 50_000_000;
+
+    private static final Logger logger = Logger
+            .getLogger(DatasetGenerator.class.getName());
+
+    private static final String[] LOCATIONS = { "NEW YORK", "DALLAS",
+            "CHICAGO", "BOSTON", "TOKYO", "LONDON", "PARIS", "SYDNEY" };
+
+    private static final String[] SEED_NAMES = { "SMITH", "ALLEN", "WARD",
+            "JONES", "MARTIN", "BLAKE", "CLARK", "SCOTT", "KING", "TURNER",
+            "ADAMS", "JAMES", "FORD", "MILLER" };
+
+    private static final String[] SYLLABLES = { "KA", "RO", "MI", "TA", "NE",
+            "SU", "LI", "DO", "BER", "SON", "WIN", "HAR", "EL", "VAN", "OS" };
+
+    private static final int NAME_POOL_SIZE = 2000;
+
+    private static final LocalDate FIRST_HIREDATE = LocalDate.of(1980, 1, 1);
+
+    private static final int HIREDATE_RANGE = 35 * 365;
+
+    private final Config config;
+
+    private final int rows;
+
+    private final long seed;
+
+    private int batchSize = 1000;
+
+    private int commitInterval = 10000;
+
+    public DatasetGenerator(Config config, int rows, long seed) {
+        Objects.requireNonNull(config);
+        if (rows < 1 || rows > MAX_ROWS) {
+            throw new IllegalArgumentException("rows: " + rows);
+        }
+        this.config = config;
+        this.rows = rows;
+        this.seed = seed;
+    }
+
+    /**
+     * Creates a generator from the {@code dataset.*} system properties.
+     *
+     * @param config
+     *            the config
+     * @return the generator
+     */
+    public static DatasetGenerator fromSystemProperties(Config config) {
+        DatasetGenerator generator = new DatasetGenerator(config,
+                Integer.parseInt(getProperty(ROWS, "10000")),
+                Long.parseLong(getProperty(SEED, "1")));
+        generator.setBatchSize(Integer.parseInt(getProperty(BATCH_SIZE,
+                "1000")));
+        generator.setCommitInterval(Integer.parseInt(getProperty(
+                COMMIT_INTERVAL, "10000")));
+        return generator;
+    }
+
+    protected static String getProperty(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value != null && value.length() > 0) {
+            return value;
+        }
+        return defaultValue;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getDepartments() {
+        return Math.max(4, rows / 1000);
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize: " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    public int getCommitInterval() {
+        return commitInterval;
+    }
+
+    public void setCommitInterval(int commitInterval) {
+        if (commitInterval < 1) {
+            throw new IllegalArgumentException("commitInterval: "
+                    + commitInterval);
+        }
+        this.commitInterval = commitInterval;
+    }
+
+    public void generate() {
+        long start = System.nanoTime();
+        TransactionManager tm = config.getTransactionManager();
+        tm.required(this::deleteAll);
+
+        int departments = getDepartments();
+        Random departmentRandom = new Random(seed);
+        inChunks(departments,
+                (from, to) -> insertDepartments(departmentRandom, from, to));
+        inChunks(rows, (from, to) -> insertAddresses(from, to));
+        Random employeeRandom = new Random(seed * 31 + 17);
+        ZipfDistribution departmentDistribution = new ZipfDistribution(
+                departments, 1.1);
+        String[] names = createNamePool(new Random(seed * 31 + 29));
+        ZipfDistribution nameDistribution = new ZipfDistribution(
+                names.length, 1.0);
+        inChunks(rows, (from, to) -> insertEmployees(employeeRandom,
+                departmentDistribution, names, nameDistribution, from, to));
+        logger.log(Level.INFO, "generated " + rows + " employees and "
+                + departments + " departments in "
+                + (System.nanoTime() - start) / 1_000_000 + "ms");
+    }
+
+    protected void inChunks(int total, ChunkCallback callback) {
+        TransactionManager tm = config.getTransactionManager();
+        for (int from = 1; from <= total; from += commitInterval) {
+            int first = from;
+            int last = Math.min(from + commitInterval - 1, total);
+            tm.required(() -> callback.execute(first, last));
+        }
+    }
+
+    protected void deleteAll() {
+        execute(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("delete from EMPLOYEE");
+                statement.executeUpdate("delete from ADDRESS");
+                statement.executeUpdate("delete from DEPARTMENT");
+                statement.executeUpdate("delete from COMP_KEY_EMPLOYEE");
+                statement.executeUpdate("delete from COMP_KEY_ADDRESS");
+                statement.executeUpdate("delete from COMP_KEY_DEPARTMENT");
+            }
+        });
+    }
+
+    protected void insertDepartments(Random random, int from, int to) {
+        execute(connection -> {
+            try (PreparedStatement department = connection
+                    .prepareStatement("insert into DEPARTMENT (DEPARTMENT_ID, DEPARTMENT_NO, DEPARTMENT_NAME, LOCATION, VERSION) values (?, ?, ?, ?, 1)");
+                    PreparedStatement compKeyDepartment = connection
+                            .prepareStatement("insert into COMP_KEY_DEPARTMENT (DEPARTMENT_ID1, DEPARTMENT_ID2, DEPARTMENT_NO, DEPARTMENT_NAME, LOCATION, VERSION) values (?, ?, ?, ?, ?, 1)")) {
+                for (int id = from; id <= to; id++) {
+                    String name = "DEPT " + id;
+                    String location = LOCATIONS[random
+                            .nextInt(LOCATIONS.length)];
+                    department.setInt(1, id);
+                    department.setInt(2, id);
+                    department.setString(3, name);
+                    department.setString(4, location);
+                    department.addBatch();
+                    compKeyDepartment.setInt(1, id);
+                    compKeyDepartment.setInt(2, id);
+                    compKeyDepartment.setInt(3, id);
+                    compKeyDepartment.setString(4, name);
+                    compKeyDepartment.setString(5, location);
+                    compKeyDepartment.addBatch();
+                    if ((id - from + 1) % batchSize == 0) {
+                        department.executeBatch();
+                        compKeyDepartment.executeBatch();
+                    }
+                }
+                if ((to - from + 1) % batchSize != 0) {
+                    department.executeBatch();
+                    compKeyDepartment.executeBatch();
+                }
+            }
+        });
+    }
+
+    protected void insertAddresses(int from, int to) {
+        execute(connection -> {
+            try (PreparedStatement address = connection
+                    .prepareStatement("insert into ADDRESS (ADDRESS_ID, STREET, VERSION) values (?, ?, 1)");
+                    PreparedStatement compKeyAddress = connection
+                            .prepareStatement("insert into COMP_KEY_ADDRESS (ADDRESS_ID1, ADDRESS_ID2, STREET, VERSION) values (?, ?, ?, 1)")) {
+                for (int id = from; id <= to; id++) {
+                    String street = "STREET " + id;
+                    address.setInt(1, id);
+                    address.setString(2, street);
+                    address.addBatch();
+                    compKeyAddress.setInt(1, id);
+                    compKeyAddress.setInt(2, id);
+                    compKeyAddress.setString(3, street);
+                    compKeyAddress.addBatch();
+                    if ((id - from + 1) % batchSize == 0) {
+                        address.executeBatch();
+                        compKeyAddress.executeBatch();
+                    }
+                }
+                if ((to - from + 1) % batchSize != 0) {
+                    address.executeBatch();
+                    compKeyAddress.executeBatch();
+                }
+            }
+        });
+    }
+
+    protected void insertEmployees(Random random,
+            ZipfDistribution departmentDistribution, String[] names,
+            ZipfDistribution nameDistribution, int from, int to) {
+        execute(connection -> {
+            try (PreparedStatement employee = connection
+                    .prepareStatement("insert into EMPLOYEE (EMPLOYEE_ID, EMPLOYEE_NO, EMPLOYEE_NAME, MANAGER_ID, HIREDATE, SALARY, DEPARTMENT_ID, ADDRESS_ID, VERSION) values (?, ?, ?, ?, ?, ?, ?, ?, 1)");
+                    PreparedStatement compKeyEmployee = connection
+                            .prepareStatement("insert into COMP_KEY_EMPLOYEE (EMPLOYEE_ID1, EMPLOYEE_ID2, EMPLOYEE_NO, EMPLOYEE_NAME, MANAGER_ID1, MANAGER_ID2, HIREDATE, SALARY, DEPARTMENT_ID1, DEPARTMENT_ID2, ADDRESS_ID1, ADDRESS_ID2, VERSION) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 1)")) {
+                for (int id = from; id <= to; id++) {
+                    String name = names[nameDistribution.sample(random) - 1];
+                    Integer managerId = id == 1 ? null : random.nextInt(id - 1) + 1;
+                    Date hiredate = Date.valueOf(FIRST_HIREDATE.plusDays(random
+                            .nextInt(HIREDATE_RANGE)));
+                    BigDecimal salary = nextSalary(random);
+                    int departmentId = departmentDistribution.sample(random);
+
+                    employee.setInt(1, id);
+                    employee.setInt(2, id);
+                    employee.setString(3, name);
+                    setInteger(employee, 4, managerId);
+                    employee.setDate(5, hiredate);
+                    employee.setBigDecimal(6, salary);
+                    employee.setInt(7, departmentId);
+                    employee.setInt(8, id);
+                    employee.addBatch();
+
+                    compKeyEmployee.setInt(1, id);
+                    compKeyEmployee.setInt(2, id);
+                    compKeyEmployee.setInt(3, id);
+                    compKeyEmployee.setString(4, name);
+                    setInteger(compKeyEmployee, 5, managerId);
+                    setInteger(compKeyEmployee, 6, managerId);
+                    compKeyEmployee.setDate(7, hiredate);
+                    compKeyEmployee.setBigDecimal(8, salary);
+                    compKeyEmployee.setInt(9, departmentId);
+                    compKeyEmployee.setInt(10, departmentId);
+                    compKeyEmployee.setInt(11, id);
+                    compKeyEmployee.setInt(12, id);
+                    compKeyEmployee.addBatch();
+
+                    if ((id - from + 1) % batchSize == 0) {
+                        employee.executeBatch();
+                        compKeyEmployee.executeBatch();
+                    }
+                }
+                if ((to - from + 1) % batchSize != 0) {
+                    employee.executeBatch();
+                    compKeyEmployee.executeBatch();
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns a log-normal salary around 2500 that fits NUMERIC(7,2).
+     */
+    protected BigDecimal nextSalary(Random random) {
+        double value = Math.exp(Math.log(2500) + 0.6 * random.nextGaussian());
+        long cents = Math.round(Math.min(Math.max(value, 500), 99999.99) * 100);
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    protected String[] createNamePool(Random random) {
+        String[] names = Arrays.copyOf(SEED_NAMES, NAME_POOL_SIZE);
+        for (int i = SEED_NAMES.length; i < names.length; i++) {
+            StringBuilder buf = new StringBuilder();
+            int length = 2 + random.nextInt(3);
+            for (int j = 0; j < length; j++) {
+                buf.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            names[i] = buf.toString();
+        }
+        return names;
+    }
+
+    private static void setInteger(PreparedStatement statement, int index,
+            Integer value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.INTEGER);
+        } else {
+            statement.setInt(index, value);
+        }
+    }
+
+    protected void execute(ConnectionCallback callback) {
+        try (Connection connection = config.getDataSource().getConnection()) {
+            callback.execute(connection);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @FunctionalInterface
+    protected interface ChunkCallback {
+        void execute(int from, int to);
+    }
+
+    @FunctionalInterface
+    protected interface ConnectionCallback {
+        void execute(Connection connection) throws SQLException;
+    }
+
+    /**
+     * Samples ranks in {@code [1, n]} where rank {@code k} has a weight of
+     * {@code 1 / k^exponent}.
+     */
+    protected static class ZipfDistribution {
+
+        private final double[] cumulative;
+
+        public ZipfDistribution(int n, double exponent) {
+            cumulative = new double[n];
+            double sum = 0;
+            for (int k = 1; k <= n; k++) {
+                sum += 1 / Math.pow(k, exponent);
+                cumulative[k - 1] = sum;
+            }
+            for (int i = 0; i < n; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+
+        public int sample(Random random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return Math.min(index, cumulative.length - 1) + 1;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2004-2009 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.dataset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.seasar.doma.it.Container;
+import org.seasar.doma.it.Sandbox;
+import org.seasar.doma.it.dao.CompKeyEmployeeDao;
+import org.seasar.doma.it.dao.EmployeeDao;
+import org.seasar.doma.jdbc.Config;
+import org.seasar.doma.jdbc.builder.SelectBuilder;
+
+public class DatasetGeneratorTest {
+
+    @ClassRule
+    public static Container container = new Container();
+
+    @Rule
+    public Sandbox sandbox = new Sandbox(container);
+
+    @Test
+    public void testGenerate() throws Exception {
+        Config config = container.get(c -> c);
+        DatasetGenerator generator = new DatasetGenerator(config, 2500, 1);
+        generator.setBatchSize(100);
+        generator.setCommitInterval(1000);
+        generator.generate();
+        assertEquals(2500, count("EMPLOYEE"));
+        assertEquals(2500, count("ADDRESS"));
+        assertEquals(4, count("DEPARTMENT"));
+        assertEquals(2500, count("COMP_KEY_EMPLOYEE"));
+        assertEquals(2500, count("COMP_KEY_ADDRESS"));
+        assertEquals(4, count("COMP_KEY_DEPARTMENT"));
+        assertNotNull(container.get(EmployeeDao::get).selectById(2500));
+        assertNotNull(container.get(CompKeyEmployeeDao::get).selectById(2500,
+                2500));
+    }
+
+    @Test
+    public void testDeterministic() throws Exception {
+        Config config = container.get(c -> c);
+        new DatasetGenerator(config, 1000, 7).generate();
+        BigDecimal first = sumOfSalary();
+        new DatasetGenerator(config, 1000, 7).generate();
+        assertEquals(first, sumOfSalary());
+        new DatasetGenerator(config, 1000, 8).generate();
+        assertTrue(first.compareTo(sumOfSalary()) != 0);
+    }
+
+    @Test
+    public void testDepartmentSkew() throws Exception {
+        Config config = container.get(c -> c);
+        new DatasetGenerator(config, 1000, 1).generate();
+        SelectBuilder builder = SelectBuilder.newInstance(config);
+        builder.sql("select count(*) from EMPLOYEE where DEPARTMENT_ID = 1");
+        long first = builder.getScalarSingleResult(Long.class);
+        assertTrue(first > 1000 / 4);
+    }
+
+    private long count(String table) {
+        SelectBuilder builder = SelectBuilder.newInstance(container
+                .get(c -> c));
+        builder.sql("select count(*) from " + table);
+        return builder.getScalarSingleResult(Long.class);
+    }
+
+    private BigDecimal sumOfSalary() {
+        SelectBuilder builder = SelectBuilder.newInstance(container
+                .get(c -> c));
+        builder.sql("select sum(SALARY) from EMPLOYEE");
+        return builder.getScalarSingleResult(BigDecimal.class);
+    }
+}
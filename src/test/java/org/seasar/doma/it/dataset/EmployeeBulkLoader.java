@@ -0,0 +1,265 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.dataset;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.seasar.doma.it.AppConfig;
+import org.seasar.doma.it.Dbms;
+import org.seasar.doma.it.dao.BatchWriteResult;
+import org.seasar.doma.it.dao.BatchWriter;
+import org.seasar.doma.it.dao.EmployeeDao;
+import org.seasar.doma.it.entity.Employee;
+import org.seasar.doma.jdbc.tx.TransactionManager;
+
+/**
+ * Loads employees into the EMPLOYEE table with the bulk-load mechanism of
+ * the database, falling back to a {@link BatchWriter} over
+ * {@link EmployeeDao#insert(java.util.List)} where there is none.
+ * <p>
+ * The employees are streamed into a temporary UTF-8 CSV file, which is
+ * loaded with one {@code insert ... select} statement and then deleted:
+ * <ul>
+ * <li>H2 reads the file with {@code CSVREAD}, in a
+ * {@link TransactionManager#required(Runnable)} call.</li>
+ * <li>HSQLDB reads it through a {@code TEXT} table, which needs the
+ * {@code textdb.allow_full_path} system property to be {@code true}. Because
+ * HSQLDB commits on DDL, the load runs in a
+ * {@link TransactionManager#requiresNew(Runnable)} call and is committed
+ * independently of the caller.</li>
+ * </ul>
+ * Like {@code @BatchInsert}, a {@code null} version is set to {@code 1}. The
+ * native path does not call entity listeners.
+ */
+public class EmployeeBulkLoader {
+
+    public static final String TEXTDB_ALLOW_FULL_PATH = "textdb.allow_full_path";
+
+    protected static final String COLUMNS = "EMPLOYEE_ID, EMPLOYEE_NO, EMPLOYEE_NAME, MANAGER_ID, HIREDATE, SALARY, DEPARTMENT_ID, ADDRESS_ID, VERSION";
+
+    private static final AtomicInteger textTableCount = new AtomicInteger();
+
+    private final AppConfig config;
+
+    private int chunkSize = 1000;
+
+    private int commitInterval;
+
+    public EmployeeBulkLoader(AppConfig config) {
+        this.config = Objects.requireNonNull(config);
+    }
+
+    /**
+     * @return {@code true} if the database has a bulk-load path
+     */
+    public boolean isNative() {
+        switch (config.getDbms()) {
+        case H2:
+            return true;
+        case HSQLDB:
+            return Boolean.getBoolean(TEXTDB_ALLOW_FULL_PATH);
+        default:
+            return false;
+        }
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * @param chunkSize
+     *            the chunk size of the batch fallback
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    public int getCommitInterval() {
+        return commitInterval;
+    }
+
+    /**
+     * @param commitInterval
+     *            the commit interval of the batch fallback
+     * @see BatchWriter#setCommitInterval(int)
+     */
+    public void setCommitInterval(int commitInterval) {
+        if (commitInterval < 0) {
+            throw new IllegalArgumentException("commitInterval: "
+                    + commitInterval);
+        }
+        this.commitInterval = commitInterval;
+    }
+
+    public BatchWriteResult load(Stream<Employee> employees) {
+        return load(employees.iterator());
+    }
+
+    public BatchWriteResult load(Iterator<Employee> employees) {
+        Objects.requireNonNull(employees);
+        if (!isNative()) {
+            BatchWriter<Employee> writer = new BatchWriter<>(config,
+                    EmployeeDao.get(config)::insert);
+            writer.setChunkSize(chunkSize);
+            writer.setCommitInterval(commitInterval);
+            return writer.write(employees);
+        }
+        long start = System.nanoTime();
+        Path file = null;
+        try {
+            file = Files.createTempFile("employee", ".csv");
+            long rows = writeCsv(file, employees);
+            if (rows == 0) {
+                return new BatchWriteResult(0, 0, 0, 0, System.nanoTime()
+                        - start);
+            }
+            String path = file.toAbsolutePath().toString();
+            TransactionManager tm = config.getTransactionManager();
+            long[] updateCount = new long[1];
+            int commits = 0;
+            if (config.getDbms() == Dbms.HSQLDB) {
+                tm.requiresNew(() -> updateCount[0] = execute(
+                        connection -> loadTextTable(connection, path)));
+                commits = 1;
+            } else {
+                tm.required(() -> updateCount[0] = execute(
+                        connection -> loadCsvRead(connection, path)));
+            }
+            return new BatchWriteResult(rows, updateCount[0], 1, commits,
+                    System.nanoTime() - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (file != null) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    protected long writeCsv(Path file, Iterator<Employee> employees)
+            throws IOException {
+        long rows = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(file,
+                StandardCharsets.UTF_8)) {
+            writer.write(COLUMNS.replace(" ", ""));
+            writer.write("\r\n");
+            while (employees.hasNext()) {
+                Employee employee = employees.next();
+                Integer version = employee.getVersion();
+                if (version == null || version < 0) {
+                    version = 1;
+                    employee.setVersion(version);
+                }
+                append(writer, employee.getEmployeeId()).write(',');
+                append(writer, employee.getEmployeeNo()).write(',');
+                appendQuoted(writer, employee.getEmployeeName()).write(',');
+                append(writer, employee.getManagerId()).write(',');
+                append(writer, employee.getHiredate()).write(',');
+                append(writer, employee.getSalary() == null ? null : employee
+                        .getSalary().getValue().toPlainString()).write(',');
+                append(writer, employee.getDepartmentId() == null ? null
+                        : employee.getDepartmentId().getValue()).write(',');
+                append(writer, employee.getAddressId()).write(',');
+                append(writer, version).write("\r\n");
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private static BufferedWriter append(BufferedWriter writer, Object value)
+            throws IOException {
+        if (value != null) {
+            writer.write(value.toString());
+        }
+        return writer;
+    }
+
+    /**
+     * Quotes a non-null string, so that an empty string is not read as
+     * {@code NULL}.
+     */
+    private static BufferedWriter appendQuoted(BufferedWriter writer,
+            String value) throws IOException {
+        if (value != null) {
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+        return writer;
+    }
+
+    protected int loadCsvRead(Connection connection, String path)
+            throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            return statement.executeUpdate("insert into EMPLOYEE (" + COLUMNS
+                    + ") select * from CSVREAD(" + literal(path)
+                    + ", null, 'charset=UTF-8')");
+        }
+    }
+
+    protected int loadTextTable(Connection connection, String path)
+            throws SQLException {
+        String table = "EMPLOYEE_LOAD_" + textTableCount.incrementAndGet();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create text table " + table + " (like EMPLOYEE)");
+            try {
+                statement.execute("set table " + table + " source "
+                        + literal(path + ";ignore_first=true;encoding=UTF-8"));
+                return statement.executeUpdate("insert into EMPLOYEE ("
+                        + COLUMNS + ") select * from " + table);
+            } finally {
+                statement.execute("drop table " + table);
+            }
+        }
+    }
+
+    private static String literal(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+
+    protected int execute(ConnectionCallback callback) {
+        try (Connection connection = config.getDataSource().getConnection()) {
+            return callback.execute(connection);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @FunctionalInterface
+    protected interface ConnectionCallback {
+        int execute(Connection connection) throws SQLException;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.dataset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.Collections;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.seasar.doma.it.AppConfig;
+import org.seasar.doma.it.Container;
+import org.seasar.doma.it.Sandbox;
+import org.seasar.doma.it.dao.BatchWriteResult;
+import org.seasar.doma.it.dao.EmployeeDao;
+import org.seasar.doma.it.domain.Identity;
+import org.seasar.doma.it.domain.Salary;
+import org.seasar.doma.it.entity.Employee;
+import org.seasar.doma.jdbc.builder.DeleteBuilder;
+import org.seasar.doma.jdbc.builder.SelectBuilder;
+
+public class EmployeeBulkLoaderTest {
+
+    @ClassRule
+    public static Container container = new Container();
+
+    @Rule
+    public Sandbox sandbox = new Sandbox(container);
+
+    @Test
+    public void testLoad() throws Exception {
+        AppConfig config = container.get(c -> c);
+        EmployeeBulkLoader loader = new EmployeeBulkLoader(config);
+        BatchWriteResult result = load(loader, 1000);
+        try {
+            assertEquals(1000, result.getRows());
+            assertEquals(1000, result.getUpdateCount());
+            assertEquals(1014, count());
+
+            EmployeeDao dao = container.get(EmployeeDao::get);
+            Employee employee = dao.selectById(1001);
+            assertEquals("NAME, \"1001\"", employee.getEmployeeName());
+            assertEquals(Date.valueOf("2014-01-02"), employee.getHiredate());
+            assertEquals(new BigDecimal("1001.50"), employee.getSalary()
+                    .getValue());
+            assertEquals(Integer.valueOf(2), employee.getDepartmentId()
+                    .getValue());
+            assertNull(employee.getManagerId());
+            assertEquals(Integer.valueOf(1), employee.getVersion());
+            Employee blank = dao.selectById(1002);
+            assertEquals("", blank.getEmployeeName());
+            assertNull(blank.getSalary());
+            assertEquals(Integer.valueOf(1001), blank.getManagerId());
+        } finally {
+            cleanUp(config, result);
+        }
+    }
+
+    @Test
+    public void testFallback() throws Exception {
+        AppConfig config = container.get(c -> c);
+        EmployeeBulkLoader loader = new EmployeeBulkLoader(config) {
+            @Override
+            public boolean isNative() {
+                return false;
+            }
+        };
+        loader.setChunkSize(400);
+        BatchWriteResult result = load(loader, 1000);
+        assertEquals(1000, result.getRows());
+        assertEquals(3, result.getChunks());
+        assertEquals(1014, count());
+        Employee blank = container.get(EmployeeDao::get).selectById(1002);
+        assertEquals("", blank.getEmployeeName());
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        AppConfig config = container.get(c -> c);
+        BatchWriteResult result = new EmployeeBulkLoader(config)
+                .load(Collections.<Employee> emptyIterator());
+        assertEquals(0, result.getRows());
+        assertEquals(14, count());
+    }
+
+    private BatchWriteResult load(EmployeeBulkLoader loader, int rows) {
+        Stream<Employee> employees = IntStream.rangeClosed(1001, 1000 + rows)
+                .mapToObj(this::createEmployee);
+        return loader.load(employees);
+    }
+
+    private Employee createEmployee(int id) {
+        Employee employee = new Employee();
+        employee.setEmployeeId(id);
+        employee.setEmployeeNo(id);
+        employee.setHiredate(Date.valueOf("2014-01-02"));
+        employee.setDepartmentId(new Identity<>(2));
+        if (id % 2 == 0) {
+            employee.setEmployeeName("");
+            employee.setManagerId(id - 1);
+        } else {
+            employee.setEmployeeName("NAME, \"" + id + "\"");
+            employee.setSalary(new Salary(BigDecimal.valueOf(id * 100L + 50,
+                    2)));
+        }
+        return employee;
+    }
+
+    private long count() {
+        SelectBuilder builder = SelectBuilder.newInstance(container
+                .get(c -> c));
+        builder.sql("select count(*) from EMPLOYEE");
+        return builder.getScalarSingleResult(Long.class);
+    }
+
+    private void cleanUp(AppConfig config, BatchWriteResult result) {
+        if (result.getCommits() > 0) {
+            config.getTransactionManager().requiresNew(() -> {
+                DeleteBuilder builder = DeleteBuilder.newInstance(config);
+                builder.sql("delete from EMPLOYEE where EMPLOYEE_ID > 1000");
+                builder.execute();
+            });
+        }
+    }
+}
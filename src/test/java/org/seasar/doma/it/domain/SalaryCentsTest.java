@@ -0,0 +1,76 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.domain;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.seasar.doma.it.Container;
+import org.seasar.doma.it.Sandbox;
+import org.seasar.doma.it.dao.EmployeeDao;
+import org.seasar.doma.it.entity.Employee;
+
+public class SalaryCentsTest {
+
+    @ClassRule
+    public static Container container = new Container();
+
+    @Rule
+    public Sandbox sandbox = new Sandbox(container);
+
+    @Test
+    public void testValueOf() throws Exception {
+        SalaryCents cents = SalaryCents.valueOf(new BigDecimal("2975.5"));
+        assertEquals(297550, cents.getValue());
+        assertEquals(new BigDecimal("2975.50"), cents.toDecimal());
+        assertEquals("2975.50", cents.toString());
+        try {
+            SalaryCents.valueOf(new BigDecimal("0.001"));
+            fail();
+        } catch (ArithmeticException expected) {
+        }
+    }
+
+    @Test
+    public void testStream() throws Exception {
+        EmployeeDao dao = container.get(EmployeeDao::get);
+        List<Long> cents = dao.streamAllSalaryCents(stream -> stream.map(
+                SalaryCents::getValue).collect(Collectors.toList()));
+        List<Long> expected = dao.streamAllSalaryDomain(stream -> stream
+                .map(s -> SalaryCents.valueOf(s.getValue()).getValue())
+                .collect(Collectors.toList()));
+        assertEquals(14, cents.size());
+        assertEquals(expected, cents);
+        assertEquals(80000L, cents.get(0).longValue());
+        assertEquals(2902500L, cents.stream().mapToLong(Long::longValue)
+                .sum());
+    }
+
+    @Test
+    public void testBind() throws Exception {
+        EmployeeDao dao = container.get(EmployeeDao::get);
+        List<Employee> list = dao.selectBySalaryCents(new SalaryCents(297500));
+        assertEquals(1, list.size());
+        assertEquals(Integer.valueOf(4), list.get(0).getEmployeeId());
+    }
+}
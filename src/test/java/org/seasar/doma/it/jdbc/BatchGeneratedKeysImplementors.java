@@ -0,0 +1,83 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.jdbc;
+
+import java.lang.reflect.Method;
+
+import org.seasar.doma.jdbc.CommandImplementors;
+import org.seasar.doma.jdbc.command.BatchInsertCommand;
+import org.seasar.doma.jdbc.dialect.Dialect;
+import org.seasar.doma.jdbc.query.BatchInsertQuery;
+
+/**
+ * Command implementors that send {@code @BatchInsert} batches of identity
+ * entities as JDBC batches with {@link BatchGeneratedKeysInsertCommand}
+ * where the driver returns the generated keys of a whole batch, and
+ * delegate other commands.
+ * <p>
+ * Batches whose identities are reserved before the insert, as on
+ * PostgreSQL, are already JDBC batches and are delegated as well. The
+ * implementors delegate everything until {@link #setEnabled(boolean)} turns
+ * them on.
+ */
+public class BatchGeneratedKeysImplementors extends
+        DelegatingCommandImplementors {
+
+    protected volatile boolean enabled;
+
+    public BatchGeneratedKeysImplementors(CommandImplementors delegate) {
+        super(delegate);
+    }
+
+    @Override
+    public BatchInsertCommand createBatchInsertCommand(Method method,
+            BatchInsertQuery query) {
+        if (enabled && !query.isBatchSupported()
+                && query.isAutoGeneratedKeysSupported()
+                && returnsBatchKeys(query.getConfig().getDialect())) {
+            return new BatchGeneratedKeysInsertCommand(query);
+        }
+        return delegate.createBatchInsertCommand(method, query);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param enabled
+     *            {@code true} to send identity batches as JDBC batches,
+     *            {@code false} to execute their rows one at a time as Doma
+     *            does
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return {@code true} if the driver returns one generated key per row of
+     *         a JDBC batch
+     */
+    protected boolean returnsBatchKeys(Dialect dialect) {
+        switch (dialect.getName()) {
+        case "hsqldb":
+        case "mysql":
+            return true;
+        default:
+            return false;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.jdbc;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import org.seasar.doma.internal.jdbc.sql.PreparedSql;
+import org.seasar.doma.jdbc.command.BatchInsertCommand;
+import org.seasar.doma.jdbc.query.BatchInsertQuery;
+
+/**
+ * A batch insert command for identity columns that sends the rows as a JDBC
+ * batch and reads the generated keys of all of them from one
+ * {@link Statement#getGeneratedKeys()} result set, instead of executing and
+ * reading each row on its own.
+ * <p>
+ * The driver must return one key per row of a batch, in the order of the
+ * rows. HSQLDB and MySQL do; H2 1.3 returns only the last key.
+ */
+public class BatchGeneratedKeysInsertCommand extends BatchInsertCommand {
+
+    public BatchGeneratedKeysInsertCommand(BatchInsertQuery query) {
+        super(query);
+    }
+
+    @Override
+    protected int[] executeInternal(PreparedStatement preparedStatement,
+            List<PreparedSql> sqls) throws SQLException {
+        if (query.isBatchSupported() || !query.isAutoGeneratedKeysSupported()) {
+            return super.executeInternal(preparedStatement, sqls);
+        }
+        int batchSize = query.getBatchSize() > 0 ? query.getBatchSize()
+                : sqls.size();
+        int[] counts = new int[sqls.size()];
+        int from = 0;
+        for (int i = 0; i < sqls.size(); i++) {
+            PreparedSql sql = sqls.get(i);
+            log(sql);
+            bindParameters(preparedStatement, sql);
+            preparedStatement.addBatch();
+            if (i - from + 1 == batchSize || i == sqls.size() - 1) {
+                int[] rows = executeBatch(preparedStatement, sql);
+                validateRows(preparedStatement, sql, rows);
+                System.arraycopy(rows, 0, counts, from, rows.length);
+                generateIds(preparedStatement, from, i + 1 - from);
+                from = i + 1;
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Lets the query read one key per row from the generated keys of the
+     * batch. The query closes the result set after each key, so it is given a
+     * view that ignores {@code close()}.
+     */
+    protected void generateIds(Statement statement, int from, int size)
+            throws SQLException {
+        try (ResultSet keys = statement.getGeneratedKeys()) {
+            Statement view = keyStatement(statement, keys);
+            for (int i = 0; i < size; i++) {
+                query.generateId(view, from + i);
+            }
+            if (keys.next()) {
+                throw new IllegalStateException("more generated keys than "
+                        + size + " rows");
+            }
+        }
+    }
+
+    /**
+     * Returns a view of {@code statement} whose {@code getGeneratedKeys()}
+     * returns {@code keys} with {@code close()} ignored. Every other call goes
+     * to the statement or the result set.
+     */
+    protected static Statement keyStatement(Statement statement,
+            ResultSet keys) {
+        Statement[] view = new Statement[1];
+        ResultSet unclosable = (ResultSet) Proxy.newProxyInstance(
+                ResultSet.class.getClassLoader(),
+                new Class<?>[] { ResultSet.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                    case "close":
+                        return null;
+                    case "getStatement":
+                        return view[0];
+                    default:
+                        return invoke(keys, method, args);
+                    }
+                });
+        view[0] = (Statement) Proxy.newProxyInstance(
+                Statement.class.getClassLoader(),
+                new Class<?>[] { Statement.class }, (proxy, method, args) -> {
+                    if ("getGeneratedKeys".equals(method.getName())) {
+                        return unclosable;
+                    }
+                    return invoke(statement, method, args);
+                });
+        return view[0];
+    }
+
+    protected static Object invoke(Object target, Method method,
+            Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.seasar.doma.it.AppConfig;
+import org.seasar.doma.it.Container;
+import org.seasar.doma.it.Sandbox;
+
+public class BatchGeneratedKeysInsertCommandTest {
+
+    @ClassRule
+    public static Container container = new Container();
+
+    @Rule
+    public Sandbox sandbox = new Sandbox(container);
+
+    @Test
+    public void testKeyStatement() throws Exception {
+        try (Connection connection = container.get(
+                AppConfig::getOriginalDataSource).getConnection();
+                PreparedStatement statement = connection.prepareStatement(
+                        "select EMPLOYEE_ID from EMPLOYEE order by EMPLOYEE_ID");
+                ResultSet keys = statement.executeQuery()) {
+            statement.setQueryTimeout(7);
+            Statement view = BatchGeneratedKeysInsertCommand.keyStatement(
+                    statement, keys);
+            assertSame(connection, view.getConnection());
+            assertEquals(7, view.getQueryTimeout());
+
+            ResultSet generatedKeys = view.getGeneratedKeys();
+            assertSame(view, generatedKeys.getStatement());
+            assertTrue(generatedKeys.next());
+            assertEquals(1, generatedKeys.getInt(1));
+            generatedKeys.close();
+            assertFalse(keys.isClosed());
+            assertTrue(view.getGeneratedKeys().next());
+            assertEquals(2, keys.getInt(1));
+        }
+    }
+}
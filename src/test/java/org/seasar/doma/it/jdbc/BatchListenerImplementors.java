@@ -0,0 +1,160 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.jdbc;
+
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.seasar.doma.Entity;
+import org.seasar.doma.it.entity.BatchEntityListener;
+import org.seasar.doma.it.entity.BatchListenerContext;
+import org.seasar.doma.jdbc.Config;
+import org.seasar.doma.jdbc.QueryImplementors;
+import org.seasar.doma.jdbc.entity.EntityListener;
+import org.seasar.doma.jdbc.entity.EntityType;
+import org.seasar.doma.jdbc.entity.NullEntityListener;
+import org.seasar.doma.jdbc.query.AutoBatchDeleteQuery;
+import org.seasar.doma.jdbc.query.AutoBatchInsertQuery;
+import org.seasar.doma.jdbc.query.AutoBatchUpdateQuery;
+
+/**
+ * Query implementors whose auto batch queries call the batch callbacks of a
+ * {@link BatchEntityListener} once per batch instead of the per-entity
+ * callbacks. Entities whose listener is a plain {@link EntityListener} are
+ * handled as Doma does.
+ * <p>
+ * The listener class is read from {@code @Entity(listener = ...)} of the
+ * entity class or its nearest entity superclass, and the instance is taken
+ * from the {@code EntityListenerProvider} of the config. The implementors
+ * delegate every query until {@link #setEnabled(boolean)} turns them on.
+ */
+public class BatchListenerImplementors extends DelegatingQueryImplementors {
+
+    protected final ConcurrentMap<Class<?>, Optional<Class<?>>> listenerClasses = new ConcurrentHashMap<>();
+
+    protected final ConcurrentMap<Class<?>, EntityListener<?>> listeners = new ConcurrentHashMap<>();
+
+    protected volatile boolean enabled;
+
+    public BatchListenerImplementors(QueryImplementors delegate) {
+        super(delegate);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param enabled
+     *            {@code true} to call the batch callbacks, {@code false} to
+     *            call the per-entity callbacks only
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public <ENTITY> AutoBatchInsertQuery<ENTITY> createAutoBatchInsertQuery(
+            Method method, EntityType<ENTITY> entityType) {
+        if (enabled) {
+            return new BatchListenerInsertQuery<>(this, entityType);
+        }
+        return delegate.createAutoBatchInsertQuery(method, entityType);
+    }
+
+    @Override
+    public <ENTITY> AutoBatchUpdateQuery<ENTITY> createAutoBatchUpdateQuery(
+            Method method, EntityType<ENTITY> entityType) {
+        if (enabled) {
+            return new BatchListenerUpdateQuery<>(this, entityType);
+        }
+        return delegate.createAutoBatchUpdateQuery(method, entityType);
+    }
+
+    @Override
+    public <ENTITY> AutoBatchDeleteQuery<ENTITY> createAutoBatchDeleteQuery(
+            Method method, EntityType<ENTITY> entityType) {
+        if (enabled) {
+            return new BatchListenerDeleteQuery<>(this, entityType);
+        }
+        return delegate.createAutoBatchDeleteQuery(method, entityType);
+    }
+
+    /**
+     * @return the batch listener of the entity, or {@code null} if its
+     *         listener has no batch callbacks
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public <ENTITY> BatchEntityListener<ENTITY> getListener(
+            EntityType<ENTITY> entityType, Config config) {
+        Class<?> listenerClass = listenerClasses.computeIfAbsent(
+                entityType.getEntityClass(),
+                c -> Optional.ofNullable(findListenerClass(c))).orElse(null);
+        if (listenerClass == null) {
+            return null;
+        }
+        Class<BatchEntityListener> batchListenerClass = (Class<BatchEntityListener>) listenerClass;
+        return config.getEntityListenerProvider().get(
+                batchListenerClass,
+                () -> (BatchEntityListener) listeners.computeIfAbsent(
+                        listenerClass, this::newListener));
+    }
+
+    protected Class<?> findListenerClass(Class<?> entityClass) {
+        for (Class<?> c = entityClass; c != null; c = c.getSuperclass()) {
+            Entity entity = c.getAnnotation(Entity.class);
+            if (entity != null && entity.listener() != NullEntityListener.class) {
+                Class<?> listenerClass = entity.listener();
+                return BatchEntityListener.class
+                        .isAssignableFrom(listenerClass) ? listenerClass
+                        : null;
+            }
+        }
+        return null;
+    }
+
+    protected EntityListener<?> newListener(Class<?> listenerClass) {
+        try {
+            return (EntityListener<?>) listenerClass.getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(listenerClass.getName(), e);
+        }
+    }
+
+    protected <ENTITY> BatchListenerContext<ENTITY> createContext(
+            EntityType<ENTITY> entityType, Method method, Config config) {
+        return new BatchListenerContext<ENTITY>() {
+
+            @Override
+            public EntityType<ENTITY> getEntityType() {
+                return entityType;
+            }
+
+            @Override
+            public Method getMethod() {
+                return method;
+            }
+
+            @Override
+            public Config getConfig() {
+                return config;
+            }
+        };
+    }
+}
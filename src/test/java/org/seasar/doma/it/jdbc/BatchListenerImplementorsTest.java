@@ -0,0 +1,186 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.seasar.doma.it.AppConfig;
+import org.seasar.doma.it.Container;
+import org.seasar.doma.it.Sandbox;
+import org.seasar.doma.it.dao.DeptDao;
+import org.seasar.doma.it.dao.PersonDao;
+import org.seasar.doma.it.domain.Identity;
+import org.seasar.doma.it.entity.BatchEntityListener;
+import org.seasar.doma.it.entity.BatchListenerContext;
+import org.seasar.doma.it.entity.Dept;
+import org.seasar.doma.it.entity.DeptListener;
+import org.seasar.doma.it.entity.Person;
+import org.seasar.doma.it.entity._Dept;
+import org.seasar.doma.it.entity._Employee;
+import org.seasar.doma.jdbc.BatchResult;
+import org.seasar.doma.jdbc.entity.PostInsertContext;
+import org.seasar.doma.jdbc.entity.PreInsertContext;
+
+public class BatchListenerImplementorsTest {
+
+    @ClassRule
+    public static Container container = new Container();
+
+    @Rule
+    public Sandbox sandbox = new Sandbox(container);
+
+    private boolean enabled;
+
+    @Before
+    public void setUp() {
+        BatchListenerImplementors implementors = container
+                .get(AppConfig::getQueryImplementors);
+        enabled = implementors.isEnabled();
+        implementors.setEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        container.get(AppConfig::getQueryImplementors).setEnabled(enabled);
+    }
+
+    @Test
+    public void testGetListener() throws Exception {
+        AppConfig config = container.get(c -> c);
+        BatchListenerImplementors implementors = config
+                .getQueryImplementors();
+        assertTrue(implementors.getListener(_Dept.getSingletonInternal(),
+                config) instanceof DeptListener);
+        assertNull(implementors.getListener(
+                _Employee.getSingletonInternal(), config));
+    }
+
+    @Test
+    public void testInsert_disabled() throws Exception {
+        BatchListenerImplementors implementors = container
+                .get(AppConfig::getQueryImplementors);
+        DeptDao dao = container.get(DeptDao::get);
+        Dept dept = new Dept(new Identity<Dept>(99), 99, "hoge", null, null);
+        Dept dept2 = new Dept(new Identity<Dept>(98), 98, "foo", null, null);
+        implementors.setEnabled(false);
+        try {
+            BatchResult<Dept> result = dao.insert(Arrays.asList(dept, dept2));
+            assertEquals("hoge_preI_postI", result.getEntities().get(0)
+                    .getDepartmentName());
+            assertEquals("foo_preI_postI", result.getEntities().get(1)
+                    .getDepartmentName());
+        } finally {
+            implementors.setEnabled(true);
+        }
+        assertEquals("hoge_preI", dao.selectById(99).getDepartmentName());
+        assertEquals("foo_preI", dao.selectById(98).getDepartmentName());
+    }
+
+    @Test
+    public void testUpdate_disabled() throws Exception {
+        BatchListenerImplementors implementors = container
+                .get(AppConfig::getQueryImplementors);
+        DeptDao dao = container.get(DeptDao::get);
+        Dept dept = new Dept(new Identity<Dept>(1), 1, "hoge", null, 1);
+        Dept dept2 = new Dept(new Identity<Dept>(2), 2, "foo", null, 1);
+        implementors.setEnabled(false);
+        try {
+            BatchResult<Dept> result = dao.update(Arrays.asList(dept, dept2));
+            assertEquals("hoge_preU_postU", result.getEntities().get(0)
+                    .getDepartmentName());
+            assertEquals("foo_preU_postU", result.getEntities().get(1)
+                    .getDepartmentName());
+        } finally {
+            implementors.setEnabled(true);
+        }
+        assertEquals("hoge_preU", dao.selectById(1).getDepartmentName());
+        assertEquals("foo_preU", dao.selectById(2).getDepartmentName());
+    }
+
+    @Test
+    public void testDelete_disabled() throws Exception {
+        BatchListenerImplementors implementors = container
+                .get(AppConfig::getQueryImplementors);
+        PersonDao dao = container.get(PersonDao::get);
+        Person person = new Person(1, null, null, null, null, null, null, null,
+                1);
+        Person person2 = new Person(2, null, null, null, null, null, null,
+                null, 1);
+        implementors.setEnabled(false);
+        try {
+            BatchResult<Person> result = dao.delete(Arrays.asList(person,
+                    person2));
+            assertEquals("null_preD_postD", result.getEntities().get(0)
+                    .getEmployeeName());
+            assertEquals("null_preD_postD", result.getEntities().get(1)
+                    .getEmployeeName());
+        } finally {
+            implementors.setEnabled(true);
+        }
+        assertNull(dao.selectById(1));
+        assertNull(dao.selectById(2));
+    }
+
+    @Test
+    public void testDefaultBatchCallbacks() throws Exception {
+        AppConfig config = container.get(c -> c);
+        BatchListenerContext<Dept> context = config.getQueryImplementors()
+                .createContext(_Dept.getSingletonInternal(),
+                        DeptDao.class.getMethod("insert", List.class), config);
+        PerEntityListener listener = new PerEntityListener();
+        List<Dept> entities = new ArrayList<>(Arrays.asList(new Dept(
+                new Identity<Dept>(1), 1, "hoge", null, 1), new Dept(
+                new Identity<Dept>(2), 2, "foo", null, 1)));
+        listener.preInsertBatch(entities, context);
+        listener.postInsertBatch(entities, context);
+        assertEquals(4, listener.calls);
+        assertEquals("hoge_pre_post", entities.get(0).getDepartmentName());
+        assertEquals("foo_pre_post", entities.get(1).getDepartmentName());
+    }
+
+    private static class PerEntityListener implements
+            BatchEntityListener<Dept> {
+
+        private int calls;
+
+        @Override
+        public void preInsert(Dept entity, PreInsertContext<Dept> context) {
+            calls++;
+            context.setNewEntity(new Dept(entity.getDepartmentId(), entity
+                    .getDepartmentNo(), entity.getDepartmentName() + "_pre",
+                    entity.getLocation(), entity.getVersion()));
+        }
+
+        @Override
+        public void postInsert(Dept entity, PostInsertContext<Dept> context) {
+            calls++;
+            context.setNewEntity(new Dept(entity.getDepartmentId(), entity
+                    .getDepartmentNo(), entity.getDepartmentName() + "_post",
+                    entity.getLocation(), entity.getVersion()));
+        }
+    }
+}
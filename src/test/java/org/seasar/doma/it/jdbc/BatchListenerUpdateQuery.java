@@ -0,0 +1,74 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.jdbc;
+
+import org.seasar.doma.it.entity.BatchEntityListener;
+import org.seasar.doma.jdbc.entity.EntityType;
+import org.seasar.doma.jdbc.query.AutoBatchUpdateQuery;
+
+/**
+ * A batch update query that calls {@link BatchEntityListener#preUpdateBatch}
+ * and {@link BatchEntityListener#postUpdateBatch} instead of the per-entity
+ * callbacks when the entity has a batch listener.
+ *
+ * @param <ENTITY>
+ *            the entity type
+ */
+public class BatchListenerUpdateQuery<ENTITY> extends AutoBatchUpdateQuery<ENTITY> {
+
+    protected final BatchListenerImplementors implementors;
+
+    protected BatchEntityListener<ENTITY> listener;
+
+    public BatchListenerUpdateQuery(BatchListenerImplementors implementors,
+            EntityType<ENTITY> entityType) {
+        super(entityType);
+        this.implementors = implementors;
+    }
+
+    @Override
+    public void prepare() {
+        listener = implementors.getListener(entityType, config);
+        if (listener != null && entities != null && !entities.isEmpty()) {
+            listener.preUpdateBatch(entities,
+                    implementors.createContext(entityType, method, config));
+        }
+        super.prepare();
+    }
+
+    @Override
+    protected void preUpdate() {
+        if (listener == null) {
+            super.preUpdate();
+        }
+    }
+
+    @Override
+    public void complete() {
+        super.complete();
+        if (listener != null && !entities.isEmpty()) {
+            listener.postUpdateBatch(entities,
+                    implementors.createContext(entityType, method, config));
+        }
+    }
+
+    @Override
+    protected void postUpdate() {
+        if (listener == null) {
+            super.postUpdate();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.jdbc;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+
+import org.seasar.doma.MapKeyNamingType;
+import org.seasar.doma.Select;
+import org.seasar.doma.internal.jdbc.command.AbstractIterationHandler;
+import org.seasar.doma.internal.jdbc.command.AbstractResultListHandler;
+import org.seasar.doma.internal.jdbc.command.AbstractSingleResultHandler;
+import org.seasar.doma.internal.jdbc.command.MapResultListHandler;
+import org.seasar.doma.internal.jdbc.command.MapSingleResultHandler;
+import org.seasar.doma.internal.jdbc.command.ObjectProvider;
+import org.seasar.doma.internal.jdbc.command.ResultListCallback;
+import org.seasar.doma.internal.jdbc.command.SingleResultCallback;
+import org.seasar.doma.jdbc.CommandImplementors;
+import org.seasar.doma.jdbc.IterationCallback;
+import org.seasar.doma.jdbc.command.ResultSetHandler;
+import org.seasar.doma.jdbc.command.SelectCommand;
+import org.seasar.doma.jdbc.query.SelectQuery;
+
+/**
+ * Command implementors that make map results of {@code @Select} methods
+ * return {@link CompactRowMap} rows instead of one {@code LinkedHashMap} per
+ * row, and delegate everything else.
+ * <p>
+ * List and single results are replaced. Stream and collector results are
+ * left to Doma, because their rows are not kept after they are consumed.
+ * Other commands are delegated. The replacement is off until
+ * {@link #setEnabled(boolean)} turns it on.
+ */
+public class CompactMapImplementors extends DelegatingCommandImplementors {
+
+    protected volatile boolean enabled;
+
+    public CompactMapImplementors(CommandImplementors delegate) {
+        super(delegate);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <RESULT> SelectCommand<RESULT> createSelectCommand(Method method,
+            SelectQuery query, ResultSetHandler<RESULT> resultSetHandler) {
+        ResultSetHandler<RESULT> handler = resultSetHandler;
+        if (enabled && method != null) {
+            Select select = method.getAnnotation(Select.class);
+            if (select != null) {
+                MapKeyNamingType namingType = select.mapKeyNaming();
+                if (resultSetHandler instanceof MapResultListHandler) {
+                    handler = (ResultSetHandler<RESULT>) new CompactMapResultListHandler(
+                            namingType);
+                } else if (resultSetHandler instanceof MapSingleResultHandler) {
+                    handler = (ResultSetHandler<RESULT>) new CompactMapSingleResultHandler(
+                            namingType);
+                }
+            }
+        }
+        return delegate.createSelectCommand(method, query, handler);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param enabled
+     *            {@code true} to return compact rows, {@code false} to keep
+     *            Doma's map results
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    protected static class CompactMapIterationHandler<RESULT> extends
+            AbstractIterationHandler<Map<String, Object>, RESULT> {
+
+        protected final MapKeyNamingType mapKeyNamingType;
+
+        protected CompactMapIterationHandler(
+                MapKeyNamingType mapKeyNamingType,
+                IterationCallback<Map<String, Object>, RESULT> iterationCallback) {
+            super(iterationCallback);
+            this.mapKeyNamingType = mapKeyNamingType;
+        }
+
+        @Override
+        protected ObjectProvider<Map<String, Object>> createObjectProvider(
+                SelectQuery query) {
+            return new CompactMapProvider(query, mapKeyNamingType);
+        }
+    }
+
+    protected static class CompactMapResultListHandler extends
+            AbstractResultListHandler<Map<String, Object>> {
+
+        protected CompactMapResultListHandler(MapKeyNamingType mapKeyNamingType) {
+            super(new CompactMapIterationHandler<List<Map<String, Object>>>(
+                    mapKeyNamingType, new ResultListCallback<>()));
+        }
+    }
+
+    protected static class CompactMapSingleResultHandler extends
+            AbstractSingleResultHandler<Map<String, Object>> {
+
+        protected CompactMapSingleResultHandler(
+                MapKeyNamingType mapKeyNamingType) {
+            super(new CompactMapIterationHandler<Map<String, Object>>(
+                    mapKeyNamingType, new SingleResultCallback<>()));
+        }
+    }
+}
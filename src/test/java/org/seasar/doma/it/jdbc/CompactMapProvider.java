@@ -0,0 +1,95 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.seasar.doma.MapKeyNamingType;
+import org.seasar.doma.internal.jdbc.command.AbstractObjectProvider;
+import org.seasar.doma.internal.jdbc.scalar.BasicScalar;
+import org.seasar.doma.jdbc.JdbcMappingVisitor;
+import org.seasar.doma.jdbc.MapKeyNaming;
+import org.seasar.doma.jdbc.query.Query;
+import org.seasar.doma.wrapper.ObjectWrapper;
+
+/**
+ * Provides {@link CompactRowMap} rows that share one
+ * {@link CompactRowMap.Schema} per result set.
+ * <p>
+ * The column labels are converted by the {@link MapKeyNaming} once, when the
+ * first row is read. When two columns convert to the same key, the later
+ * one wins, as it does with Doma's own map provider.
+ */
+public class CompactMapProvider extends
+        AbstractObjectProvider<Map<String, Object>> {
+
+    protected final Query query;
+
+    protected final MapKeyNamingType mapKeyNamingType;
+
+    protected final JdbcMappingVisitor jdbcMappingVisitor;
+
+    protected final BasicScalar<Object> scalar = new BasicScalar<>(
+            ObjectWrapper::new, false);
+
+    protected CompactRowMap.Schema schema;
+
+    /** the slot of each column, indexed by column index minus one */
+    protected int[] slots;
+
+    public CompactMapProvider(Query query, MapKeyNamingType mapKeyNamingType) {
+        this.query = query;
+        this.mapKeyNamingType = mapKeyNamingType;
+        this.jdbcMappingVisitor = query.getConfig().getDialect()
+                .getJdbcMappingVisitor();
+    }
+
+    @Override
+    public Map<String, Object> get(ResultSet resultSet) throws SQLException {
+        if (schema == null) {
+            createSchema(resultSet.getMetaData());
+        }
+        Object[] values = new Object[schema.size()];
+        for (int i = 0; i < slots.length; i++) {
+            fetch(resultSet, scalar, i + 1, jdbcMappingVisitor);
+            values[slots[i]] = scalar.get();
+        }
+        return new CompactRowMap(schema, values);
+    }
+
+    protected void createSchema(ResultSetMetaData metaData) throws SQLException {
+        MapKeyNaming naming = query.getConfig().getMapKeyNaming();
+        int count = metaData.getColumnCount();
+        Map<String, Integer> keys = new LinkedHashMap<>(count * 2);
+        slots = new int[count];
+        for (int i = 0; i < count; i++) {
+            String key = naming.apply(query.getMethod(), mapKeyNamingType,
+                    metaData.getColumnLabel(i + 1));
+            Integer slot = keys.get(key);
+            if (slot == null) {
+                slot = keys.size();
+                keys.put(key, slot);
+            }
+            slots[i] = slot;
+        }
+        schema = new CompactRowMap.Schema(keys.keySet().toArray(
+                new String[keys.size()]));
+    }
+}
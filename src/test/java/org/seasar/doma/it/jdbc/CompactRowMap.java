@@ -0,0 +1,301 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.jdbc;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A row of a map result that stores only its values and shares the column
+ * keys with every other row of the same result set.
+ * <p>
+ * The map is mutable like the {@link LinkedHashMap} Doma returns: entries
+ * iterate in column order, and columns can be replaced or removed. Keys that
+ * are not columns, and columns that are put again after their removal, are
+ * kept in a separate map that is created on the first such {@link #put}, so
+ * that they iterate last in insertion order as in a {@code LinkedHashMap}.
+ * The entry of a removed column rejects {@link Map.Entry#setValue}.
+ */
+public class CompactRowMap extends AbstractMap<String, Object> {
+
+    private static final Object ABSENT = new Object();
+
+    protected final Schema schema;
+
+    protected final Object[] values;
+
+    protected int removed;
+
+    protected Map<String, Object> extra;
+
+    protected Set<Map.Entry<String, Object>> entrySet;
+
+    /**
+     * @param schema
+     *            the keys shared by the rows of a result set
+     * @param values
+     *            the values in column order, owned by this map from now on
+     */
+    public CompactRowMap(Schema schema, Object[] values) {
+        if (schema.size() != values.length) {
+            throw new IllegalArgumentException("values: " + values.length);
+        }
+        this.schema = schema;
+        this.values = values;
+    }
+
+    @Override
+    public int size() {
+        return values.length - removed + (extra == null ? 0 : extra.size());
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        int index = schema.indexOf(key);
+        if (index >= 0 && values[index] != ABSENT) {
+            return true;
+        }
+        return extra != null && extra.containsKey(key);
+    }
+
+    @Override
+    public Object get(Object key) {
+        int index = schema.indexOf(key);
+        if (index >= 0 && values[index] != ABSENT) {
+            return values[index];
+        }
+        return extra == null ? null : extra.get(key);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        int index = schema.indexOf(key);
+        if (index >= 0 && values[index] != ABSENT) {
+            Object old = values[index];
+            values[index] = value;
+            return old;
+        }
+        if (extra == null) {
+            extra = new LinkedHashMap<>();
+        }
+        return extra.put(key, value);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        int index = schema.indexOf(key);
+        if (index >= 0 && values[index] != ABSENT) {
+            Object old = values[index];
+            values[index] = ABSENT;
+            removed++;
+            return old;
+        }
+        return extra == null ? null : extra.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = ABSENT;
+        }
+        removed = values.length;
+        extra = null;
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Map.Entry<String, Object>>() {
+
+                @Override
+                public Iterator<Map.Entry<String, Object>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return CompactRowMap.this.size();
+                }
+
+                @Override
+                public void clear() {
+                    CompactRowMap.this.clear();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    protected class EntryIterator implements Iterator<Map.Entry<String, Object>> {
+
+        protected int next = -1;
+
+        protected int last = -1;
+
+        protected Iterator<Map.Entry<String, Object>> extraIterator;
+
+        protected EntryIterator() {
+            advance();
+        }
+
+        protected void advance() {
+            do {
+                next++;
+            } while (next < values.length && values[next] == ABSENT);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next < values.length) {
+                return true;
+            }
+            if (extra == null) {
+                return false;
+            }
+            if (extraIterator == null) {
+                extraIterator = extra.entrySet().iterator();
+            }
+            return extraIterator.hasNext();
+        }
+
+        @Override
+        public Map.Entry<String, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (next < values.length) {
+                last = next;
+                advance();
+                return new Entry(last);
+            }
+            last = -1;
+            return extraIterator.next();
+        }
+
+        @Override
+        public void remove() {
+            if (extraIterator != null && last < 0) {
+                extraIterator.remove();
+                return;
+            }
+            if (last < 0 || values[last] == ABSENT) {
+                throw new IllegalStateException();
+            }
+            values[last] = ABSENT;
+            removed++;
+        }
+    }
+
+    protected class Entry implements Map.Entry<String, Object> {
+
+        protected final int index;
+
+        protected Entry(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public String getKey() {
+            return schema.keys[index];
+        }
+
+        @Override
+        public Object getValue() {
+            Object value = values[index];
+            return value == ABSENT ? null : value;
+        }
+
+        /**
+         * @throws IllegalStateException
+         *             if the column has been removed since this entry was
+         *             returned
+         */
+        @Override
+        public Object setValue(Object value) {
+            Object old = values[index];
+            if (old == ABSENT) {
+                throw new IllegalStateException("removed: " + getKey());
+            }
+            values[index] = value;
+            return old;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> other = (Map.Entry<?, ?>) o;
+            return getKey().equals(other.getKey())
+                    && Objects.equals(getValue(), other.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+
+    /**
+     * The column keys of a result set, in column order.
+     */
+    public static class Schema {
+
+        protected final String[] keys;
+
+        protected final Map<String, Integer> indexes;
+
+        /**
+         * @param keys
+         *            the keys, already converted by the map key naming
+         * @throws IllegalArgumentException
+         *             if a key occurs twice
+         */
+        public Schema(String... keys) {
+            this.keys = keys.clone();
+            Map<String, Integer> indexes = new HashMap<>(keys.length * 2);
+            for (int i = 0; i < keys.length; i++) {
+                if (indexes.put(Objects.requireNonNull(keys[i]), i) != null) {
+                    throw new IllegalArgumentException("duplicate key: "
+                            + keys[i]);
+                }
+            }
+            this.indexes = Collections.unmodifiableMap(indexes);
+        }
+
+        public int size() {
+            return keys.length;
+        }
+
+        public int indexOf(Object key) {
+            Integer index = indexes.get(key);
+            return index == null ? -1 : index;
+        }
+    }
+}
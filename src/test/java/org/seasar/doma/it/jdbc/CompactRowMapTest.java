@@ -0,0 +1,161 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.seasar.doma.it.AppConfig;
+import org.seasar.doma.it.Container;
+import org.seasar.doma.it.Sandbox;
+import org.seasar.doma.it.dao.EmployeeDao;
+
+public class CompactRowMapTest {
+
+    @ClassRule
+    public static Container container = new Container();
+
+    @Rule
+    public Sandbox sandbox = new Sandbox(container);
+
+    private boolean enabled;
+
+    @Before
+    public void setUp() {
+        CompactMapImplementors implementors = container
+                .get(AppConfig::getCommandImplementors);
+        enabled = implementors.isEnabled();
+        implementors.setEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        container.get(AppConfig::getCommandImplementors).setEnabled(enabled);
+    }
+
+    @Test
+    public void testMapContract() throws Exception {
+        CompactRowMap.Schema schema = new CompactRowMap.Schema("a", "b", "c");
+        CompactRowMap map = new CompactRowMap(schema, new Object[] { 1, null,
+                3 });
+        Map<String, Object> expected = new LinkedHashMap<>();
+        expected.put("a", 1);
+        expected.put("b", null);
+        expected.put("c", 3);
+        assertEquals(expected, map);
+        assertEquals(expected.hashCode(), map.hashCode());
+        assertEquals(expected.toString(), map.toString());
+        assertTrue(map.containsKey("b"));
+        assertNull(map.get("b"));
+
+        assertEquals(1, map.remove("a"));
+        assertFalse(map.containsKey("a"));
+        assertEquals(2, map.size());
+        assertNull(map.put("a", 10));
+        assertNull(map.put("d", 4));
+        assertEquals(3, map.put("c", 30));
+        assertEquals(4, map.size());
+        assertEquals("{b=null, c=30, a=10, d=4}", map.toString());
+        assertEquals(10, map.get("a"));
+        assertTrue(map.containsKey("a"));
+
+        Iterator<Map.Entry<String, Object>> it = map.entrySet().iterator();
+        it.next().setValue(11);
+        it.next();
+        it.remove();
+        it.next().setValue(12);
+        it.next();
+        it.remove();
+        assertFalse(it.hasNext());
+        assertEquals("{b=11, a=12}", map.toString());
+        assertEquals(2, map.size());
+
+        assertEquals(12, map.remove("a"));
+        assertEquals(1, map.size());
+        map.clear();
+        assertTrue(map.isEmpty());
+        map.put("c", 3);
+        map.put("a", 1);
+        assertEquals("{c=3, a=1}", map.toString());
+    }
+
+    @Test
+    public void testSetValueOfRemovedColumn() throws Exception {
+        CompactRowMap.Schema schema = new CompactRowMap.Schema("a", "b");
+        CompactRowMap map = new CompactRowMap(schema, new Object[] { 1, 2 });
+        Map.Entry<String, Object> entry = map.entrySet().iterator().next();
+        map.remove("a");
+        try {
+            entry.setValue(10);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals(1, map.size());
+        assertEquals(1, map.entrySet().stream().count());
+        assertFalse(map.containsKey("a"));
+    }
+
+    @Test
+    public void testSelectAllAsMapList() throws Exception {
+        EmployeeDao dao = container.get(EmployeeDao::get);
+        List<Map<String, Object>> employees = dao.selectAllAsMapList();
+        assertEquals(14, employees.size());
+        CompactRowMap first = (CompactRowMap) employees.get(0);
+        CompactRowMap last = (CompactRowMap) employees.get(13);
+        assertSame(first.schema, last.schema);
+        assertEquals(1, ((Number) first.get("employeeId")).intValue());
+        assertEquals("SMITH", first.get("employeeName"));
+        assertEquals("MILLER", last.get("employeeName"));
+    }
+
+    @Test
+    public void testSameAsDomaMaps() throws Exception {
+        EmployeeDao dao = container.get(EmployeeDao::get);
+        List<Map<String, Object>> compact = dao.selectAllAsMapList();
+        Map<String, Object> compactOne = dao.selectByIdAsMap(1);
+        assertTrue(compactOne instanceof CompactRowMap);
+        CompactMapImplementors implementors = container
+                .get(AppConfig::getCommandImplementors);
+        implementors.setEnabled(false);
+        try {
+            List<Map<String, Object>> doma = dao.selectAllAsMapList();
+            assertTrue(doma.get(0) instanceof LinkedHashMap);
+            assertEquals(doma, compact);
+            for (int i = 0; i < doma.size(); i++) {
+                assertEquals(new ArrayList<>(doma.get(i).keySet()),
+                        new ArrayList<>(compact.get(i).keySet()));
+            }
+            assertEquals(dao.selectByIdAsMap(1), compactOne);
+        } finally {
+            implementors.setEnabled(true);
+        }
+    }
+}
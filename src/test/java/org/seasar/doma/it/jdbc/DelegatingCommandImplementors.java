@@ -0,0 +1,120 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.jdbc;
+
+import java.lang.reflect.Method;
+import java.util.Objects;
+
+import org.seasar.doma.jdbc.CommandImplementors;
+import org.seasar.doma.jdbc.command.BatchDeleteCommand;
+import org.seasar.doma.jdbc.command.BatchInsertCommand;
+import org.seasar.doma.jdbc.command.BatchUpdateCommand;
+import org.seasar.doma.jdbc.command.CreateCommand;
+import org.seasar.doma.jdbc.command.DeleteCommand;
+import org.seasar.doma.jdbc.command.FunctionCommand;
+import org.seasar.doma.jdbc.command.InsertCommand;
+import org.seasar.doma.jdbc.command.ProcedureCommand;
+import org.seasar.doma.jdbc.command.ResultSetHandler;
+import org.seasar.doma.jdbc.command.ScriptCommand;
+import org.seasar.doma.jdbc.command.SelectCommand;
+import org.seasar.doma.jdbc.command.UpdateCommand;
+import org.seasar.doma.jdbc.query.BatchDeleteQuery;
+import org.seasar.doma.jdbc.query.BatchInsertQuery;
+import org.seasar.doma.jdbc.query.BatchUpdateQuery;
+import org.seasar.doma.jdbc.query.CreateQuery;
+import org.seasar.doma.jdbc.query.DeleteQuery;
+import org.seasar.doma.jdbc.query.FunctionQuery;
+import org.seasar.doma.jdbc.query.InsertQuery;
+import org.seasar.doma.jdbc.query.ProcedureQuery;
+import org.seasar.doma.jdbc.query.ScriptQuery;
+import org.seasar.doma.jdbc.query.SelectQuery;
+import org.seasar.doma.jdbc.query.UpdateQuery;
+
+/**
+ * Command implementors that delegate every command, so that decorators can
+ * be stacked and override only the commands they replace.
+ */
+public abstract class DelegatingCommandImplementors implements
+        CommandImplementors {
+
+    protected final CommandImplementors delegate;
+
+    protected DelegatingCommandImplementors(CommandImplementors delegate) {
+        this.delegate = Objects.requireNonNull(delegate);
+    }
+
+    @Override
+    public <RESULT> SelectCommand<RESULT> createSelectCommand(Method method,
+            SelectQuery query, ResultSetHandler<RESULT> resultSetHandler) {
+        return delegate.createSelectCommand(method, query, resultSetHandler);
+    }
+
+    @Override
+    public DeleteCommand createDeleteCommand(Method method, DeleteQuery query) {
+        return delegate.createDeleteCommand(method, query);
+    }
+
+    @Override
+    public InsertCommand createInsertCommand(Method method, InsertQuery query) {
+        return delegate.createInsertCommand(method, query);
+    }
+
+    @Override
+    public UpdateCommand createUpdateCommand(Method method, UpdateQuery query) {
+        return delegate.createUpdateCommand(method, query);
+    }
+
+    @Override
+    public BatchDeleteCommand createBatchDeleteCommand(Method method,
+            BatchDeleteQuery query) {
+        return delegate.createBatchDeleteCommand(method, query);
+    }
+
+    @Override
+    public BatchInsertCommand createBatchInsertCommand(Method method,
+            BatchInsertQuery query) {
+        return delegate.createBatchInsertCommand(method, query);
+    }
+
+    @Override
+    public BatchUpdateCommand createBatchUpdateCommand(Method method,
+            BatchUpdateQuery query) {
+        return delegate.createBatchUpdateCommand(method, query);
+    }
+
+    @Override
+    public <RESULT> FunctionCommand<RESULT> createFunctionCommand(
+            Method method, FunctionQuery<RESULT> query) {
+        return delegate.createFunctionCommand(method, query);
+    }
+
+    @Override
+    public ProcedureCommand createProcedureCommand(Method method,
+            ProcedureQuery query) {
+        return delegate.createProcedureCommand(method, query);
+    }
+
+    @Override
+    public <RESULT> CreateCommand<RESULT> createCreateCommand(Method method,
+            CreateQuery<RESULT> query) {
+        return delegate.createCreateCommand(method, query);
+    }
+
+    @Override
+    public ScriptCommand createScriptCommand(Method method, ScriptQuery query) {
+        return delegate.createScriptCommand(method, query);
+    }
+}
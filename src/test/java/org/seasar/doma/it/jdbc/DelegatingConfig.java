@@ -0,0 +1,149 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.jdbc;
+
+import java.util.Objects;
+
+import javax.sql.DataSource;
+
+import org.seasar.doma.jdbc.ClassHelper;
+import org.seasar.doma.jdbc.CommandImplementors;
+import org.seasar.doma.jdbc.Commenter;
+import org.seasar.doma.jdbc.Config;
+import org.seasar.doma.jdbc.EntityListenerProvider;
+import org.seasar.doma.jdbc.JdbcLogger;
+import org.seasar.doma.jdbc.MapKeyNaming;
+import org.seasar.doma.jdbc.Naming;
+import org.seasar.doma.jdbc.QueryImplementors;
+import org.seasar.doma.jdbc.RequiresNewController;
+import org.seasar.doma.jdbc.SqlFileRepository;
+import org.seasar.doma.jdbc.SqlLogType;
+import org.seasar.doma.jdbc.UnknownColumnHandler;
+import org.seasar.doma.jdbc.dialect.Dialect;
+import org.seasar.doma.jdbc.tx.TransactionManager;
+
+/**
+ * A config that delegates every setting, so that a query or a test can
+ * override only the settings it changes.
+ */
+public abstract class DelegatingConfig implements Config {
+
+    protected final Config delegate;
+
+    protected DelegatingConfig(Config delegate) {
+        this.delegate = Objects.requireNonNull(delegate);
+    }
+
+    @Override
+    public DataSource getDataSource() {
+        return delegate.getDataSource();
+    }
+
+    @Override
+    public Dialect getDialect() {
+        return delegate.getDialect();
+    }
+
+    @Override
+    public String getDataSourceName() {
+        return delegate.getDataSourceName();
+    }
+
+    @Override
+    public SqlFileRepository getSqlFileRepository() {
+        return delegate.getSqlFileRepository();
+    }
+
+    @Override
+    public JdbcLogger getJdbcLogger() {
+        return delegate.getJdbcLogger();
+    }
+
+    @Override
+    public RequiresNewController getRequiresNewController() {
+        return delegate.getRequiresNewController();
+    }
+
+    @Override
+    public ClassHelper getClassHelper() {
+        return delegate.getClassHelper();
+    }
+
+    @Override
+    public CommandImplementors getCommandImplementors() {
+        return delegate.getCommandImplementors();
+    }
+
+    @Override
+    public QueryImplementors getQueryImplementors() {
+        return delegate.getQueryImplementors();
+    }
+
+    @Override
+    public SqlLogType getExceptionSqlLogType() {
+        return delegate.getExceptionSqlLogType();
+    }
+
+    @Override
+    public UnknownColumnHandler getUnknownColumnHandler() {
+        return delegate.getUnknownColumnHandler();
+    }
+
+    @Override
+    public Naming getNaming() {
+        return delegate.getNaming();
+    }
+
+    @Override
+    public MapKeyNaming getMapKeyNaming() {
+        return delegate.getMapKeyNaming();
+    }
+
+    @Override
+    public TransactionManager getTransactionManager() {
+        return delegate.getTransactionManager();
+    }
+
+    @Override
+    public Commenter getCommenter() {
+        return delegate.getCommenter();
+    }
+
+    @Override
+    public int getMaxRows() {
+        return delegate.getMaxRows();
+    }
+
+    @Override
+    public int getFetchSize() {
+        return delegate.getFetchSize();
+    }
+
+    @Override
+    public int getQueryTimeout() {
+        return delegate.getQueryTimeout();
+    }
+
+    @Override
+    public int getBatchSize() {
+        return delegate.getBatchSize();
+    }
+
+    @Override
+    public EntityListenerProvider getEntityListenerProvider() {
+        return delegate.getEntityListenerProvider();
+    }
+}
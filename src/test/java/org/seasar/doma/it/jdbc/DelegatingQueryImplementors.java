@@ -0,0 +1,195 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.jdbc;
+
+import java.lang.reflect.Method;
+import java.util.Objects;
+
+import org.seasar.doma.jdbc.QueryImplementors;
+import org.seasar.doma.jdbc.entity.EntityType;
+import org.seasar.doma.jdbc.query.ArrayCreateQuery;
+import org.seasar.doma.jdbc.query.AutoBatchDeleteQuery;
+import org.seasar.doma.jdbc.query.AutoBatchInsertQuery;
+import org.seasar.doma.jdbc.query.AutoBatchUpdateQuery;
+import org.seasar.doma.jdbc.query.AutoDeleteQuery;
+import org.seasar.doma.jdbc.query.AutoFunctionQuery;
+import org.seasar.doma.jdbc.query.AutoInsertQuery;
+import org.seasar.doma.jdbc.query.AutoProcedureQuery;
+import org.seasar.doma.jdbc.query.AutoUpdateQuery;
+import org.seasar.doma.jdbc.query.BlobCreateQuery;
+import org.seasar.doma.jdbc.query.ClobCreateQuery;
+import org.seasar.doma.jdbc.query.NClobCreateQuery;
+import org.seasar.doma.jdbc.query.SQLXMLCreateQuery;
+import org.seasar.doma.jdbc.query.SqlDeleteQuery;
+import org.seasar.doma.jdbc.query.SqlFileBatchDeleteQuery;
+import org.seasar.doma.jdbc.query.SqlFileBatchInsertQuery;
+import org.seasar.doma.jdbc.query.SqlFileBatchUpdateQuery;
+import org.seasar.doma.jdbc.query.SqlFileDeleteQuery;
+import org.seasar.doma.jdbc.query.SqlFileInsertQuery;
+import org.seasar.doma.jdbc.query.SqlFileScriptQuery;
+import org.seasar.doma.jdbc.query.SqlFileSelectQuery;
+import org.seasar.doma.jdbc.query.SqlFileUpdateQuery;
+import org.seasar.doma.jdbc.query.SqlInsertQuery;
+import org.seasar.doma.jdbc.query.SqlSelectQuery;
+import org.seasar.doma.jdbc.query.SqlUpdateQuery;
+
+/**
+ * Query implementors that delegate every query, so that decorators can be
+ * stacked and override only the queries they replace.
+ */
+public abstract class DelegatingQueryImplementors implements QueryImplementors {
+
+    protected final QueryImplementors delegate;
+
+    protected DelegatingQueryImplementors(QueryImplementors delegate) {
+        this.delegate = Objects.requireNonNull(delegate);
+    }
+
+    @Override
+    public SqlFileSelectQuery createSqlFileSelectQuery(Method method) {
+        return delegate.createSqlFileSelectQuery(method);
+    }
+
+    @Override
+    public SqlSelectQuery createSqlSelectQuery(Method method) {
+        return delegate.createSqlSelectQuery(method);
+    }
+
+    @Override
+    public SqlFileScriptQuery createSqlFileScriptQuery(Method method) {
+        return delegate.createSqlFileScriptQuery(method);
+    }
+
+    @Override
+    public <ENTITY> AutoDeleteQuery<ENTITY> createAutoDeleteQuery(Method method,
+            EntityType<ENTITY> entityType) {
+        return delegate.createAutoDeleteQuery(method, entityType);
+    }
+
+    @Override
+    public <ENTITY> AutoInsertQuery<ENTITY> createAutoInsertQuery(Method method,
+            EntityType<ENTITY> entityType) {
+        return delegate.createAutoInsertQuery(method, entityType);
+    }
+
+    @Override
+    public <ENTITY> AutoUpdateQuery<ENTITY> createAutoUpdateQuery(Method method,
+            EntityType<ENTITY> entityType) {
+        return delegate.createAutoUpdateQuery(method, entityType);
+    }
+
+    @Override
+    public SqlFileDeleteQuery createSqlFileDeleteQuery(Method method) {
+        return delegate.createSqlFileDeleteQuery(method);
+    }
+
+    @Override
+    public SqlFileInsertQuery createSqlFileInsertQuery(Method method) {
+        return delegate.createSqlFileInsertQuery(method);
+    }
+
+    @Override
+    public SqlFileUpdateQuery createSqlFileUpdateQuery(Method method) {
+        return delegate.createSqlFileUpdateQuery(method);
+    }
+
+    @Override
+    public SqlDeleteQuery createSqlDeleteQuery(Method method) {
+        return delegate.createSqlDeleteQuery(method);
+    }
+
+    @Override
+    public SqlInsertQuery createSqlInsertQuery(Method method) {
+        return delegate.createSqlInsertQuery(method);
+    }
+
+    @Override
+    public SqlUpdateQuery createSqlUpdateQuery(Method method) {
+        return delegate.createSqlUpdateQuery(method);
+    }
+
+    @Override
+    public <ENTITY> AutoBatchDeleteQuery<ENTITY> createAutoBatchDeleteQuery(
+            Method method, EntityType<ENTITY> entityType) {
+        return delegate.createAutoBatchDeleteQuery(method, entityType);
+    }
+
+    @Override
+    public <ENTITY> AutoBatchInsertQuery<ENTITY> createAutoBatchInsertQuery(
+            Method method, EntityType<ENTITY> entityType) {
+        return delegate.createAutoBatchInsertQuery(method, entityType);
+    }
+
+    @Override
+    public <ENTITY> AutoBatchUpdateQuery<ENTITY> createAutoBatchUpdateQuery(
+            Method method, EntityType<ENTITY> entityType) {
+        return delegate.createAutoBatchUpdateQuery(method, entityType);
+    }
+
+    @Override
+    public <ELEMENT> SqlFileBatchDeleteQuery<ELEMENT> createSqlFileBatchDeleteQuery(
+            Method method, Class<ELEMENT> elementClass) {
+        return delegate.createSqlFileBatchDeleteQuery(method, elementClass);
+    }
+
+    @Override
+    public <ELEMENT> SqlFileBatchInsertQuery<ELEMENT> createSqlFileBatchInsertQuery(
+            Method method, Class<ELEMENT> elementClass) {
+        return delegate.createSqlFileBatchInsertQuery(method, elementClass);
+    }
+
+    @Override
+    public <ELEMENT> SqlFileBatchUpdateQuery<ELEMENT> createSqlFileBatchUpdateQuery(
+            Method method, Class<ELEMENT> elementClass) {
+        return delegate.createSqlFileBatchUpdateQuery(method, elementClass);
+    }
+
+    @Override
+    public <RESULT> AutoFunctionQuery<RESULT> createAutoFunctionQuery(
+            Method method) {
+        return delegate.createAutoFunctionQuery(method);
+    }
+
+    @Override
+    public AutoProcedureQuery createAutoProcedureQuery(Method method) {
+        return delegate.createAutoProcedureQuery(method);
+    }
+
+    @Override
+    public ArrayCreateQuery createArrayCreateQuery(Method method) {
+        return delegate.createArrayCreateQuery(method);
+    }
+
+    @Override
+    public BlobCreateQuery createBlobCreateQuery(Method method) {
+        return delegate.createBlobCreateQuery(method);
+    }
+
+    @Override
+    public ClobCreateQuery createClobCreateQuery(Method method) {
+        return delegate.createClobCreateQuery(method);
+    }
+
+    @Override
+    public NClobCreateQuery createNClobCreateQuery(Method method) {
+        return delegate.createNClobCreateQuery(method);
+    }
+
+    @Override
+    public SQLXMLCreateQuery createSQLXMLCreateQuery(Method method) {
+        return delegate.createSQLXMLCreateQuery(method);
+    }
+}
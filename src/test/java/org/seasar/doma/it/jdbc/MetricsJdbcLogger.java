@@ -0,0 +1,352 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.jdbc;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.seasar.doma.jdbc.BatchResult;
+import org.seasar.doma.jdbc.JdbcLogger;
+import org.seasar.doma.jdbc.Result;
+import org.seasar.doma.jdbc.Sql;
+import org.seasar.doma.jdbc.SqlExecutionSkipCause;
+import org.seasar.doma.jdbc.SqlKind;
+
+/**
+ * A {@link JdbcLogger} that records latency histograms per SQL file path and
+ * per DAO method, and then delegates to another logger.
+ * <p>
+ * A DAO method is timed from {@link #logDaoMethodEntering} to
+ * {@link #logDaoMethodExiting}, and that time is also charged to the first
+ * SQL file the method executed. For batch methods the number of logged SQL
+ * statements is recorded as the batch size. Methods that return a
+ * {@code Stream} are timed only until the stream is returned.
+ * <p>
+ * The recording path uses only per-thread state and lock-free counters.
+ */
+public class MetricsJdbcLogger implements JdbcLogger {
+
+    protected final JdbcLogger delegate;
+
+    private final ConcurrentMap<String, SqlMetrics> sqlFileMetrics = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, ConcurrentMap<String, SqlMetrics>> daoMethodMetrics = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<FrameStack> frames = ThreadLocal
+            .withInitial(FrameStack::new);
+
+    public MetricsJdbcLogger(JdbcLogger delegate) {
+        this.delegate = Objects.requireNonNull(delegate);
+    }
+
+    /**
+     * @return the statistics keyed by SQL file path
+     */
+    public Map<String, SqlStatistics> getSqlFileStatistics() {
+        return toStatistics(sqlFileMetrics);
+    }
+
+    /**
+     * @return the statistics keyed by {@code className#methodName}
+     */
+    public Map<String, SqlStatistics> getDaoMethodStatistics() {
+        Map<String, SqlMetrics> metrics = new TreeMap<>();
+        daoMethodMetrics.forEach((className, methods) -> methods.forEach((
+                methodName, value) -> metrics.put(className + "#" + methodName,
+                value)));
+        return toStatistics(metrics);
+    }
+
+    public void reset() {
+        sqlFileMetrics.clear();
+        daoMethodMetrics.clear();
+    }
+
+    @Override
+    public void logDaoMethodEntering(String callerClassName,
+            String callerMethodName, Object... args) {
+        frames.get().push(callerClassName, callerMethodName);
+        delegate.logDaoMethodEntering(callerClassName, callerMethodName, args);
+    }
+
+    @Override
+    public void logDaoMethodExiting(String callerClassName,
+            String callerMethodName, Object result) {
+        Frame frame = frames.get().pop();
+        if (frame != null) {
+            long nanos = System.nanoTime() - frame.start;
+            long rows = countRows(result);
+            boolean batch = isBatch(frame.sqlKind);
+            SqlMetrics methodMetrics = daoMethodMetrics(frame);
+            methodMetrics.record(nanos, rows);
+            if (batch) {
+                methodMetrics.recordBatch(frame.sqlCount);
+            }
+            if (frame.sqlFilePath != null) {
+                SqlMetrics fileMetrics = sqlFileMetrics(frame.sqlFilePath);
+                fileMetrics.record(nanos, rows);
+                if (batch) {
+                    fileMetrics.recordBatch(frame.sqlCount);
+                }
+            }
+        }
+        delegate.logDaoMethodExiting(callerClassName, callerMethodName, result);
+    }
+
+    @Override
+    public void logDaoMethodThrowing(String callerClassName,
+            String callerMethodName, RuntimeException e) {
+        Frame frame = frames.get().pop();
+        if (frame != null) {
+            long nanos = System.nanoTime() - frame.start;
+            daoMethodMetrics(frame).recordError(nanos);
+            if (frame.sqlFilePath != null) {
+                sqlFileMetrics(frame.sqlFilePath).recordError(nanos);
+            }
+        }
+        delegate.logDaoMethodThrowing(callerClassName, callerMethodName, e);
+    }
+
+    @Override
+    public void logSql(String callerClassName, String callerMethodName,
+            Sql<?> sql) {
+        Frame frame = frames.get().peek();
+        if (frame != null) {
+            if (frame.sqlCount == 0) {
+                frame.sqlFilePath = sql.getSqlFilePath();
+                frame.sqlKind = sql.getKind();
+            }
+            frame.sqlCount++;
+        }
+        delegate.logSql(callerClassName, callerMethodName, sql);
+    }
+
+    @Override
+    public void logSqlExecutionSkipping(String callerClassName,
+            String callerMethodName, SqlExecutionSkipCause cause) {
+        delegate.logSqlExecutionSkipping(callerClassName, callerMethodName,
+                cause);
+    }
+
+    @Override
+    public void logTransactionBegun(String callerClassName,
+            String callerMethodName, String transactionId) {
+        delegate.logTransactionBegun(callerClassName, callerMethodName,
+                transactionId);
+    }
+
+    @Override
+    public void logTransactionEnded(String callerClassName,
+            String callerMethodName, String transactionId) {
+        delegate.logTransactionEnded(callerClassName, callerMethodName,
+                transactionId);
+    }
+
+    @Override
+    public void logTransactionCommitted(String callerClassName,
+            String callerMethodName, String transactionId) {
+        delegate.logTransactionCommitted(callerClassName, callerMethodName,
+                transactionId);
+    }
+
+    @Override
+    public void logTransactionSavepointCreated(String callerClassName,
+            String callerMethodName, String transactionId, String savepointName) {
+        delegate.logTransactionSavepointCreated(callerClassName,
+                callerMethodName, transactionId, savepointName);
+    }
+
+    @Override
+    public void logTransactionRolledback(String callerClassName,
+            String callerMethodName, String transactionId) {
+        delegate.logTransactionRolledback(callerClassName, callerMethodName,
+                transactionId);
+    }
+
+    @Override
+    public void logTransactionSavepointRolledback(String callerClassName,
+            String callerMethodName, String transactionId, String savepointName) {
+        delegate.logTransactionSavepointRolledback(callerClassName,
+                callerMethodName, transactionId, savepointName);
+    }
+
+    @Override
+    public void logTransactionRollbackFailure(String callerClassName,
+            String callerMethodName, String transactionId, SQLException e) {
+        delegate.logTransactionRollbackFailure(callerClassName,
+                callerMethodName, transactionId, e);
+    }
+
+    @Override
+    public void logAutoCommitEnablingFailure(String callerClassName,
+            String callerMethodName, SQLException e) {
+        delegate.logAutoCommitEnablingFailure(callerClassName,
+                callerMethodName, e);
+    }
+
+    @Override
+    public void logTransactionIsolationSettingFailure(String callerClassName,
+            String callerMethodName, int transactionIsolationLevel,
+            SQLException e) {
+        delegate.logTransactionIsolationSettingFailure(callerClassName,
+                callerMethodName, transactionIsolationLevel, e);
+    }
+
+    @Override
+    public void logConnectionClosingFailure(String callerClassName,
+            String callerMethodName, SQLException e) {
+        delegate.logConnectionClosingFailure(callerClassName,
+                callerMethodName, e);
+    }
+
+    @Override
+    public void logStatementClosingFailure(String callerClassName,
+            String callerMethodName, SQLException e) {
+        delegate.logStatementClosingFailure(callerClassName, callerMethodName,
+                e);
+    }
+
+    @Override
+    public void logResultSetClosingFailure(String callerClassName,
+            String callerMethodName, SQLException e) {
+        delegate.logResultSetClosingFailure(callerClassName, callerMethodName,
+                e);
+    }
+
+    protected SqlMetrics sqlFileMetrics(String sqlFilePath) {
+        SqlMetrics metrics = sqlFileMetrics.get(sqlFilePath);
+        if (metrics == null) {
+            metrics = sqlFileMetrics.computeIfAbsent(sqlFilePath,
+                    SqlMetrics::new);
+        }
+        return metrics;
+    }
+
+    protected SqlMetrics daoMethodMetrics(Frame frame) {
+        ConcurrentMap<String, SqlMetrics> methods = daoMethodMetrics
+                .get(frame.className);
+        if (methods == null) {
+            methods = daoMethodMetrics.computeIfAbsent(frame.className,
+                    k -> new ConcurrentHashMap<>());
+        }
+        SqlMetrics metrics = methods.get(frame.methodName);
+        if (metrics == null) {
+            String className = frame.className;
+            metrics = methods.computeIfAbsent(frame.methodName,
+                    methodName -> new SqlMetrics(className + "#" + methodName));
+        }
+        return metrics;
+    }
+
+    protected boolean isBatch(SqlKind kind) {
+        return kind == SqlKind.BATCH_INSERT || kind == SqlKind.BATCH_UPDATE
+                || kind == SqlKind.BATCH_DELETE;
+    }
+
+    protected long countRows(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Integer) {
+            return (Integer) result;
+        }
+        if (result instanceof int[]) {
+            return Arrays.stream((int[]) result).filter(i -> i > 0).sum();
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Result) {
+            return ((Result<?>) result).getCount();
+        }
+        if (result instanceof BatchResult) {
+            return countRows(((BatchResult<?>) result).getCounts());
+        }
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        if (result instanceof Number || result instanceof AutoCloseable) {
+            return 0;
+        }
+        return 1;
+    }
+
+    private static Map<String, SqlStatistics> toStatistics(
+            Map<String, SqlMetrics> metrics) {
+        Map<String, SqlStatistics> result = new TreeMap<>();
+        metrics.forEach((key, value) -> result.put(key, value.getStatistics()));
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Per-thread stack of reusable frames, so that nested DAO calls such as
+     * default methods are timed separately without allocating per call.
+     */
+    protected static class FrameStack {
+
+        private Frame[] frames = new Frame[4];
+
+        private int size;
+
+        public void push(String className, String methodName) {
+            if (size == frames.length) {
+                frames = Arrays.copyOf(frames, size * 2);
+            }
+            Frame frame = frames[size];
+            if (frame == null) {
+                frame = frames[size] = new Frame();
+            }
+            frame.className = className;
+            frame.methodName = methodName;
+            frame.sqlFilePath = null;
+            frame.sqlKind = null;
+            frame.sqlCount = 0;
+            frame.start = System.nanoTime();
+            size++;
+        }
+
+        public Frame peek() {
+            return size == 0 ? null : frames[size - 1];
+        }
+
+        public Frame pop() {
+            return size == 0 ? null : frames[--size];
+        }
+    }
+
+    protected static class Frame {
+
+        String className;
+
+        String methodName;
+
+        String sqlFilePath;
+
+        SqlKind sqlKind;
+
+        int sqlCount;
+
+        long start;
+    }
+}
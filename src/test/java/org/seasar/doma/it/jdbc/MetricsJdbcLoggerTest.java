@@ -0,0 +1,161 @@
+/*
+ * Copyright 2004-2009 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.seasar.doma.it.AppConfig;
+import org.seasar.doma.it.Container;
+import org.seasar.doma.it.Sandbox;
+import org.seasar.doma.it.dao.ColumnarResult;
+import org.seasar.doma.it.dao.DepartmentDao;
+import org.seasar.doma.it.dao.EmployeeDao;
+import org.seasar.doma.it.domain.Identity;
+import org.seasar.doma.it.entity.Department;
+
+public class MetricsJdbcLoggerTest {
+
+    @ClassRule
+    public static Container container = new Container();
+
+    @Rule
+    public Sandbox sandbox = new Sandbox(container);
+
+    private MetricsJdbcLogger logger;
+
+    @Before
+    public void setUp() throws Exception {
+        logger = container.get(AppConfig::getJdbcLogger);
+        logger.reset();
+    }
+
+    @Test
+    public void testSqlFile() throws Exception {
+        EmployeeDao dao = container.get(EmployeeDao::get);
+        dao.selectById(1);
+        dao.selectById(2);
+        dao.selectAll();
+        SqlStatistics selectById = logger.getSqlFileStatistics().get(
+                "META-INF/org/seasar/doma/it/dao/EmployeeDao/selectById.sql");
+        assertNotNull(selectById);
+        assertEquals(2, selectById.getCount());
+        assertEquals(2, selectById.getRows());
+        assertTrue(selectById.getP50() > 0);
+        assertTrue(selectById.getP50() <= selectById.getP99());
+        assertTrue(selectById.getP99() <= selectById.getMax());
+        SqlStatistics selectAll = logger.getSqlFileStatistics().get(
+                "META-INF/org/seasar/doma/it/dao/EmployeeDao/selectAll.sql");
+        assertEquals(14, selectAll.getRows());
+    }
+
+    @Test
+    public void testDaoMethod() throws Exception {
+        EmployeeDao dao = container.get(EmployeeDao::get);
+        dao.selectWithBuilder();
+        SqlStatistics statistics = logger.getDaoMethodStatistics().get(
+                "org.seasar.doma.it.dao.EmployeeDaoImpl#selectWithBuilder");
+        assertNotNull(statistics);
+        assertEquals(1, statistics.getCount());
+        assertEquals(14, statistics.getRows());
+        assertTrue(logger.getSqlFileStatistics().isEmpty());
+    }
+
+    @Test
+    public void testDaoDefaultMethod() throws Exception {
+        EmployeeDao dao = container.get(EmployeeDao::get);
+        dao.selectAllColumnar(Collections.singletonList(ColumnarResult
+                .intColumn("EMPLOYEE_ID")));
+        SqlStatistics statistics = logger.getDaoMethodStatistics().get(
+                "org.seasar.doma.it.dao.EmployeeDao#selectAllColumnar");
+        assertNotNull(statistics);
+        assertEquals(1, statistics.getCount());
+        SqlStatistics sqlFile = logger.getSqlFileStatistics().get(
+                "META-INF/org/seasar/doma/it/dao/EmployeeDao/selectAllColumnar.sql");
+        assertNotNull(sqlFile);
+        assertEquals(1, sqlFile.getCount());
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        DepartmentDao dao = container.get(DepartmentDao::get);
+        List<Department> departments = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Department department = new Department();
+            department.setDepartmentId(new Identity<>(90 + i));
+            department.setDepartmentNo(90 + i);
+            departments.add(department);
+        }
+        dao.insert(departments);
+        SqlStatistics statistics = logger.getDaoMethodStatistics().get(
+                "org.seasar.doma.it.dao.DepartmentDaoImpl#insert");
+        assertEquals(1, statistics.getBatches());
+        assertEquals(3, statistics.getBatchSizeP50());
+        assertEquals(3, statistics.getRows());
+    }
+
+    @Test
+    public void testBatch_multiRow() throws Exception {
+        MultiRowInsertImplementors implementors = container
+                .get(AppConfig::getMultiRowInsertImplementors);
+        int rowsPerStatement = implementors.getRowsPerStatement();
+        implementors.setRowsPerStatement(2);
+        try {
+            testBatch();
+        } finally {
+            implementors.setRowsPerStatement(rowsPerStatement);
+        }
+    }
+
+    @Test
+    public void testError() throws Exception {
+        DepartmentDao dao = container.get(DepartmentDao::get);
+        Department department = new Department();
+        department.setDepartmentId(new Identity<>(1));
+        department.setDepartmentNo(1);
+        try {
+            dao.insert(department);
+        } catch (RuntimeException expected) {
+        }
+        SqlStatistics statistics = logger.getDaoMethodStatistics().get(
+                "org.seasar.doma.it.dao.DepartmentDaoImpl#insert");
+        assertEquals(1, statistics.getErrors());
+    }
+
+    @Test
+    public void testLatencyHistogram() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100000; i++) {
+            histogram.record(i);
+        }
+        assertEquals(100000, histogram.getCount());
+        assertEquals(100000, histogram.getMax());
+        assertEquals(50000, histogram.getValueAtPercentile(50), 50000 * 0.04);
+        assertEquals(99000, histogram.getValueAtPercentile(99), 99000 * 0.04);
+        assertEquals(99900, histogram.getValueAtPercentile(99.9),
+                99900 * 0.04);
+        assertEquals(0, new LatencyHistogram().getValueAtPercentile(50));
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.seasar.doma.internal.jdbc.sql.InParameter;
+import org.seasar.doma.internal.jdbc.sql.PreparedSql;
+import org.seasar.doma.jdbc.command.BatchInsertCommand;
+import org.seasar.doma.jdbc.query.BatchInsertQuery;
+
+/**
+ * A batch insert command that sends the rows of a batch as multi-row
+ * {@code insert into ... values (...), (...)} statements.
+ * <p>
+ * Every row must have the same SQL, which must end with a single
+ * {@code values} tuple and have no parameters before it. Otherwise, and when
+ * the ids are generated by identity columns, the rows are sent as a JDBC
+ * batch as usual.
+ * <p>
+ * Each row is logged with its own SQL as in a JDBC batch, so loggers that
+ * count the statements of a batch still see its rows.
+ * <p>
+ * The update count of each row is {@code 1}, or
+ * {@link Statement#SUCCESS_NO_INFO} when the count of a statement does not
+ * match its number of rows.
+ */
+public class MultiRowBatchInsertCommand extends BatchInsertCommand {
+
+    protected static final Pattern VALUES_PATTERN = Pattern.compile(
+            "^\\s*insert\\s+into\\s+[^?]*?\\svalues\\s*(?=\\()",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    protected final int maxRows;
+
+    protected final int maxParameters;
+
+    /**
+     * @param query
+     *            the query
+     * @param maxRows
+     *            the maximum number of rows per statement
+     * @param maxParameters
+     *            the maximum number of parameters per statement
+     */
+    public MultiRowBatchInsertCommand(BatchInsertQuery query, int maxRows,
+            int maxParameters) {
+        super(query);
+        this.maxRows = maxRows;
+        this.maxParameters = maxParameters;
+    }
+
+    @Override
+    protected int[] executeInternal(PreparedStatement preparedStatement,
+            List<PreparedSql> sqls) throws SQLException {
+        if (sqls.size() < 2 || !query.isBatchSupported()
+                || query.isAutoGeneratedKeysSupported()) {
+            return super.executeInternal(preparedStatement, sqls);
+        }
+        PreparedSql first = sqls.get(0);
+        String rawSql = first.getRawSql();
+        int parameterCount = Math.max(1, first.getParameters().size());
+        int rowsPerStatement = Math.min(maxRows, maxParameters
+                / parameterCount);
+        int tupleIndex = findTuple(rawSql);
+        if (rowsPerStatement < 2 || tupleIndex < 0
+                || !isSameSql(rawSql, sqls)) {
+            return super.executeInternal(preparedStatement, sqls);
+        }
+        String prefix = rawSql.substring(0, tupleIndex);
+        String tuple = rawSql.substring(tupleIndex).trim();
+        Connection connection = preparedStatement.getConnection();
+        int[] counts = new int[sqls.size()];
+        PreparedStatement full = null;
+        try {
+            for (int from = 0; from < sqls.size(); from += rowsPerStatement) {
+                int to = Math.min(from + rowsPerStatement, sqls.size());
+                List<PreparedSql> rows = sqls.subList(from, to);
+                for (PreparedSql row : rows) {
+                    log(row);
+                }
+                PreparedSql sql = merge(prefix, tuple, tupleIndex, rows);
+                int count;
+                if (to - from == rowsPerStatement) {
+                    if (full == null) {
+                        full = connection.prepareStatement(sql.getRawSql());
+                        setupOptions(full);
+                    }
+                    bindParameters(full, sql);
+                    count = executeUpdate(full, sql);
+                } else {
+                    try (PreparedStatement rest = connection
+                            .prepareStatement(sql.getRawSql())) {
+                        setupOptions(rest);
+                        bindParameters(rest, sql);
+                        count = executeUpdate(rest, sql);
+                    }
+                }
+                Arrays.fill(counts, from, to,
+                        count == to - from ? 1 : Statement.SUCCESS_NO_INFO);
+            }
+        } finally {
+            if (full != null) {
+                full.close();
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * @return the index of the values tuple, or {@code -1} if the SQL is not
+     *         a single-row insert whose parameters are all in the tuple
+     */
+    protected static int findTuple(String sql) {
+        Matcher matcher = VALUES_PATTERN.matcher(sql);
+        if (!matcher.find()) {
+            return -1;
+        }
+        int start = matcher.end();
+        int end = sql.length();
+        while (Character.isWhitespace(sql.charAt(end - 1))) {
+            end--;
+        }
+        int depth = 0;
+        boolean quoted = false;
+        for (int i = start; i < end; i++) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (!quoted && c == '(') {
+                depth++;
+            } else if (!quoted && c == ')') {
+                depth--;
+                if (depth == 0 && i != end - 1) {
+                    return -1;
+                }
+            }
+        }
+        return depth == 0 && !quoted ? start : -1;
+    }
+
+    protected boolean isSameSql(String rawSql, List<PreparedSql> sqls) {
+        for (PreparedSql sql : sqls) {
+            if (!rawSql.equals(sql.getRawSql())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected PreparedSql merge(String prefix, String tuple, int tupleIndex,
+            List<PreparedSql> sqls) {
+        StringBuilder rawSql = new StringBuilder(prefix.length()
+                + (tuple.length() + 2) * sqls.size());
+        StringBuilder formattedSql = new StringBuilder(rawSql.capacity() * 2);
+        rawSql.append(prefix);
+        formattedSql.append(prefix);
+        List<InParameter<?>> parameters = new ArrayList<>();
+        for (int i = 0; i < sqls.size(); i++) {
+            PreparedSql sql = sqls.get(i);
+            if (i > 0) {
+                rawSql.append(", ");
+                formattedSql.append(", ");
+            }
+            rawSql.append(tuple);
+            formattedSql.append(sql.getFormattedSql().substring(tupleIndex)
+                    .trim());
+            parameters.addAll(sql.getParameters());
+        }
+        PreparedSql first = sqls.get(0);
+        return new PreparedSql(first.getKind(), rawSql, formattedSql,
+                first.getSqlFilePath(), parameters, first.getSqlLogType());
+    }
+}
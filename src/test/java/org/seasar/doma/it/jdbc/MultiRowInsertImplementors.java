@@ -0,0 +1,99 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.jdbc;
+
+import java.lang.reflect.Method;
+
+import org.seasar.doma.jdbc.CommandImplementors;
+import org.seasar.doma.jdbc.command.BatchInsertCommand;
+import org.seasar.doma.jdbc.dialect.Dialect;
+import org.seasar.doma.jdbc.query.BatchInsertQuery;
+
+/**
+ * Command implementors that send {@code @BatchInsert} batches as multi-row
+ * {@code VALUES} statements with {@link MultiRowBatchInsertCommand}, and
+ * delegate other commands.
+ * <p>
+ * Multi-row inserts are disabled until {@link #setRowsPerStatement(int)} is
+ * given a value greater than {@code 1}. The rows per statement are further
+ * limited by the number of bind parameters the database accepts. Oracle
+ * does not accept multi-row {@code VALUES} and always gets a JDBC batch.
+ */
+public class MultiRowInsertImplementors extends
+        DelegatingCommandImplementors {
+
+    protected volatile int rowsPerStatement;
+
+    public MultiRowInsertImplementors(CommandImplementors delegate) {
+        super(delegate);
+    }
+
+    @Override
+    public BatchInsertCommand createBatchInsertCommand(Method method,
+            BatchInsertQuery query) {
+        int rows = rowsPerStatement;
+        Dialect dialect = query.getConfig().getDialect();
+        int maxParameters = getMaxParameters(dialect);
+        if (rows > 1 && maxParameters > 0) {
+            return new MultiRowBatchInsertCommand(query, Math.min(rows,
+                    getMaxRows(dialect)), maxParameters);
+        }
+        return delegate.createBatchInsertCommand(method, query);
+    }
+
+    public int getRowsPerStatement() {
+        return rowsPerStatement;
+    }
+
+    /**
+     * @param rowsPerStatement
+     *            the maximum number of rows per statement, or {@code 0} to
+     *            send JDBC batches
+     */
+    public void setRowsPerStatement(int rowsPerStatement) {
+        if (rowsPerStatement < 0) {
+            throw new IllegalArgumentException("rowsPerStatement: "
+                    + rowsPerStatement);
+        }
+        this.rowsPerStatement = rowsPerStatement;
+    }
+
+    /**
+     * @return the maximum number of bind parameters per statement, or
+     *         {@code 0} if multi-row {@code VALUES} are not supported
+     */
+    protected int getMaxParameters(Dialect dialect) {
+        switch (dialect.getName()) {
+        case "oracle":
+            return 0;
+        case "sqlite":
+            return 999;
+        case "mssql":
+            return 2100;
+        case "mysql":
+            return 65535;
+        default:
+            return 32767;
+        }
+    }
+
+    protected int getMaxRows(Dialect dialect) {
+        if ("mssql".equals(dialect.getName())) {
+            return 1000;
+        }
+        return Integer.MAX_VALUE;
+    }
+}
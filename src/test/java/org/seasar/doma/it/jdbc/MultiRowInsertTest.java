@@ -0,0 +1,136 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.jdbc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.seasar.doma.it.AppConfig;
+import org.seasar.doma.it.Container;
+import org.seasar.doma.it.Sandbox;
+import org.seasar.doma.it.dao.DepartmentDao;
+import org.seasar.doma.it.domain.Identity;
+import org.seasar.doma.it.entity.Department;
+import org.seasar.doma.jdbc.BatchUniqueConstraintException;
+
+public class MultiRowInsertTest {
+
+    @ClassRule
+    public static Container container = new Container();
+
+    @Rule
+    public Sandbox sandbox = new Sandbox(container);
+
+    private int rowsPerStatement;
+
+    @Before
+    public void setUp() {
+        MultiRowInsertImplementors implementors = container
+                .get(AppConfig::getMultiRowInsertImplementors);
+        rowsPerStatement = implementors.getRowsPerStatement();
+        implementors.setRowsPerStatement(4);
+    }
+
+    @After
+    public void tearDown() {
+        container.get(AppConfig::getMultiRowInsertImplementors)
+                .setRowsPerStatement(rowsPerStatement);
+    }
+
+    @Test
+    public void testFindTuple() throws Exception {
+        String sql = "insert into DEPARTMENT (A, B) values (?, ?)";
+        int tuple = sql.indexOf("(?");
+        assertEquals(tuple, findTuple(sql));
+        assertEquals(tuple, findTuple("INSERT INTO DEPARTMENT (A, B)\n"
+                + "VALUES (?, ?)\n"));
+        assertEquals(tuple, findTuple("insert into DEPARTMENT (A, B) "
+                + "values (?, ')(')"));
+        assertEquals(-1, findTuple("insert into DEPARTMENT (A, B) "
+                + "select ?, ? from DUAL"));
+        assertEquals(-1, findTuple("insert into DEPARTMENT (A, B) "
+                + "values (?, ?) returning A"));
+        assertEquals(-1, findTuple("insert into DEPARTMENT (A, B) "
+                + "values (?, ?), (?, ?)"));
+        assertEquals(-1, findTuple("update DEPARTMENT set A = ? "
+                + "where B in (select ?)"));
+    }
+
+    private int findTuple(String sql) {
+        return MultiRowBatchInsertCommand.findTuple(sql);
+    }
+
+    @Test
+    public void testInsert() throws Exception {
+        DepartmentDao dao = container.get(DepartmentDao::get);
+        List<Department> departments = departments(100, 10);
+        int[] counts = dao.insert(departments);
+        int[] expected = new int[10];
+        Arrays.fill(expected, 1);
+        assertArrayEquals(expected, counts);
+        for (Department department : departments) {
+            assertEquals(Integer.valueOf(1), department.getVersion());
+        }
+        for (int id = 100; id < 110; id++) {
+            Department department = dao.selectById(id);
+            assertEquals(Integer.valueOf(id), department.getDepartmentNo());
+            assertEquals("MULTI " + id, department.getDepartmentName());
+            assertEquals(Integer.valueOf(1), department.getVersion());
+        }
+    }
+
+    @Test
+    public void testInsertBySqlFile() throws Exception {
+        DepartmentDao dao = container.get(DepartmentDao::get);
+        int[] counts = dao.insertBySqlFile(departments(100, 5));
+        assertArrayEquals(new int[] { 1, 1, 1, 1, 1 }, counts);
+        assertEquals(Integer.valueOf(104), dao.selectById(104)
+                .getDepartmentNo());
+    }
+
+    @Test
+    public void testUniqueConstraint() throws Exception {
+        DepartmentDao dao = container.get(DepartmentDao::get);
+        List<Department> departments = departments(100, 5);
+        departments.get(4).setDepartmentId(new Identity<Department>(1));
+        try {
+            dao.insert(departments);
+            fail();
+        } catch (BatchUniqueConstraintException expected) {
+        }
+    }
+
+    private List<Department> departments(int firstId, int count) {
+        return IntStream.range(firstId, firstId + count).mapToObj(id -> {
+            Department department = new Department();
+            department.setDepartmentId(new Identity<Department>(id));
+            department.setDepartmentNo(id);
+            department.setDepartmentName("MULTI " + id);
+            return department;
+        }).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.jdbc;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An immutable snapshot of the {@link PooledDataSource} counters.
+ */
+public class PoolStatistics {
+
+    private final int maxSize;
+
+    private final int activeConnections;
+
+    private final int idleConnections;
+
+    private final int totalConnections;
+
+    private final long acquisitions;
+
+    private final long timeouts;
+
+    private final long createdConnections;
+
+    private final long destroyedConnections;
+
+    private final long validationFailures;
+
+    private final long totalWaitNanos;
+
+    private final long maxWaitNanos;
+
+    public PoolStatistics(int maxSize, int activeConnections,
+            int idleConnections, int totalConnections, long acquisitions,
+            long timeouts, long createdConnections, long destroyedConnections,
+            long validationFailures, long totalWaitNanos, long maxWaitNanos) {
+        this.maxSize = maxSize;
+        this.activeConnections = activeConnections;
+        this.idleConnections = idleConnections;
+        this.totalConnections = totalConnections;
+        this.acquisitions = acquisitions;
+        this.timeouts = timeouts;
+        this.createdConnections = createdConnections;
+        this.destroyedConnections = destroyedConnections;
+        this.validationFailures = validationFailures;
+        this.totalWaitNanos = totalWaitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+
+    public int getTotalConnections() {
+        return totalConnections;
+    }
+
+    public long getAcquisitions() {
+        return acquisitions;
+    }
+
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    public long getCreatedConnections() {
+        return createdConnections;
+    }
+
+    public long getDestroyedConnections() {
+        return destroyedConnections;
+    }
+
+    public long getValidationFailures() {
+        return validationFailures;
+    }
+
+    public long getTotalWaitNanos() {
+        return totalWaitNanos;
+    }
+
+    public long getMaxWaitNanos() {
+        return maxWaitNanos;
+    }
+
+    public long getAverageWaitNanos() {
+        return acquisitions == 0 ? 0 : totalWaitNanos / acquisitions;
+    }
+
+    /**
+     * @return the ratio of borrowed connections to the maximum pool size
+     */
+    public double getUtilization() {
+        return (double) activeConnections / maxSize;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolStatistics [active=" + activeConnections + ", idle="
+                + idleConnections + ", total=" + totalConnections
+                + ", maxSize=" + maxSize + ", acquisitions=" + acquisitions
+                + ", timeouts=" + timeouts + ", created=" + createdConnections
+                + ", destroyed=" + destroyedConnections
+                + ", validationFailures=" + validationFailures
+                + ", averageWait="
+                + TimeUnit.NANOSECONDS.toMicros(getAverageWaitNanos())
+                + "us, maxWait="
+                + TimeUnit.NANOSECONDS.toMicros(maxWaitNanos) + "us]";
+    }
+}
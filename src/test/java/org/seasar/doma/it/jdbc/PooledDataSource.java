@@ -0,0 +1,516 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.jdbc;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.Objects;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+/**
+ * A bounded connection pool in front of a physical {@link DataSource}.
+ * <p>
+ * The pool opens {@code minSize} connections on the first
+ * {@link #getConnection()}. Connections are validated when borrowed, idle
+ * connections beyond the minimum size are evicted once they exceed the idle
+ * timeout, and callers wait at most the acquisition timeout for a free
+ * connection.
+ * <p>
+ * Statements, their result sets and the database metadata of a pooled
+ * connection return the pooled connection, not the physical one, from
+ * {@code getConnection()}, so that closing it always returns the connection
+ * to the pool.
+ */
+public class PooledDataSource implements DataSource, AutoCloseable {
+
+    private static Logger logger = Logger.getLogger(PooledDataSource.class
+            .getName());
+
+    protected final DataSource dataSource;
+
+    protected final int minSize;
+
+    protected final int maxSize;
+
+    protected volatile long acquisitionTimeout = TimeUnit.SECONDS.toMillis(30);
+
+    protected volatile long idleTimeout = TimeUnit.MINUTES.toMillis(10);
+
+    protected volatile int validationTimeout = 5;
+
+    protected volatile boolean closed;
+
+    protected volatile boolean filled;
+
+    private final Semaphore permits;
+
+    private final BlockingDeque<PhysicalConnection> idleConnections = new LinkedBlockingDeque<>();
+
+    private final AtomicInteger totalConnections = new AtomicInteger();
+
+    private final AtomicInteger activeConnections = new AtomicInteger();
+
+    private final LongAdder acquisitions = new LongAdder();
+
+    private final LongAdder timeouts = new LongAdder();
+
+    private final LongAdder createdConnections = new LongAdder();
+
+    private final LongAdder destroyedConnections = new LongAdder();
+
+    private final LongAdder validationFailures = new LongAdder();
+
+    private final LongAdder totalWaitNanos = new LongAdder();
+
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public PooledDataSource(DataSource dataSource, int minSize, int maxSize) {
+        Objects.requireNonNull(dataSource);
+        if (minSize < 0) {
+            throw new IllegalArgumentException("minSize: " + minSize);
+        }
+        if (maxSize < 1 || maxSize < minSize) {
+            throw new IllegalArgumentException("maxSize: " + maxSize);
+        }
+        this.dataSource = dataSource;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getAcquisitionTimeout() {
+        return acquisitionTimeout;
+    }
+
+    /**
+     * @param acquisitionTimeout
+     *            the maximum time in milliseconds to wait for a connection
+     */
+    public void setAcquisitionTimeout(long acquisitionTimeout) {
+        this.acquisitionTimeout = acquisitionTimeout;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * @param idleTimeout
+     *            the time in milliseconds after which an idle connection
+     *            beyond the minimum size is closed
+     */
+    public void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public int getValidationTimeout() {
+        return validationTimeout;
+    }
+
+    /**
+     * @param validationTimeout
+     *            the time in seconds passed to
+     *            {@link Connection#isValid(int)} on borrow
+     */
+    public void setValidationTimeout(int validationTimeout) {
+        this.validationTimeout = validationTimeout;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("The pool is closed.");
+        }
+        if (!filled) {
+            fill();
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquisitionTimeout, TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new SQLTimeoutException(
+                        "Timed out waiting for a connection. timeout="
+                                + acquisitionTimeout + "ms, maxSize="
+                                + maxSize);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException(e);
+        }
+        recordWait(System.nanoTime() - start);
+        try {
+            PhysicalConnection physical = borrow();
+            activeConnections.incrementAndGet();
+            acquisitions.increment();
+            return physical.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password)
+            throws SQLException {
+        throw new SQLFeatureNotSupportedException(
+                "The pool does not support per-call credentials.");
+    }
+
+    /**
+     * Returns a snapshot of the pool counters.
+     *
+     * @return the statistics
+     */
+    public PoolStatistics getStatistics() {
+        return new PoolStatistics(maxSize, activeConnections.get(),
+                idleConnections.size(), totalConnections.get(),
+                acquisitions.sum(), timeouts.sum(), createdConnections.sum(),
+                destroyedConnections.sum(), validationFailures.sum(),
+                totalWaitNanos.sum(), maxWaitNanos.get());
+    }
+
+    /**
+     * Closes idle connections that have exceeded the idle timeout while more
+     * than {@code minSize} connections are open. Connections that fail
+     * validation are not replaced, so the pool can shrink below
+     * {@code minSize}.
+     */
+    public void evictIdleConnections() {
+        long now = System.nanoTime();
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeout);
+        while (totalConnections.get() > minSize) {
+            PhysicalConnection oldest = idleConnections.peekLast();
+            if (oldest == null || now - oldest.lastUsed < timeoutNanos) {
+                return;
+            }
+            if (idleConnections.removeLastOccurrence(oldest)) {
+                destroy(oldest);
+            }
+        }
+    }
+
+    /**
+     * Opens idle connections until {@code minSize} connections are open.
+     * Called once by the first {@link #getConnection()}, and again after a
+     * failure.
+     *
+     * @throws SQLException
+     *             if a connection cannot be opened
+     */
+    protected synchronized void fill() throws SQLException {
+        if (filled) {
+            return;
+        }
+        while (totalConnections.get() < minSize) {
+            PhysicalConnection physical = create();
+            idleConnections.offerLast(physical);
+        }
+        filled = true;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        PhysicalConnection physical;
+        while ((physical = idleConnections.pollFirst()) != null) {
+            destroy(physical);
+        }
+    }
+
+    protected PhysicalConnection borrow() throws SQLException {
+        for (;;) {
+            PhysicalConnection physical = idleConnections.pollFirst();
+            if (physical == null) {
+                return create();
+            }
+            if (validate(physical)) {
+                return physical;
+            }
+            validationFailures.increment();
+            destroy(physical);
+        }
+    }
+
+    protected PhysicalConnection create() throws SQLException {
+        Connection connection = dataSource.getConnection();
+        totalConnections.incrementAndGet();
+        createdConnections.increment();
+        return new PhysicalConnection(connection);
+    }
+
+    protected boolean validate(PhysicalConnection physical) {
+        try {
+            return physical.connection.isValid(validationTimeout);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    protected boolean reset(PhysicalConnection physical) {
+        Connection connection = physical.connection;
+        try {
+            if (connection.isClosed()) {
+                return false;
+            }
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    protected void release(PhysicalConnection physical) {
+        activeConnections.decrementAndGet();
+        try {
+            if (!closed && reset(physical)) {
+                physical.lastUsed = System.nanoTime();
+                idleConnections.offerFirst(physical);
+            } else {
+                destroy(physical);
+            }
+        } finally {
+            permits.release();
+        }
+        evictIdleConnections();
+    }
+
+    protected void destroy(PhysicalConnection physical) {
+        totalConnections.decrementAndGet();
+        destroyedConnections.increment();
+        try {
+            physical.connection.close();
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Failed to close a pooled connection.",
+                    e);
+        }
+    }
+
+    private void recordWait(long nanos) {
+        totalWaitNanos.add(nanos);
+        long max;
+        while (nanos > (max = maxWaitNanos.get())) {
+            if (maxWaitNanos.compareAndSet(max, nanos)) {
+                break;
+            }
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return dataSource.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        dataSource.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        dataSource.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return dataSource.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return dataSource.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return dataSource.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || dataSource.isWrapperFor(iface);
+    }
+
+    protected class PhysicalConnection {
+
+        protected final Connection connection;
+
+        protected volatile long lastUsed = System.nanoTime();
+
+        protected PhysicalConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        protected Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, new Handle(this));
+        }
+    }
+
+    /**
+     * The logical connection handed to callers. Closing it returns the
+     * physical connection to the pool.
+     */
+    protected class Handle implements InvocationHandler {
+
+        protected final PhysicalConnection physical;
+
+        protected boolean closed;
+
+        protected Handle(PhysicalConnection physical) {
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args)
+                throws Throwable {
+            switch (method.getName()) {
+            case "close":
+                if (!closed) {
+                    closed = true;
+                    release(physical);
+                }
+                return null;
+            case "isClosed":
+                return closed;
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "Pooled[" + physical.connection + "]";
+            default:
+                if (closed) {
+                    throw new SQLException("The connection is closed.");
+                }
+                Object result;
+                try {
+                    result = method.invoke(physical.connection, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                return wrap(result, method.getReturnType(), (Connection) proxy,
+                        null);
+            }
+        }
+    }
+
+    /**
+     * Wraps a statement, result set or database metadata so that it returns
+     * the pooled connection and the wrapped statement.
+     */
+    protected static Object wrap(Object target, Class<?> type,
+            Connection connection, Object statement) {
+        if (target == null
+                || !(type == Statement.class
+                        || type == PreparedStatement.class
+                        || type == CallableStatement.class
+                        || type == DatabaseMetaData.class || type == ResultSet.class)) {
+            return target;
+        }
+        return Proxy.newProxyInstance(type.getClassLoader(),
+                new Class<?>[] { type }, new ChildHandle(target, connection,
+                        statement));
+    }
+
+    /**
+     * A statement, result set or database metadata of a logical connection.
+     */
+    protected static class ChildHandle implements InvocationHandler {
+
+        protected final Object target;
+
+        protected final Connection connection;
+
+        protected final Object statement;
+
+        protected ChildHandle(Object target, Connection connection,
+                Object statement) {
+            this.target = target;
+            this.connection = connection;
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args)
+                throws Throwable {
+            switch (method.getName()) {
+            case "getConnection":
+                if (method.getParameterCount() == 0) {
+                    return connection;
+                }
+                break;
+            case "getStatement":
+                if (target instanceof ResultSet) {
+                    return statement;
+                }
+                break;
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                break;
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof ResultSet && target instanceof Statement) {
+                return wrap(result, method.getReturnType(), connection, proxy);
+            }
+            return result;
+        }
+    }
+}
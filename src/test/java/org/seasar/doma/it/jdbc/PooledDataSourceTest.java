@@ -0,0 +1,158 @@
+/*
+ * Copyright 2004-2009 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.seasar.doma.it.AppConfig;
+import org.seasar.doma.it.Container;
+import org.seasar.doma.it.Sandbox;
+import org.seasar.doma.it.dao.EmployeeDao;
+
+public class PooledDataSourceTest {
+
+    @ClassRule
+    public static Container container = new Container();
+
+    @Rule
+    public Sandbox sandbox = new Sandbox(container);
+
+    @Test
+    public void testAppConfig() throws Exception {
+        EmployeeDao dao = container.get(EmployeeDao::get);
+        assertNotNull(dao.selectById(1));
+        PoolStatistics statistics = container
+                .get(AppConfig::getPoolStatistics);
+        assertTrue(statistics.getActiveConnections() > 0);
+        assertTrue(statistics.getUtilization() > 0);
+        assertTrue(statistics.getAcquisitions() > 0);
+    }
+
+    @Test
+    public void testReuse() throws Exception {
+        try (PooledDataSource dataSource = new PooledDataSource(
+                container.get(AppConfig::getOriginalDataSource), 1, 2)) {
+            Connection connection = dataSource.getConnection();
+            connection.close();
+            assertTrue(connection.isClosed());
+            dataSource.getConnection().close();
+            PoolStatistics statistics = dataSource.getStatistics();
+            assertEquals(2, statistics.getAcquisitions());
+            assertEquals(1, statistics.getCreatedConnections());
+            assertEquals(1, statistics.getIdleConnections());
+            assertEquals(0, statistics.getActiveConnections());
+        }
+    }
+
+    @Test
+    public void testAcquisitionTimeout() throws Exception {
+        try (PooledDataSource dataSource = new PooledDataSource(
+                container.get(AppConfig::getOriginalDataSource), 0, 1)) {
+            dataSource.setAcquisitionTimeout(10);
+            try (Connection connection = dataSource.getConnection()) {
+                assertFalse(connection.isClosed());
+                try {
+                    dataSource.getConnection();
+                    fail();
+                } catch (SQLTimeoutException expected) {
+                }
+                assertEquals(1.0, dataSource.getStatistics()
+                        .getUtilization(), 0);
+            }
+            assertEquals(1, dataSource.getStatistics().getTimeouts());
+        }
+    }
+
+    @Test
+    public void testIdleEviction() throws Exception {
+        try (PooledDataSource dataSource = new PooledDataSource(
+                container.get(AppConfig::getOriginalDataSource), 0, 2)) {
+            dataSource.setIdleTimeout(0);
+            dataSource.getConnection().close();
+            PoolStatistics statistics = dataSource.getStatistics();
+            assertEquals(0, statistics.getTotalConnections());
+            assertEquals(1, statistics.getDestroyedConnections());
+        }
+    }
+
+    @Test
+    public void testMinSize() throws Exception {
+        try (PooledDataSource dataSource = new PooledDataSource(
+                container.get(AppConfig::getOriginalDataSource), 2, 3)) {
+            assertEquals(0, dataSource.getStatistics().getTotalConnections());
+            try (Connection connection = dataSource.getConnection()) {
+                assertFalse(connection.isClosed());
+                PoolStatistics statistics = dataSource.getStatistics();
+                assertEquals(2, statistics.getTotalConnections());
+                assertEquals(1, statistics.getIdleConnections());
+            }
+            dataSource.setIdleTimeout(0);
+            dataSource.evictIdleConnections();
+            assertEquals(2, dataSource.getStatistics().getTotalConnections());
+        }
+    }
+
+    @Test
+    public void testStatementConnection() throws Exception {
+        try (PooledDataSource dataSource = new PooledDataSource(
+                container.get(AppConfig::getOriginalDataSource), 0, 1);
+                Connection connection = dataSource.getConnection()) {
+            try (Statement statement = connection.createStatement();
+                    ResultSet resultSet = statement
+                            .executeQuery("select 1 from DEPARTMENT")) {
+                assertSame(connection, statement.getConnection());
+                assertSame(statement, resultSet.getStatement());
+            }
+            try (PreparedStatement statement = connection
+                    .prepareStatement("select 1 from DEPARTMENT")) {
+                assertSame(connection, statement.getConnection());
+            }
+            assertSame(connection, connection.getMetaData().getConnection());
+        }
+    }
+
+    @Test
+    public void testClosedHandle() throws Exception {
+        try (PooledDataSource dataSource = new PooledDataSource(
+                container.get(AppConfig::getOriginalDataSource), 0, 1)) {
+            Connection connection = dataSource.getConnection();
+            connection.close();
+            try {
+                connection.createStatement();
+                fail();
+            } catch (SQLException expected) {
+            }
+            try (Connection another = dataSource.getConnection()) {
+                assertFalse(another.isClosed());
+            }
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.jdbc;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.seasar.doma.jdbc.GreedyCacheSqlFileRepository;
+import org.seasar.doma.jdbc.dialect.Dialect;
+
+/**
+ * A {@link GreedyCacheSqlFileRepository} that can load and parse all SQL
+ * files under a resource directory before the first DAO call.
+ * <p>
+ * Each SQL file is cached exactly as a DAO method would request it, so the
+ * dialect-specific variant such as {@code selectWithOptionalOrderBy-postgres.sql}
+ * is chosen for the current dialect. The variants for the other dialects are
+ * parsed too, only to report their errors. SQL files that no DAO method
+ * uses are parsed and reported as orphans but not cached.
+ */
+public class PreloadingSqlFileRepository extends GreedyCacheSqlFileRepository {
+
+    public static final String DAO_ROOT = "META-INF/org/seasar/doma/it/dao";
+
+    private static final Pattern DIALECT_VARIANT = Pattern
+            .compile("(.+)-(h2|hsqldb|sqlite|mysql|postgres|mssql2008|mssql|oracle11|oracle|db2)\\.sql");
+
+    protected final ClassLoader classLoader;
+
+    public PreloadingSqlFileRepository() {
+        this(PreloadingSqlFileRepository.class.getClassLoader());
+    }
+
+    public PreloadingSqlFileRepository(ClassLoader classLoader) {
+        this.classLoader = Objects.requireNonNull(classLoader);
+    }
+
+    /**
+     * Loads and parses every SQL file under {@link #DAO_ROOT} in parallel.
+     *
+     * @param dialect
+     *            the dialect whose variants are cached
+     * @return the result
+     */
+    public SqlFileWarmUpResult warmUp(Dialect dialect) {
+        return warmUp(DAO_ROOT, dialect);
+    }
+
+    /**
+     * Loads and parses every SQL file under a resource directory in parallel.
+     *
+     * @param root
+     *            the resource directory, such as {@code META-INF/foo/dao}
+     * @param dialect
+     *            the dialect whose variants are cached
+     * @return the result
+     */
+    public SqlFileWarmUpResult warmUp(String root, Dialect dialect) {
+        Objects.requireNonNull(root);
+        Objects.requireNonNull(dialect);
+        long start = System.nanoTime();
+        SortedSet<String> paths = new TreeSet<>();
+        SortedSet<String> variants = new TreeSet<>();
+        for (String path : scan(root)) {
+            Matcher matcher = DIALECT_VARIANT.matcher(path);
+            if (matcher.matches()) {
+                variants.add(path);
+                paths.add(matcher.group(1) + ".sql");
+            } else {
+                paths.add(path);
+            }
+        }
+        Map<String, RuntimeException> errors = new ConcurrentSkipListMap<>();
+        Set<String> orphans = new ConcurrentSkipListSet<>();
+        AtomicInteger cached = new AtomicInteger();
+        paths.parallelStream().forEach(path -> {
+            String primaryPath = getPrimaryPath(path, dialect);
+            if (classLoader.getResource(primaryPath) == null) {
+                primaryPath = path;
+                if (classLoader.getResource(path) == null) {
+                    return;
+                }
+            }
+            try {
+                Method method = findDaoMethod(path);
+                if (method == null) {
+                    orphans.add(path);
+                    parse(getSql(primaryPath));
+                } else {
+                    getSqlFile(method, path, dialect);
+                    cached.incrementAndGet();
+                }
+            } catch (RuntimeException e) {
+                errors.put(path, e);
+            }
+        });
+        variants.parallelStream().forEach(path -> {
+            try {
+                parse(getSql(path));
+            } catch (RuntimeException e) {
+                errors.put(path, e);
+            }
+        });
+        return new SqlFileWarmUpResult(cached.get(), paths.size()
+                + variants.size(), orphans, errors, System.nanoTime() - start);
+    }
+
+    /**
+     * @return the paths of the cached SQL files, without dialect suffixes
+     */
+    public Set<String> getCachedPaths() {
+        return Collections.unmodifiableSet(sqlFileMap.keySet());
+    }
+
+    protected SortedSet<String> scan(String root) {
+        String prefix = root.endsWith("/") ? root : root + "/";
+        SortedSet<String> paths = new TreeSet<>();
+        try {
+            Enumeration<URL> urls = classLoader.getResources(root);
+            while (urls.hasMoreElements()) {
+                URL url = urls.nextElement();
+                if ("file".equals(url.getProtocol())) {
+                    Path dir = Paths.get(url.toURI());
+                    try (Stream<Path> stream = Files.walk(dir)) {
+                        stream.filter(p -> p.toString().endsWith(".sql"))
+                                .forEach(p -> paths.add(prefix
+                                        + dir.relativize(p).toString()
+                                                .replace('\\', '/')));
+                    }
+                } else if ("jar".equals(url.getProtocol())) {
+                    JarURLConnection connection = (JarURLConnection) url
+                            .openConnection();
+                    connection.setUseCaches(false);
+                    try (JarFile jarFile = connection.getJarFile()) {
+                        for (JarEntry entry : Collections.list(jarFile
+                                .entries())) {
+                            String name = entry.getName();
+                            if (name.startsWith(prefix)
+                                    && name.endsWith(".sql")) {
+                                paths.add(name);
+                            }
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+        return paths;
+    }
+
+    /**
+     * Resolves the DAO method that owns a SQL file, such as
+     * {@code EmployeeDao#selectById} for
+     * {@code META-INF/org/seasar/doma/it/dao/EmployeeDao/selectById.sql}.
+     *
+     * @param path
+     *            the SQL file path
+     * @return the method, or {@code null} if the DAO or the method does not
+     *         exist
+     */
+    protected Method findDaoMethod(String path) {
+        int slash = path.lastIndexOf('/');
+        String className = path.substring("META-INF/".length(), slash)
+                .replace('/', '.');
+        String methodName = path.substring(slash + 1,
+                path.length() - ".sql".length());
+        Class<?> daoClass;
+        try {
+            daoClass = Class.forName(className, false, classLoader);
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+        for (Method method : daoClass.getMethods()) {
+            if (method.getName().equals(methodName)) {
+                return method;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.seasar.doma.it.AppConfig;
+import org.seasar.doma.it.Container;
+import org.seasar.doma.it.Sandbox;
+import org.seasar.doma.jdbc.SqlFile;
+import org.seasar.doma.jdbc.dialect.H2Dialect;
+import org.seasar.doma.jdbc.dialect.PostgresDialect;
+
+public class PreloadingSqlFileRepositoryTest {
+
+    private static final String ROOT = "META-INF/org/seasar/doma/it/dao/EmployeeDao";
+
+    private static final String ORDER_BY = ROOT
+            + "/selectWithOptionalOrderBy.sql";
+
+    @ClassRule
+    public static Container container = new Container();
+
+    @Rule
+    public Sandbox sandbox = new Sandbox(container);
+
+    @Test
+    public void testAppConfig() throws Exception {
+        SqlFileWarmUpResult result = container.get(
+                AppConfig::getSqlFileRepository).warmUp(
+                container.get(AppConfig::getDialect));
+        assertTrue(result.toString(), result.getErrors().isEmpty());
+        assertTrue(result.getCachedFiles() > 40);
+        assertTrue(result.getOrphanFiles().contains(
+                "META-INF/org/seasar/doma/it/dao/AddressDao/selectById.sql"));
+        assertTrue(result.getScannedFiles() > result.getCachedFiles());
+    }
+
+    @Test
+    public void testDialectVariant() throws Exception {
+        PreloadingSqlFileRepository repository = new PreloadingSqlFileRepository();
+        SqlFileWarmUpResult result = repository.warmUp(ROOT,
+                new PostgresDialect());
+        assertTrue(result.getErrors().isEmpty());
+        assertTrue(repository.getCachedPaths().contains(ORDER_BY));
+        assertEquals(result.getCachedFiles(), repository.getCachedPaths()
+                .size());
+        SqlFile sqlFile = repository.getSqlFile(
+                repository.findDaoMethod(ORDER_BY), ORDER_BY,
+                new PostgresDialect());
+        assertEquals(ROOT + "/selectWithOptionalOrderBy-postgres.sql",
+                sqlFile.getPath());
+
+        repository = new PreloadingSqlFileRepository();
+        repository.warmUp(ROOT, new H2Dialect());
+        sqlFile = repository.getSqlFile(repository.findDaoMethod(ORDER_BY),
+                ORDER_BY, new H2Dialect());
+        assertEquals(ORDER_BY, sqlFile.getPath());
+    }
+}
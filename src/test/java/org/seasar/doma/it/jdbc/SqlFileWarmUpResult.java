@@ -0,0 +1,90 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.jdbc;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The result of {@link PreloadingSqlFileRepository#warmUp}.
+ */
+public class SqlFileWarmUpResult {
+
+    private final int cachedFiles;
+
+    private final int scannedFiles;
+
+    private final Set<String> orphanFiles;
+
+    private final Map<String, RuntimeException> errors;
+
+    private final long elapsedNanos;
+
+    public SqlFileWarmUpResult(int cachedFiles, int scannedFiles,
+            Set<String> orphanFiles, Map<String, RuntimeException> errors,
+            long elapsedNanos) {
+        this.cachedFiles = cachedFiles;
+        this.scannedFiles = scannedFiles;
+        this.orphanFiles = Collections.unmodifiableSet(new TreeSet<>(
+                orphanFiles));
+        this.errors = Collections.unmodifiableMap(new TreeMap<>(errors));
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return the number of SQL files now in the cache
+     */
+    public int getCachedFiles() {
+        return cachedFiles;
+    }
+
+    /**
+     * @return the number of SQL file paths, including dialect variants
+     */
+    public int getScannedFiles() {
+        return scannedFiles;
+    }
+
+    /**
+     * @return the SQL files that no DAO method uses
+     */
+    public Set<String> getOrphanFiles() {
+        return orphanFiles;
+    }
+
+    /**
+     * @return the errors keyed by SQL file path
+     */
+    public Map<String, RuntimeException> getErrors() {
+        return errors;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "SqlFileWarmUpResult [cachedFiles=" + cachedFiles
+                + ", scannedFiles=" + scannedFiles + ", orphanFiles="
+                + orphanFiles + ", errors=" + errors.keySet() + ", elapsed="
+                + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + "ms]";
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.jdbc;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The mutable, thread-safe recorder behind a {@link SqlStatistics}.
+ */
+public class SqlMetrics {
+
+    private final String key;
+
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    private final LatencyHistogram batchSizes = new LatencyHistogram();
+
+    private final LongAdder errors = new LongAdder();
+
+    private final LongAdder rows = new LongAdder();
+
+    public SqlMetrics(String key) {
+        this.key = key;
+    }
+
+    public void record(long nanos, long rowCount) {
+        latencies.record(nanos);
+        rows.add(rowCount);
+    }
+
+    public void recordBatch(int batchSize) {
+        batchSizes.record(batchSize);
+    }
+
+    public void recordError(long nanos) {
+        latencies.record(nanos);
+        errors.increment();
+    }
+
+    public SqlStatistics getStatistics() {
+        return new SqlStatistics(key, latencies.getCount(), errors.sum(),
+                rows.sum(), latencies.getValueAtPercentile(50),
+                latencies.getValueAtPercentile(99),
+                latencies.getValueAtPercentile(99.9), latencies.getMax(),
+                latencies.getMean(), batchSizes.getCount(),
+                batchSizes.getValueAtPercentile(50), batchSizes.getMax());
+    }
+}
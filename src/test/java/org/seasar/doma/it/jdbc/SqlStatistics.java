@@ -0,0 +1,128 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.jdbc;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An immutable snapshot of the latencies recorded for a SQL file or a DAO
+ * method by {@link MetricsJdbcLogger}. Latencies are in nanoseconds.
+ */
+public class SqlStatistics {
+
+    private final String key;
+
+    private final long count;
+
+    private final long errors;
+
+    private final long rows;
+
+    private final long p50;
+
+    private final long p99;
+
+    private final long p999;
+
+    private final long max;
+
+    private final double mean;
+
+    private final long batches;
+
+    private final long batchSizeP50;
+
+    private final long batchSizeMax;
+
+    public SqlStatistics(String key, long count, long errors, long rows,
+            long p50, long p99, long p999, long max, double mean,
+            long batches, long batchSizeP50, long batchSizeMax) {
+        this.key = key;
+        this.count = count;
+        this.errors = errors;
+        this.rows = rows;
+        this.p50 = p50;
+        this.p99 = p99;
+        this.p999 = p999;
+        this.max = max;
+        this.mean = mean;
+        this.batches = batches;
+        this.batchSizeP50 = batchSizeP50;
+        this.batchSizeMax = batchSizeMax;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public long getP999() {
+        return p999;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public long getBatches() {
+        return batches;
+    }
+
+    public long getBatchSizeP50() {
+        return batchSizeP50;
+    }
+
+    public long getBatchSizeMax() {
+        return batchSizeMax;
+    }
+
+    @Override
+    public String toString() {
+        return "SqlStatistics [key=" + key + ", count=" + count + ", errors="
+                + errors + ", rows=" + rows + ", p50=" + micros(p50)
+                + "us, p99=" + micros(p99) + "us, p999=" + micros(p999)
+                + "us, max=" + micros(max) + "us, batches=" + batches
+                + ", batchSizeP50=" + batchSizeP50 + ", batchSizeMax="
+                + batchSizeMax + "]";
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.jdbc;
+
+/**
+ * An immutable snapshot of the {@link StatementCachingDataSource} counters.
+ */
+public class StatementCacheStatistics {
+
+    private final int cacheSize;
+
+    private final int cachedStatements;
+
+    private final long hits;
+
+    private final long misses;
+
+    private final long evictions;
+
+    public StatementCacheStatistics(int cacheSize, int cachedStatements,
+            long hits, long misses, long evictions) {
+        this.cacheSize = cacheSize;
+        this.cachedStatements = cachedStatements;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    public int getCachedStatements() {
+        return cachedStatements;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return the ratio of hits to all prepare calls, between 0 and 1
+     */
+    public double getHitRatio() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return "StatementCacheStatistics [cacheSize=" + cacheSize
+                + ", cachedStatements=" + cachedStatements + ", hits=" + hits
+                + ", misses=" + misses + ", evictions=" + evictions + "]";
+    }
+}
@@ -0,0 +1,433 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.jdbc;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+/**
+ * A {@link DataSource} that keeps a per-connection LRU cache of
+ * {@link PreparedStatement} objects.
+ * <p>
+ * Statements are keyed by SQL text, result set type, result set concurrency
+ * and the auto-generated keys flag. Closing a cached statement returns it to
+ * the cache after its parameters, batch and options are reset; evicted
+ * statements and the statements of a closed connection are closed for real.
+ * When a statement is still in use, for example while a stream is open, the
+ * same SQL is prepared again without caching.
+ * <p>
+ * Put this data source below {@link PooledDataSource} so that the cache lives
+ * as long as the physical connection.
+ */
+public class StatementCachingDataSource implements DataSource {
+
+    private static Logger logger = Logger
+            .getLogger(StatementCachingDataSource.class.getName());
+
+    protected final DataSource dataSource;
+
+    protected final int cacheSize;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final AtomicInteger cachedStatements = new AtomicInteger();
+
+    public StatementCachingDataSource(DataSource dataSource, int cacheSize) {
+        Objects.requireNonNull(dataSource);
+        if (cacheSize < 1) {
+            throw new IllegalArgumentException("cacheSize: " + cacheSize);
+        }
+        this.dataSource = dataSource;
+        this.cacheSize = cacheSize;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return newConnection(dataSource.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password)
+            throws SQLException {
+        return newConnection(dataSource.getConnection(username, password));
+    }
+
+    /**
+     * Returns a snapshot of the cache counters.
+     *
+     * @return the statistics
+     */
+    public StatementCacheStatistics getStatistics() {
+        return new StatementCacheStatistics(cacheSize, cachedStatements.get(),
+                hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    protected Connection newConnection(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, new CachingConnection(
+                        connection));
+    }
+
+    protected static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Failed to close a cached statement.", e);
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return dataSource.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        dataSource.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        dataSource.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return dataSource.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return dataSource.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return dataSource.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || dataSource.isWrapperFor(iface);
+    }
+
+    protected static class Key {
+
+        protected final String sql;
+
+        protected final int resultSetType;
+
+        protected final int resultSetConcurrency;
+
+        protected final int autoGeneratedKeys;
+
+        protected Key(String sql, int resultSetType, int resultSetConcurrency,
+                int autoGeneratedKeys) {
+            this.sql = sql;
+            this.resultSetType = resultSetType;
+            this.resultSetConcurrency = resultSetConcurrency;
+            this.autoGeneratedKeys = autoGeneratedKeys;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = sql.hashCode();
+            result = 31 * result + resultSetType;
+            result = 31 * result + resultSetConcurrency;
+            return 31 * result + autoGeneratedKeys;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return resultSetType == other.resultSetType
+                    && resultSetConcurrency == other.resultSetConcurrency
+                    && autoGeneratedKeys == other.autoGeneratedKeys
+                    && sql.equals(other.sql);
+        }
+    }
+
+    protected static class CachedStatement {
+
+        protected final Key key;
+
+        protected final PreparedStatement statement;
+
+        protected final int defaultFetchSize;
+
+        protected boolean inUse;
+
+        protected boolean evicted;
+
+        protected CachedStatement(Key key, PreparedStatement statement)
+                throws SQLException {
+            this.key = key;
+            this.statement = statement;
+            this.defaultFetchSize = statement.getFetchSize();
+        }
+    }
+
+    /**
+     * The connection handed to callers. It owns the statement cache of one
+     * physical connection.
+     */
+    protected class CachingConnection implements InvocationHandler {
+
+        protected final Connection connection;
+
+        protected final Map<Key, CachedStatement> cache = new LinkedHashMap<>(
+                16, 0.75f, true);
+
+        protected Connection proxy;
+
+        protected CachingConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args)
+                throws Throwable {
+            this.proxy = (Connection) proxy;
+            switch (method.getName()) {
+            case "prepareStatement":
+                Key key = toKey(method, args);
+                if (key != null) {
+                    return prepareStatement(key);
+                }
+                break;
+            case "close":
+                closeStatements();
+                break;
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "StatementCaching[" + connection + "]";
+            }
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        protected Key toKey(Method method, Object[] args) {
+            Class<?>[] types = method.getParameterTypes();
+            String sql = (String) args[0];
+            if (types.length == 1) {
+                return new Key(sql, ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY, -1);
+            }
+            if (types.length == 2 && types[1] == int.class) {
+                return new Key(sql, ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY, (Integer) args[1]);
+            }
+            if (types.length == 3) {
+                return new Key(sql, (Integer) args[1], (Integer) args[2], -1);
+            }
+            return null;
+        }
+
+        protected synchronized PreparedStatement prepareStatement(Key key)
+                throws SQLException {
+            CachedStatement cached = cache.get(key);
+            if (cached != null && !cached.inUse) {
+                hits.increment();
+                cached.inUse = true;
+                return newStatement(cached);
+            }
+            misses.increment();
+            PreparedStatement statement = prepare(key);
+            if (cached != null) {
+                return statement;
+            }
+            try {
+                cached = new CachedStatement(key, statement);
+            } catch (SQLException e) {
+                closeQuietly(statement);
+                throw e;
+            }
+            cached.inUse = true;
+            cache.put(key, cached);
+            cachedStatements.incrementAndGet();
+            evict();
+            return newStatement(cached);
+        }
+
+        protected PreparedStatement prepare(Key key) throws SQLException {
+            if (key.autoGeneratedKeys != -1) {
+                return connection.prepareStatement(key.sql,
+                        key.autoGeneratedKeys);
+            }
+            return connection.prepareStatement(key.sql, key.resultSetType,
+                    key.resultSetConcurrency);
+        }
+
+        protected void evict() {
+            Iterator<CachedStatement> iterator = cache.values().iterator();
+            while (cache.size() > cacheSize && iterator.hasNext()) {
+                CachedStatement eldest = iterator.next();
+                iterator.remove();
+                cachedStatements.decrementAndGet();
+                evictions.increment();
+                if (eldest.inUse) {
+                    eldest.evicted = true;
+                } else {
+                    closeQuietly(eldest.statement);
+                }
+            }
+        }
+
+        protected synchronized void release(CachedStatement cached,
+                boolean batched, boolean optionsChanged) {
+            cached.inUse = false;
+            if (cached.evicted) {
+                closeQuietly(cached.statement);
+                return;
+            }
+            try {
+                cached.statement.clearParameters();
+                if (batched) {
+                    cached.statement.clearBatch();
+                }
+                if (optionsChanged) {
+                    cached.statement.setMaxRows(0);
+                    cached.statement.setQueryTimeout(0);
+                    cached.statement.setFetchSize(cached.defaultFetchSize);
+                }
+            } catch (SQLException e) {
+                if (cache.remove(cached.key) != null) {
+                    cachedStatements.decrementAndGet();
+                }
+                closeQuietly(cached.statement);
+            }
+        }
+
+        protected synchronized void closeStatements() {
+            List<CachedStatement> statements = new ArrayList<>(cache.values());
+            cache.clear();
+            cachedStatements.addAndGet(-statements.size());
+            statements.forEach(s -> closeQuietly(s.statement));
+        }
+
+        protected PreparedStatement newStatement(CachedStatement cached) {
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class },
+                    new Lease(this, cached));
+        }
+    }
+
+    /**
+     * A cached statement lent to one caller. Closing it returns the statement
+     * to the cache.
+     */
+    protected class Lease implements InvocationHandler {
+
+        protected final CachingConnection owner;
+
+        protected final CachedStatement cached;
+
+        protected boolean closed;
+
+        protected boolean batched;
+
+        protected boolean optionsChanged;
+
+        protected Lease(CachingConnection owner, CachedStatement cached) {
+            this.owner = owner;
+            this.cached = cached;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args)
+                throws Throwable {
+            switch (method.getName()) {
+            case "close":
+                if (!closed) {
+                    closed = true;
+                    owner.release(cached, batched, optionsChanged);
+                }
+                return null;
+            case "isClosed":
+                return closed;
+            case "getConnection":
+                return owner.proxy;
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "Cached[" + cached.statement + "]";
+            case "addBatch":
+                batched = true;
+                break;
+            case "setMaxRows":
+            case "setQueryTimeout":
+            case "setFetchSize":
+                optionsChanged = true;
+                break;
+            }
+            if (closed) {
+                throw new SQLException("The statement is closed.");
+            }
+            try {
+                return method.invoke(cached.statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.seasar.doma.it.AppConfig;
+import org.seasar.doma.it.Container;
+import org.seasar.doma.it.Sandbox;
+
+public class StatementCachingDataSourceTest {
+
+    private static final String SELECT_BY_ID = "select EMPLOYEE_NAME from EMPLOYEE where EMPLOYEE_ID = ?";
+
+    private static final String SELECT_ALL = "select EMPLOYEE_NAME from EMPLOYEE";
+
+    @ClassRule
+    public static Container container = new Container();
+
+    @Rule
+    public Sandbox sandbox = new Sandbox(container);
+
+    private StatementCachingDataSource createDataSource(int cacheSize) {
+        return new StatementCachingDataSource(
+                container.get(AppConfig::getOriginalDataSource), cacheSize);
+    }
+
+    @Test
+    public void testHit() throws Exception {
+        StatementCachingDataSource dataSource = createDataSource(4);
+        try (Connection connection = dataSource.getConnection()) {
+            assertEquals("SMITH", selectName(connection, 1));
+            assertEquals("ALLEN", selectName(connection, 2));
+            assertEquals("WARD", selectName(connection, 3));
+        }
+        StatementCacheStatistics statistics = dataSource.getStatistics();
+        assertEquals(1, statistics.getMisses());
+        assertEquals(2, statistics.getHits());
+        assertEquals(0, statistics.getCachedStatements());
+    }
+
+    @Test
+    public void testResultSetType() throws Exception {
+        StatementCachingDataSource dataSource = createDataSource(4);
+        try (Connection connection = dataSource.getConnection()) {
+            connection.prepareStatement(SELECT_ALL).close();
+            connection.prepareStatement(SELECT_ALL,
+                    ResultSet.TYPE_SCROLL_INSENSITIVE,
+                    ResultSet.CONCUR_READ_ONLY).close();
+            connection.prepareStatement(SELECT_ALL,
+                    Statement.RETURN_GENERATED_KEYS).close();
+            connection.prepareStatement(SELECT_ALL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)
+                    .close();
+            StatementCacheStatistics statistics = dataSource.getStatistics();
+            assertEquals(3, statistics.getMisses());
+            assertEquals(1, statistics.getHits());
+            assertEquals(3, statistics.getCachedStatements());
+        }
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        StatementCachingDataSource dataSource = createDataSource(1);
+        try (Connection connection = dataSource.getConnection()) {
+            connection.prepareStatement(SELECT_BY_ID).close();
+            connection.prepareStatement(SELECT_ALL).close();
+            connection.prepareStatement(SELECT_BY_ID).close();
+            StatementCacheStatistics statistics = dataSource.getStatistics();
+            assertEquals(3, statistics.getMisses());
+            assertEquals(2, statistics.getEvictions());
+            assertEquals(1, statistics.getCachedStatements());
+        }
+    }
+
+    @Test
+    public void testInUse() throws Exception {
+        StatementCachingDataSource dataSource = createDataSource(4);
+        try (Connection connection = dataSource.getConnection()) {
+            try (PreparedStatement outer = connection
+                    .prepareStatement(SELECT_BY_ID);
+                    PreparedStatement inner = connection
+                            .prepareStatement(SELECT_BY_ID)) {
+                outer.setInt(1, 1);
+                inner.setInt(1, 2);
+                try (ResultSet resultSet = outer.executeQuery()) {
+                    resultSet.next();
+                    assertEquals("SMITH", resultSet.getString(1));
+                }
+                try (ResultSet resultSet = inner.executeQuery()) {
+                    resultSet.next();
+                    assertEquals("ALLEN", resultSet.getString(1));
+                }
+            }
+            assertEquals(2, dataSource.getStatistics().getMisses());
+            PreparedStatement statement = connection
+                    .prepareStatement(SELECT_BY_ID);
+            assertSame(connection, statement.getConnection());
+            statement.close();
+            assertTrue(statement.isClosed());
+            assertEquals(1, dataSource.getStatistics().getHits());
+        }
+    }
+
+    @Test
+    public void testReset() throws Exception {
+        StatementCachingDataSource dataSource = createDataSource(4);
+        try (Connection connection = dataSource.getConnection()) {
+            try (PreparedStatement statement = connection
+                    .prepareStatement(SELECT_ALL)) {
+                statement.setMaxRows(1);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    assertTrue(resultSet.next());
+                    assertFalse(resultSet.next());
+                }
+            }
+            try (PreparedStatement statement = connection
+                    .prepareStatement(SELECT_ALL)) {
+                assertEquals(0, statement.getMaxRows());
+                int count = 0;
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        count++;
+                    }
+                }
+                assertEquals(14, count);
+            }
+            assertEquals(1, dataSource.getStatistics().getHits());
+        }
+    }
+
+    private String selectName(Connection connection, int id) throws Exception {
+        try (PreparedStatement statement = connection
+                .prepareStatement(SELECT_BY_ID)) {
+            statement.setInt(1, id);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getString(1);
+            }
+        }
+    }
+}
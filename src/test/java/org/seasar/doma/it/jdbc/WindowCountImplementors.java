@@ -0,0 +1,321 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.jdbc;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import org.seasar.doma.internal.jdbc.sql.SqlParser;
+import org.seasar.doma.internal.jdbc.sql.node.AnonymousNode;
+import org.seasar.doma.internal.jdbc.sql.node.CommentNode;
+import org.seasar.doma.internal.jdbc.sql.node.EolNode;
+import org.seasar.doma.internal.jdbc.sql.node.ExpandNode;
+import org.seasar.doma.internal.jdbc.sql.node.FragmentNode;
+import org.seasar.doma.internal.jdbc.sql.node.OtherNode;
+import org.seasar.doma.internal.jdbc.sql.node.SelectClauseNode;
+import org.seasar.doma.internal.jdbc.sql.node.SelectStatementNode;
+import org.seasar.doma.internal.jdbc.sql.node.SqlLocation;
+import org.seasar.doma.internal.jdbc.sql.node.WhitespaceNode;
+import org.seasar.doma.internal.jdbc.sql.node.WordNode;
+import org.seasar.doma.jdbc.CommandImplementors;
+import org.seasar.doma.jdbc.QueryImplementors;
+import org.seasar.doma.jdbc.SqlFile;
+import org.seasar.doma.jdbc.SqlNode;
+import org.seasar.doma.jdbc.command.ResultSetHandler;
+import org.seasar.doma.jdbc.command.ResultSetRowIndexConsumer;
+import org.seasar.doma.jdbc.command.SelectCommand;
+import org.seasar.doma.jdbc.dialect.Dialect;
+import org.seasar.doma.jdbc.query.SelectQuery;
+import org.seasar.doma.jdbc.query.SqlFileSelectQuery;
+
+/**
+ * Query and command implementors that answer {@code SelectOptions.count()}
+ * with a {@code COUNT(*) OVER ()} column instead of a second count query.
+ * <p>
+ * Whether the database supports window functions is probed once, on a
+ * connection of its own, the first time a count is requested. The SQL file
+ * is rewritten only when it is a single {@code SELECT} without
+ * {@code DISTINCT} or {@code FOR UPDATE} that maps to an entity; a bare
+ * {@code *} is expanded to the entity columns because Oracle and DB2 do not
+ * accept another select item next to it. Everything else falls back to the
+ * count query.
+ * <p>
+ * The implementors are off until {@link #setEnabled(boolean)} turns them on;
+ * until then they create Doma's own queries and commands.
+ */
+public class WindowCountImplementors implements QueryImplementors,
+        CommandImplementors {
+
+    public static final String TOTAL_COUNT_COLUMN = "DOMA_TOTAL_COUNT_";
+
+    private static Logger logger = Logger
+            .getLogger(WindowCountImplementors.class.getName());
+
+    protected final DataSource dataSource;
+
+    protected final Dialect dialect;
+
+    protected final ConcurrentMap<String, Optional<SqlNode>> rewrittenNodes = new ConcurrentHashMap<>();
+
+    protected volatile boolean enabled;
+
+    protected volatile Boolean supported;
+
+    /**
+     * @param dataSource
+     *            the data source used to probe the database, preferably one
+     *            that is not bound to a transaction
+     * @param dialect
+     *            the dialect
+     */
+    public WindowCountImplementors(DataSource dataSource, Dialect dialect) {
+        this.dataSource = Objects.requireNonNull(dataSource);
+        this.dialect = Objects.requireNonNull(dialect);
+    }
+
+    @Override
+    public SqlFileSelectQuery createSqlFileSelectQuery(Method method) {
+        if (!enabled) {
+            return QueryImplementors.super.createSqlFileSelectQuery(method);
+        }
+        return new WindowCountSqlFileSelectQuery(this);
+    }
+
+    @Override
+    public <RESULT> SelectCommand<RESULT> createSelectCommand(Method method,
+            SelectQuery query, ResultSetHandler<RESULT> resultSetHandler) {
+        if (query instanceof WindowCountSqlFileSelectQuery) {
+            WindowCountSqlFileSelectQuery windowCountQuery = (WindowCountSqlFileSelectQuery) query;
+            if (windowCountQuery.isWindowCount()) {
+                return new SelectCommand<>(query,
+                        new TotalCountCapturingHandler<>(resultSetHandler,
+                                windowCountQuery));
+            }
+        }
+        return new SelectCommand<>(query, resultSetHandler);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param enabled
+     *            {@code true} to use the window column where the database
+     *            supports it, {@code false} to always use the count query
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return whether the database supports {@code COUNT(*) OVER ()}
+     */
+    public boolean isSupported() {
+        Boolean result = supported;
+        if (result == null) {
+            result = probe();
+            supported = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return whether counts are computed with the window function
+     */
+    public boolean isAvailable() {
+        return enabled && isSupported();
+    }
+
+    protected boolean probe() {
+        try (Connection connection = dataSource.getConnection();
+                Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery(getProbeSql())) {
+            return resultSet.next() && resultSet.getLong(1) == 1L;
+        } catch (SQLException e) {
+            logger.log(Level.FINE, dialect.getName()
+                    + " does not support COUNT(*) OVER ()", e);
+            return false;
+        }
+    }
+
+    protected String getProbeSql() {
+        String name = dialect.getName();
+        if (name.startsWith("oracle")) {
+            return "select count(*) over () from dual";
+        }
+        if (name.equals("db2")) {
+            return "select count(*) over () from sysibm.sysdummy1";
+        }
+        return "select count(*) over () from (select 1 as X) T";
+    }
+
+    /**
+     * @return the expression of the total count column
+     */
+    protected String getTotalCountExpression() {
+        return "count(*) over ()";
+    }
+
+    /**
+     * Returns the SQL node of the file with the window column added.
+     *
+     * @param sqlFile
+     *            the SQL file
+     * @return the rewritten node, or {@code null} if the file cannot be
+     *         rewritten
+     */
+    public SqlNode rewrite(SqlFile sqlFile) {
+        return rewrittenNodes.computeIfAbsent(sqlFile.getPath(),
+                path -> Optional.ofNullable(rewrite(sqlFile.getSql())))
+                .orElse(null);
+    }
+
+    protected SqlNode rewrite(String sql) {
+        SqlNode root = new SqlParser(sql).parse();
+        SelectStatementNode statement = null;
+        for (SqlNode child : root.getChildren()) {
+            if (statement == null && child instanceof SelectStatementNode) {
+                statement = (SelectStatementNode) child;
+            } else if (!isInsignificant(child)) {
+                // a set operator or anything else after the first SELECT
+                return null;
+            }
+        }
+        if (statement == null || statement.getSelectClauseNode() == null
+                || statement.getForUpdateClauseNode() != null) {
+            return null;
+        }
+        SelectClauseNode selectClause = statement.getSelectClauseNode();
+        List<SqlNode> items = new ArrayList<>();
+        for (SqlNode child : selectClause.getChildren()) {
+            if (!isInsignificant(child)) {
+                items.add(child);
+            }
+        }
+        if (items.isEmpty()) {
+            return null;
+        }
+        SqlNode first = items.get(0);
+        if (first instanceof WordNode
+                && ((WordNode) first).getWord().equalsIgnoreCase("distinct")) {
+            return null;
+        }
+        boolean bareStar = items.size() == 1 && first instanceof OtherNode
+                && ((OtherNode) first).getOther().equals("*");
+        SelectClauseNode newSelectClause = new SelectClauseNode(
+                selectClause.getWordNode());
+        for (SqlNode child : selectClause.getChildren()) {
+            if (bareStar && child == first) {
+                // the alias is an expression, so "" stands for no alias
+                newSelectClause.appendNode(new ExpandNode(new SqlLocation(sql,
+                        1, 0), "\"\"", "*"));
+            } else {
+                newSelectClause.appendNode(child);
+            }
+        }
+        newSelectClause.appendNode(new FragmentNode(", "
+                + getTotalCountExpression() + " as " + TOTAL_COUNT_COLUMN
+                + " "));
+        SelectStatementNode newStatement = new SelectStatementNode();
+        newStatement.setSelectClauseNode(newSelectClause);
+        if (statement.getFromClauseNode() != null) {
+            newStatement.setFromClauseNode(statement.getFromClauseNode());
+        }
+        if (statement.getWhereClauseNode() != null) {
+            newStatement.setWhereClauseNode(statement.getWhereClauseNode());
+        }
+        if (statement.getGroupByClauseNode() != null) {
+            newStatement.setGroupByClauseNode(statement
+                    .getGroupByClauseNode());
+        }
+        if (statement.getHavingClauseNode() != null) {
+            newStatement.setHavingClauseNode(statement.getHavingClauseNode());
+        }
+        if (statement.getOrderByClauseNode() != null) {
+            newStatement.setOrderByClauseNode(statement
+                    .getOrderByClauseNode());
+        }
+        if (statement.getOptionClauseNode() != null) {
+            newStatement.setOptionClauseNode(statement.getOptionClauseNode());
+        }
+        AnonymousNode newRoot = new AnonymousNode();
+        for (SqlNode child : root.getChildren()) {
+            newRoot.appendNode(child == statement ? newStatement : child);
+        }
+        return newRoot;
+    }
+
+    protected boolean isInsignificant(SqlNode node) {
+        return node instanceof WhitespaceNode || node instanceof CommentNode
+                || node instanceof EolNode;
+    }
+
+    /**
+     * Reads the window column of the first row before handing the row to the
+     * delegate.
+     *
+     * @param <RESULT>
+     *            the result type
+     */
+    protected static class TotalCountCapturingHandler<RESULT> implements
+            ResultSetHandler<RESULT> {
+
+        protected final ResultSetHandler<RESULT> delegate;
+
+        protected final WindowCountSqlFileSelectQuery query;
+
+        protected boolean captured;
+
+        protected TotalCountCapturingHandler(ResultSetHandler<RESULT> delegate,
+                WindowCountSqlFileSelectQuery query) {
+            this.delegate = delegate;
+            this.query = query;
+        }
+
+        @Override
+        public Supplier<RESULT> handle(ResultSet resultSet,
+                SelectQuery selectQuery, ResultSetRowIndexConsumer consumer)
+                throws SQLException {
+            return delegate.handle(resultSet, selectQuery, (index, next) -> {
+                if (!captured && next) {
+                    captured = true;
+                    try {
+                        query.setTotalCount(resultSet
+                                .getLong(TOTAL_COUNT_COLUMN));
+                    } catch (SQLException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                consumer.accept(index, next);
+            });
+        }
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.seasar.doma.internal.expr.ExpressionEvaluator;
+import org.seasar.doma.internal.jdbc.sql.NodePreparedSqlBuilder;
+import org.seasar.doma.internal.jdbc.sql.SqlParser;
+import org.seasar.doma.it.AppConfig;
+import org.seasar.doma.it.Container;
+import org.seasar.doma.it.Sandbox;
+import org.seasar.doma.it.dao.EmployeeDao;
+import org.seasar.doma.it.entity.Employee;
+import org.seasar.doma.jdbc.CommandImplementors;
+import org.seasar.doma.jdbc.Config;
+import org.seasar.doma.jdbc.JdbcLogger;
+import org.seasar.doma.jdbc.QueryImplementors;
+import org.seasar.doma.jdbc.SelectOptions;
+import org.seasar.doma.jdbc.Sql;
+import org.seasar.doma.jdbc.SqlFile;
+import org.seasar.doma.jdbc.SqlKind;
+import org.seasar.doma.jdbc.SqlLogType;
+import org.seasar.doma.jdbc.SqlNode;
+import org.seasar.doma.jdbc.UtilLoggingJdbcLogger;
+
+public class WindowCountImplementorsTest {
+
+    @ClassRule
+    public static Container container = new Container();
+
+    @Rule
+    public Sandbox sandbox = new Sandbox(container);
+
+    private boolean enabled;
+
+    @Before
+    public void setUp() {
+        WindowCountImplementors implementors = container
+                .get(AppConfig::getWindowCountImplementors);
+        enabled = implementors.isEnabled();
+        implementors.setEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        container.get(AppConfig::getWindowCountImplementors).setEnabled(
+                enabled);
+    }
+
+    @Test
+    public void testRewrite() throws Exception {
+        assertEquals(
+                "select EMPLOYEE_ID, EMPLOYEE_NAME , count(*) over () as DOMA_TOTAL_COUNT_ from EMPLOYEE order by EMPLOYEE_ID",
+                rewrite("select * from EMPLOYEE order by EMPLOYEE_ID"));
+        assertEquals(
+                "select e.*, d.DEPARTMENT_NAME , count(*) over () as DOMA_TOTAL_COUNT_ from EMPLOYEE e join DEPARTMENT d on e.DEPARTMENT_ID = d.DEPARTMENT_ID",
+                rewrite("select e.*, d.DEPARTMENT_NAME from EMPLOYEE e join DEPARTMENT d on e.DEPARTMENT_ID = d.DEPARTMENT_ID"));
+    }
+
+    @Test
+    public void testRewrite_unsupported() throws Exception {
+        assertNull(rewrite("select distinct * from EMPLOYEE"));
+        assertNull(rewrite("select * from EMPLOYEE for update"));
+        assertNull(rewrite("select * from EMPLOYEE union select * from EMPLOYEE"));
+        assertNull(rewrite("update EMPLOYEE set VERSION = 1"));
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        WindowCountImplementors implementors = container
+                .get(AppConfig::getWindowCountImplementors);
+        EmployeeDao dao = container.get(EmployeeDao::get);
+        implementors.setEnabled(false);
+        try {
+            SelectOptions options = SelectOptions.get().limit(5).offset(3)
+                    .count();
+            assertEquals(5, dao.selectAll(options).size());
+            assertEquals(14, options.getCount());
+            assertFalse(implementors.createSqlFileSelectQuery(null)
+                    instanceof WindowCountSqlFileSelectQuery);
+        } finally {
+            implementors.setEnabled(true);
+        }
+    }
+
+    @Test
+    public void testOffsetBeyondLastRow() throws Exception {
+        EmployeeDao dao = container.get(EmployeeDao::get);
+        SelectOptions options = SelectOptions.get().limit(5).offset(20)
+                .count();
+        assertEquals(0, dao.selectAll(options).size());
+        assertEquals(14, options.getCount());
+    }
+
+    @Test
+    public void testNoRows() throws Exception {
+        EmployeeDao dao = container.get(EmployeeDao::get);
+        SelectOptions options = SelectOptions.get().count();
+        Employee employee = dao.selectById(99, options);
+        assertNull(employee);
+        assertEquals(0, options.getCount());
+    }
+
+    @Test
+    public void testWindowCount() throws Exception {
+        List<Sql<?>> sqls = new ArrayList<>();
+        EmployeeDao dao = EmployeeDao.get(forceWindowCount(sqls));
+        SelectOptions options = SelectOptions.get().limit(5).offset(3)
+                .count();
+        List<Employee> employees = dao.selectAll(options);
+        assertEquals(5, employees.size());
+        assertEquals(new Integer(4), employees.get(0).getEmployeeId());
+        assertEquals("JONES", employees.get(0).getEmployeeName());
+        assertEquals(14, options.getCount());
+        assertEquals(1, sqls.size());
+        assertTrue(sqls.get(0).getRawSql().contains(
+                WindowCountImplementors.TOTAL_COUNT_COLUMN));
+    }
+
+    @Test
+    public void testWindowCount_offsetBeyondLastRow() throws Exception {
+        List<Sql<?>> sqls = new ArrayList<>();
+        EmployeeDao dao = EmployeeDao.get(forceWindowCount(sqls));
+        SelectOptions options = SelectOptions.get().limit(5).offset(20)
+                .count();
+        assertEquals(0, dao.selectAll(options).size());
+        assertEquals(14, options.getCount());
+        assertEquals(2, sqls.size());
+    }
+
+    @Test
+    public void testWindowCount_noRows() throws Exception {
+        List<Sql<?>> sqls = new ArrayList<>();
+        EmployeeDao dao = EmployeeDao.get(forceWindowCount(sqls));
+        SelectOptions options = SelectOptions.get().count();
+        assertNull(dao.selectById(99, options));
+        assertEquals(0, options.getCount());
+        assertEquals(1, sqls.size());
+    }
+
+    /**
+     * Returns a config whose selects take the window column path on any
+     * database. The column is a scalar count of the whole table, which is
+     * the window count of the unfiltered statements used here.
+     */
+    private Config forceWindowCount(List<Sql<?>> sqls) {
+        AppConfig config = container.get(c -> c);
+        WindowCountImplementors implementors = new WindowCountImplementors(
+                config.getOriginalDataSource(), config.getDialect()) {
+
+            @Override
+            protected boolean probe() {
+                return true;
+            }
+
+            @Override
+            protected String getTotalCountExpression() {
+                return "(select count(*) from EMPLOYEE)";
+            }
+        };
+        implementors.setEnabled(true);
+        JdbcLogger logger = new UtilLoggingJdbcLogger() {
+
+            @Override
+            public void logSql(String callerClassName,
+                    String callerMethodName, Sql<?> sql) {
+                sqls.add(sql);
+            }
+        };
+        return new DelegatingConfig(config) {
+
+            @Override
+            public QueryImplementors getQueryImplementors() {
+                return implementors;
+            }
+
+            @Override
+            public CommandImplementors getCommandImplementors() {
+                return implementors;
+            }
+
+            @Override
+            public JdbcLogger getJdbcLogger() {
+                return logger;
+            }
+        };
+    }
+
+    private String rewrite(String sql) {
+        AppConfig config = container.get(c -> c);
+        SqlNode node = new WindowCountImplementors(
+                config.getOriginalDataSource(), config.getDialect())
+                .rewrite(new SqlFile("test.sql", sql, new SqlParser(sql)
+                        .parse()));
+        if (node == null) {
+            return null;
+        }
+        NodePreparedSqlBuilder builder = new NodePreparedSqlBuilder(config,
+                SqlKind.SELECT, "test.sql", new ExpressionEvaluator(),
+                SqlLogType.FORMATTED, n -> Arrays.asList("EMPLOYEE_ID",
+                        "EMPLOYEE_NAME"));
+        return builder.build(node, s -> s).getRawSql();
+    }
+}
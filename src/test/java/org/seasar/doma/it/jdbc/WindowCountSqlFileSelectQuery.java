@@ -0,0 +1,141 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.jdbc;
+
+import java.util.Objects;
+
+import org.seasar.doma.internal.jdbc.sql.NodePreparedSqlBuilder;
+import org.seasar.doma.jdbc.Config;
+import org.seasar.doma.jdbc.SelectOptionsAccessor;
+import org.seasar.doma.jdbc.SqlFile;
+import org.seasar.doma.jdbc.SqlKind;
+import org.seasar.doma.jdbc.SqlNode;
+import org.seasar.doma.jdbc.UnknownColumnHandler;
+import org.seasar.doma.jdbc.entity.EntityType;
+import org.seasar.doma.jdbc.query.Query;
+import org.seasar.doma.jdbc.query.SqlFileSelectQuery;
+
+/**
+ * A {@link SqlFileSelectQuery} that computes the total count of
+ * {@code SelectOptions.count()} with {@code COUNT(*) OVER ()} in the same
+ * statement instead of a second, wrapping count query.
+ * <p>
+ * The window column is added only when {@link WindowCountImplementors} can
+ * rewrite the SQL file for the current dialect; otherwise the query behaves
+ * exactly like its superclass. While the window column is present, the
+ * config of the query ignores it as an unknown column of the entity.
+ */
+public class WindowCountSqlFileSelectQuery extends SqlFileSelectQuery {
+
+    protected final WindowCountImplementors implementors;
+
+    protected boolean windowCount;
+
+    protected long totalCount = -1;
+
+    protected Config windowCountConfig;
+
+    public WindowCountSqlFileSelectQuery(WindowCountImplementors implementors) {
+        this.implementors = Objects.requireNonNull(implementors);
+    }
+
+    @Override
+    protected void prepareSql() {
+        if (!SelectOptionsAccessor.isCount(options) || entityType == null
+                || !implementors.isAvailable()) {
+            super.prepareSql();
+            return;
+        }
+        SqlFile file = config.getSqlFileRepository().getSqlFile(method,
+                sqlFilePath, config.getDialect());
+        SqlNode node = implementors.rewrite(file);
+        if (node == null) {
+            super.prepareSql();
+            return;
+        }
+        sqlFile = file;
+        windowCount = true;
+        SqlNode transformedSqlNode = config.getDialect()
+                .transformSelectSqlNode(node, options);
+        buildSql((evaluator, expander) -> {
+            NodePreparedSqlBuilder sqlBuilder = new NodePreparedSqlBuilder(
+                    config, SqlKind.SELECT, sqlFilePath, evaluator,
+                    sqlLogType, expander);
+            return sqlBuilder.build(transformedSqlNode, this::comment);
+        });
+    }
+
+    @Override
+    public void complete() {
+        if (windowCount) {
+            if (totalCount >= 0) {
+                SelectOptionsAccessor.setCountSize(options, totalCount);
+                return;
+            }
+            if (SelectOptionsAccessor.getOffset(options) <= 0
+                    && SelectOptionsAccessor.getLimit(options) != 0) {
+                // no row at all, so the total is zero as well
+                SelectOptionsAccessor.setCountSize(options, 0);
+                return;
+            }
+        }
+        super.complete();
+    }
+
+    @Override
+    public Config getConfig() {
+        if (!windowCount) {
+            return config;
+        }
+        if (windowCountConfig == null) {
+            UnknownColumnHandler handler = config.getUnknownColumnHandler();
+            UnknownColumnHandler windowCountHandler = new UnknownColumnHandler() {
+
+                @Override
+                public void handle(Query query, EntityType<?> entityType,
+                        String unknownColumnName) {
+                    if (!WindowCountImplementors.TOTAL_COUNT_COLUMN
+                            .equalsIgnoreCase(unknownColumnName)) {
+                        handler.handle(query, entityType, unknownColumnName);
+                    }
+                }
+            };
+            windowCountConfig = new DelegatingConfig(config) {
+
+                @Override
+                public UnknownColumnHandler getUnknownColumnHandler() {
+                    return windowCountHandler;
+                }
+            };
+        }
+        return windowCountConfig;
+    }
+
+    /**
+     * @return whether the statement carries the window column
+     */
+    public boolean isWindowCount() {
+        return windowCount;
+    }
+
+    /**
+     * @param totalCount
+     *            the value of the window column of the first row
+     */
+    public void setTotalCount(long totalCount) {
+        this.totalCount = totalCount;
+    }
+}
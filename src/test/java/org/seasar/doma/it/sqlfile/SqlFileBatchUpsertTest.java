@@ -0,0 +1,120 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.sqlfile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.seasar.doma.it.Container;
+import org.seasar.doma.it.Sandbox;
+import org.seasar.doma.it.dao.CompKeyDepartmentDao;
+import org.seasar.doma.it.dao.DepartmentDao;
+import org.seasar.doma.it.domain.Identity;
+import org.seasar.doma.it.entity.CompKeyDepartment;
+import org.seasar.doma.it.entity.Department;
+import org.seasar.doma.jdbc.BatchOptimisticLockException;
+
+public class SqlFileBatchUpsertTest {
+
+    @ClassRule
+    public static Container container = new Container();
+
+    @Rule
+    public Sandbox sandbox = new Sandbox(container);
+
+    @Test
+    public void test() throws Exception {
+        DepartmentDao dao = container.get(DepartmentDao::get);
+        Department existing = dao.selectById(1);
+        existing.setDepartmentName("hoge");
+        Department created = new Department();
+        created.setDepartmentId(new Identity<Department>(99));
+        created.setDepartmentNo(99);
+        created.setDepartmentName("foo");
+        int[] result = dao.upsert(Arrays.asList(existing, created));
+        assertEquals(2, result.length);
+        assertEquals(1, result[0]);
+        assertEquals(1, result[1]);
+        assertEquals(new Integer(2), existing.getVersion());
+        assertEquals(new Integer(1), created.getVersion());
+
+        Department department = dao.selectById(1);
+        assertEquals("hoge", department.getDepartmentName());
+        assertEquals(new Integer(2), department.getVersion());
+        department = dao.selectById(99);
+        assertEquals("foo", department.getDepartmentName());
+        assertEquals(new Integer(1), department.getVersion());
+
+        created.setDepartmentName("bar");
+        dao.upsert(Arrays.asList(created));
+        department = dao.selectById(99);
+        assertEquals("bar", department.getDepartmentName());
+        assertEquals(new Integer(2), department.getVersion());
+    }
+
+    @Test
+    public void testOptimisticLockException() throws Exception {
+        DepartmentDao dao = container.get(DepartmentDao::get);
+        Department stale = dao.selectById(1);
+        Department current = dao.selectById(1);
+        current.setDepartmentName("hoge");
+        dao.update(current);
+        stale.setDepartmentName("foo");
+        Department created = new Department();
+        created.setDepartmentId(new Identity<Department>(2));
+        created.setDepartmentNo(2);
+        created.setDepartmentName("foo");
+        Integer staleVersion = stale.getVersion();
+        try {
+            dao.upsert(Arrays.asList(stale));
+            fail();
+        } catch (BatchOptimisticLockException expected) {
+        }
+        assertEquals(staleVersion, stale.getVersion());
+        try {
+            // the department 2 exists, so a new one conflicts
+            dao.upsert(Arrays.asList(created));
+            fail();
+        } catch (BatchOptimisticLockException expected) {
+        }
+        assertEquals(Integer.valueOf(0), created.getVersion());
+        assertEquals("hoge", dao.selectById(1).getDepartmentName());
+    }
+
+    @Test
+    public void testCompKey() throws Exception {
+        CompKeyDepartmentDao dao = container.get(CompKeyDepartmentDao::get);
+        CompKeyDepartment existing = dao.selectById(1, 1);
+        existing.setDepartmentName("hoge");
+        CompKeyDepartment created = new CompKeyDepartment();
+        created.setDepartmentId1(1);
+        created.setDepartmentId2(99);
+        created.setDepartmentNo(99);
+        created.setDepartmentName("foo");
+        int[] result = dao.upsert(Arrays.asList(existing, created));
+        assertEquals(1, result[0]);
+        assertEquals(1, result[1]);
+        assertEquals("hoge", dao.selectById(1, 1).getDepartmentName());
+        assertEquals(new Integer(2), dao.selectById(1, 1).getVersion());
+        assertEquals("foo", dao.selectById(1, 99).getDepartmentName());
+        assertEquals(new Integer(1), dao.selectById(1, 99).getVersion());
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.sqlfile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Statement;
+
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.seasar.doma.MapKeyNamingType;
+import org.seasar.doma.it.AppConfig;
+import org.seasar.doma.it.Container;
+import org.seasar.doma.it.Sandbox;
+import org.seasar.doma.it.dao.EmployeeDao;
+import org.seasar.doma.it.dao.ExportOptions;
+import org.seasar.doma.it.dao.ExportResult;
+
+public class SqlFileExportTest {
+
+    @ClassRule
+    public static Container container = new Container();
+
+    @Rule
+    public Sandbox sandbox = new Sandbox(container);
+
+    @Test
+    public void testCsv() throws Exception {
+        EmployeeDao dao = container.get(EmployeeDao::get);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExportResult result = dao.exportAll(out, ExportOptions.csv());
+        assertEquals(14, result.getRows());
+        assertEquals(out.size(), result.getBytes());
+        String[] lines = out.toString("UTF-8").split("\r\n", -1);
+        assertEquals(16, lines.length);
+        assertEquals("EMPLOYEE_ID,EMPLOYEE_NO,EMPLOYEE_NAME,MANAGER_ID,"
+                + "HIREDATE,SALARY,DEPARTMENT_ID,ADDRESS_ID,VERSION", lines[0]);
+        assertEquals("1,7369,SMITH,13,1980-12-17,800.00,2,1,1", lines[1]);
+        assertEquals("9,7839,KING,,1981-11-17,5000.00,1,9,1", lines[9]);
+        assertEquals("", lines[15]);
+    }
+
+    @Test
+    public void testCsvQuoting() throws Exception {
+        execute("update EMPLOYEE set EMPLOYEE_NAME = 'A,\"B\"' "
+                + "where EMPLOYEE_ID = 1");
+        EmployeeDao dao = container.get(EmployeeDao::get);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        dao.exportAll(out, ExportOptions.csv());
+        String[] lines = out.toString("UTF-8").split("\r\n");
+        assertEquals("1,7369,\"A,\"\"B\"\"\",13,1980-12-17,800.00,2,1,1",
+                lines[1]);
+    }
+
+    @Test
+    public void testNdjson() throws Exception {
+        execute("update EMPLOYEE set EMPLOYEE_NAME = 'caf\u00e9 \"\\' "
+                + "where EMPLOYEE_ID = 1");
+        EmployeeDao dao = container.get(EmployeeDao::get);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExportResult result = dao.exportAll(out, ExportOptions.ndjson()
+                .withKeyNaming(MapKeyNamingType.CAMEL_CASE));
+        assertEquals(14, result.getRows());
+        assertEquals(out.size(), result.getBytes());
+        String[] lines = out.toString("UTF-8").split("\n", -1);
+        assertEquals(15, lines.length);
+        assertEquals("{\"employeeId\":1,\"employeeNo\":7369,"
+                + "\"employeeName\":\"caf\u00e9 \\\"\\\\\","
+                + "\"managerId\":13,\"hiredate\":\"1980-12-17\","
+                + "\"salary\":800.00,\"departmentId\":2,\"addressId\":1,"
+                + "\"version\":1}", lines[0]);
+        assertTrue(lines[8].contains("\"managerId\":null"));
+        assertEquals("", lines[14]);
+    }
+
+    @Test
+    public void testSmallFlushSize() throws Exception {
+        EmployeeDao dao = container.get(EmployeeDao::get);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        dao.exportAll(expected, ExportOptions.ndjson());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExportResult result = dao.exportAll(out, ExportOptions.ndjson()
+                .withFlushSize(7).withCharset(StandardCharsets.UTF_16BE));
+        assertEquals(expected.toString("UTF-8"),
+                out.toString("UTF-16BE"));
+        assertEquals(out.size(), result.getBytes());
+    }
+
+    private void execute(String sql) throws Exception {
+        try (Connection connection = container.get(AppConfig::getDataSource)
+                .getConnection();
+                Statement statement = connection.createStatement()) {
+            statement.executeUpdate(sql);
+        }
+    }
+}
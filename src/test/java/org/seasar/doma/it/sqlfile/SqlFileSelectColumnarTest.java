@@ -0,0 +1,143 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.sqlfile;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.seasar.doma.it.AppConfig;
+import org.seasar.doma.it.Container;
+import org.seasar.doma.it.Sandbox;
+import org.seasar.doma.it.dao.ColumnarResult;
+import org.seasar.doma.it.dao.ColumnarResult.Column;
+import org.seasar.doma.it.dao.ColumnarResult.IntColumn;
+import org.seasar.doma.it.dao.ColumnarResult.ScaledLongColumn;
+import org.seasar.doma.it.dao.EmployeeDao;
+import org.seasar.doma.it.entity.Employee;
+
+public class SqlFileSelectColumnarTest {
+
+    @ClassRule
+    public static Container container = new Container();
+
+    @Rule
+    public Sandbox sandbox = new Sandbox(container);
+
+    @Test
+    public void testSelectAllColumnar() throws Exception {
+        EmployeeDao dao = container.get(EmployeeDao::get);
+        ColumnarResult result = dao.selectAllColumnar(Arrays.asList(
+                ColumnarResult.intColumn("EMPLOYEE_ID"),
+                ColumnarResult.intColumn("DEPARTMENT_ID"),
+                ColumnarResult.scaledLongColumn("SALARY_CENTS", 2)));
+        assertEquals(14, result.getRowCount());
+        IntColumn ids = result.getIntColumn("EMPLOYEE_ID");
+        assertEquals(14, ids.size());
+        assertEquals(1, ids.getInt(0));
+        assertEquals(105, ids.sum());
+        IntColumn departmentIds = result.getIntColumn("DEPARTMENT_ID");
+        assertEquals(0, departmentIds.getNullCount());
+        ScaledLongColumn salaries = result.getScaledLongColumn("SALARY_CENTS");
+        assertEquals(0, new BigDecimal("29025").compareTo(salaries.sum()));
+        assertEquals(80000, salaries.getUnscaled(0));
+        assertEquals(new BigDecimal("800.00"), salaries.getDecimal(0));
+    }
+
+    @Test
+    public void testSameAsEntities() throws Exception {
+        EmployeeDao dao = container.get(EmployeeDao::get);
+        ColumnarResult result = dao.selectAllColumnar(Arrays.asList(
+                ColumnarResult.intColumn("EMPLOYEE_ID"),
+                ColumnarResult.intColumn("DEPARTMENT_ID")));
+        List<Employee> employees = dao.selectAll();
+        assertArrayEquals(employees.stream()
+                .mapToInt(Employee::getEmployeeId).toArray(), result
+                .getIntColumn("EMPLOYEE_ID").toArray());
+        assertArrayEquals(
+                employees.stream()
+                        .mapToInt(e -> e.getDepartmentId().getValue())
+                        .toArray(), result.getIntColumn("DEPARTMENT_ID")
+                        .toArray());
+    }
+
+    @Test
+    public void testNull() throws Exception {
+        EmployeeDao dao = container.get(EmployeeDao::get);
+        ColumnarResult result = dao.selectAllColumnar(Arrays.asList(
+                ColumnarResult.intColumn("MANAGER_ID"),
+                ColumnarResult.scaledLongColumn("SALARY_CENTS", 2)));
+        IntColumn managerIds = result.getIntColumn("MANAGER_ID");
+        assertEquals(1, managerIds.getNullCount());
+        assertTrue(managerIds.isNull(8));
+        assertFalse(managerIds.isNull(0));
+        assertEquals(13, managerIds.stream().count());
+
+        try (Connection connection = container.get(AppConfig::getDataSource)
+                .getConnection();
+                Statement statement = connection.createStatement()) {
+            statement
+                    .executeUpdate("update EMPLOYEE set SALARY = null where EMPLOYEE_ID = 9");
+        }
+        result = dao.selectAllColumnar(Collections
+                .singletonList(ColumnarResult.scaledLongColumn("SALARY_CENTS", 2)));
+        ScaledLongColumn salaries = result.getScaledLongColumn("SALARY_CENTS");
+        assertTrue(salaries.isNull(8));
+        assertNull(salaries.getDecimal(8));
+        assertEquals(0, new BigDecimal("24025").compareTo(salaries.sum()));
+    }
+
+    @Test
+    public void testReuseColumns() throws Exception {
+        EmployeeDao dao = container.get(EmployeeDao::get);
+        List<Column> columns = Arrays.asList(ColumnarResult
+                .intColumn("EMPLOYEE_ID"));
+        ColumnarResult first = dao.selectAllColumnar(columns);
+        ColumnarResult second = dao.selectAllColumnar(columns);
+        assertEquals(0, columns.get(0).size());
+        assertEquals(14, first.getIntColumn("EMPLOYEE_ID").size());
+        assertEquals(105, first.getIntColumn("EMPLOYEE_ID").sum());
+        assertEquals(14, second.getIntColumn("EMPLOYEE_ID").size());
+        assertNotSame(first.getIntColumn("EMPLOYEE_ID"),
+                second.getIntColumn("EMPLOYEE_ID"));
+    }
+
+    @Test
+    public void testUnknownColumn() throws Exception {
+        EmployeeDao dao = container.get(EmployeeDao::get);
+        ColumnarResult result = dao.selectAllColumnar(Collections
+                .singletonList(ColumnarResult.intColumn("EMPLOYEE_ID")));
+        try {
+            result.getIntColumn("SALARY");
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.sqlfile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.seasar.doma.it.AppConfig;
+import org.seasar.doma.it.Container;
+import org.seasar.doma.it.Sandbox;
+import org.seasar.doma.it.dao.CompKeyEmployeeDao;
+import org.seasar.doma.it.dao.EmployeeDao;
+import org.seasar.doma.it.dao.KeysetPage;
+import org.seasar.doma.it.entity.CompKeyEmployee;
+import org.seasar.doma.it.entity.Employee;
+
+public class SqlFileSelectKeysetPagingTest {
+
+    @ClassRule
+    public static Container container = new Container();
+
+    @Rule
+    public Sandbox sandbox = new Sandbox(container);
+
+    @Test
+    public void testSelectPage() throws Exception {
+        EmployeeDao dao = container.get(EmployeeDao::get);
+        KeysetPage<Employee> page = dao.selectPage(null, 5);
+        assertEquals(5, page.getItems().size());
+        assertEquals(new Integer(1), page.getItems().get(0).getEmployeeId());
+        assertTrue(page.hasNext());
+        page = dao.selectPage(page.getNextToken(), 5);
+        assertEquals(new Integer(6), page.getItems().get(0).getEmployeeId());
+        assertEquals(new Integer(10), page.getItems().get(4).getEmployeeId());
+        page = dao.selectPage(page.getNextToken(), 5);
+        assertEquals(4, page.getItems().size());
+        assertEquals(new Integer(14), page.getItems().get(3).getEmployeeId());
+        assertFalse(page.hasNext());
+        assertNull(page.getNextToken());
+    }
+
+    @Test
+    public void testSelectPage_exactSize() throws Exception {
+        EmployeeDao dao = container.get(EmployeeDao::get);
+        KeysetPage<Employee> page = dao.selectPage(null, 7);
+        page = dao.selectPage(page.getNextToken(), 7);
+        assertEquals(7, page.getItems().size());
+        assertFalse(page.hasNext());
+    }
+
+    @Test
+    public void testSelectPage_invalidToken() throws Exception {
+        EmployeeDao dao = container.get(EmployeeDao::get);
+        CompKeyEmployeeDao compKeyDao = container.get(CompKeyEmployeeDao::get);
+        String token = compKeyDao.selectPage(null, 1).getNextToken();
+        try {
+            dao.selectPage(token, 1);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            dao.selectPage("!!", 1);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testSelectPage_compositeKey() throws Exception {
+        try (Connection connection = container.get(AppConfig::getDataSource)
+                .getConnection();
+                Statement statement = connection.createStatement()) {
+            statement
+                    .executeUpdate("insert into COMP_KEY_EMPLOYEE (EMPLOYEE_ID1, EMPLOYEE_ID2, EMPLOYEE_NO, VERSION) values (1, 2, 9001, 1)");
+            statement
+                    .executeUpdate("insert into COMP_KEY_EMPLOYEE (EMPLOYEE_ID1, EMPLOYEE_ID2, EMPLOYEE_NO, VERSION) values (1, 3, 9002, 1)");
+        }
+        CompKeyEmployeeDao dao = container.get(CompKeyEmployeeDao::get);
+        List<String> keys = new ArrayList<>();
+        String token = null;
+        do {
+            KeysetPage<CompKeyEmployee> page = dao.selectPage(token, 2);
+            page.getItems().forEach(
+                    e -> keys.add(e.getEmployeeId1() + "-"
+                            + e.getEmployeeId2()));
+            token = page.getNextToken();
+        } while (token != null);
+        assertEquals(16, keys.size());
+        assertEquals("1-1", keys.get(0));
+        assertEquals("1-2", keys.get(1));
+        assertEquals("1-3", keys.get(2));
+        assertEquals("2-2", keys.get(3));
+        assertEquals("14-14", keys.get(15));
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.doma.it.sqlfile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.seasar.doma.it.Container;
+import org.seasar.doma.it.Sandbox;
+import org.seasar.doma.it.dao.EmployeeDao;
+import org.seasar.doma.it.dao.PartitionedSpliterator;
+import org.seasar.doma.it.entity.Employee;
+
+public class SqlFileSelectPartitionedStreamTest {
+
+    @ClassRule
+    public static Container container = new Container();
+
+    @Rule
+    public Sandbox sandbox = new Sandbox(container);
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testStreamAllPartitioned() throws Exception {
+        EmployeeDao dao = container.get(EmployeeDao::get);
+        List<Integer> ids = dao.streamAllPartitioned(4, 2, executor,
+                s -> s.map(Employee::getEmployeeId)
+                        .collect(Collectors.toList()));
+        assertEquals(14, ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(new Integer(i + 1), ids.get(i));
+        }
+    }
+
+    @Test
+    public void testStreamAllPartitioned_morePartitionsThanThreads()
+            throws Exception {
+        EmployeeDao dao = container.get(EmployeeDao::get);
+        long sum = dao.streamAllPartitioned(14, 1, executor,
+                s -> s.mapToLong(Employee::getEmployeeId).sum());
+        assertEquals(105, sum);
+    }
+
+    @Test
+    public void testStreamAllPartitioned_shortCircuit() throws Exception {
+        EmployeeDao dao = container.get(EmployeeDao::get);
+        Optional<Employee> employee = dao.streamAllPartitioned(2, 1,
+                executor, s -> s.filter(e -> e.getEmployeeId() == 3)
+                        .findFirst());
+        assertEquals("WARD", employee.get().getEmployeeName());
+    }
+
+    @Test
+    public void testStreamAllPartitioned_commonPool() throws Exception {
+        EmployeeDao dao = container.get(EmployeeDao::get);
+        try {
+            dao.streamAllPartitioned(4, 2, ForkJoinPool.commonPool(),
+                    Stream::count);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testCallerPool() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            pool.submit(() -> {
+                try {
+                    PartitionedSpliterator.stream(0, 100, 4, 10, pool,
+                            (from, to, sink) -> {
+                            }, true);
+                    fail();
+                } catch (IllegalArgumentException expected) {
+                }
+            }).get();
+            assertEquals(100, PartitionedSpliterator.stream(0, 100, 4, 10,
+                    pool, (from, to, sink) -> LongStream.range(from, to)
+                            .forEach(sink::accept), true).count());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        try (Stream<Long> stream = PartitionedSpliterator.stream(0, 100, 4,
+                10, executor, (from, to, sink) -> {
+                    LongStream.range(from, to).forEach(sink::accept);
+                    if (from > 0) {
+                        throw new IllegalStateException("partition " + from);
+                    }
+                }, false)) {
+            stream.count();
+            fail();
+        } catch (IllegalStateException expected) {
+            assertEquals("partition 25", expected.getMessage());
+        }
+    }
+}